@@ -0,0 +1,96 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.jmh;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dbist.dml.impl.DmlJdbc;
+import org.dbist.processor.impl.VelocityPreprocessor;
+import org.h2.jdbcx.JdbcDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * Embedded H2 database with the bench_item table, and a DmlJdbc of it.<br>
+ * The compatibility mode (REGULAR, MySQL, PostgreSQL, Oracle, ...) only changes how H2 parses and runs the SQL; dbist still detects the
+ * database as H2.
+ */
+public class BenchmarkDatabase {
+    private static final AtomicInteger SEQ = new AtomicInteger();
+
+    private JdbcDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    public BenchmarkDatabase(String mode, int rowCount) {
+        dataSource = new JdbcDataSource();
+        String url = "jdbc:h2:mem:bench" + SEQ.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        if (mode != null && !"REGULAR".equals(mode))
+            url += ";MODE=" + mode;
+        dataSource.setURL(url);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table bench_item (id bigint primary key, name varchar(100), status varchar(20), qty int,"
+                + " price decimal(12, 2), created_at timestamp)");
+        List<Object[]> rowList = new ArrayList<>(rowCount);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < rowCount; i++)
+            rowList.add(new Object[] { (long) i, "item-" + i, i % 3 == 0 ? "closed" : "open", i % 100, BigDecimal.valueOf(i, 2),
+                    new Timestamp(now - i * 1000L) });
+        jdbcTemplate.batchUpdate("insert into bench_item (id, name, status, qty, price, created_at) values (?, ?, ?, ?, ?, ?)", rowList);
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    public DmlJdbc newDml() throws Exception {
+        return newDml(new NamedParameterJdbcTemplate(dataSource));
+    }
+
+    /**
+     * @param namedParameterJdbcOperations
+     *            The operations the select statements are sent to
+     */
+    public DmlJdbc newDml(NamedParameterJdbcOperations namedParameterJdbcOperations) throws Exception {
+        DmlJdbc dml = new DmlJdbc();
+        dml.setDomain("public");
+        dml.setDataSource(dataSource);
+        dml.setJdbcOperations(jdbcTemplate);
+        dml.setNamedParameterJdbcOperations(namedParameterJdbcOperations);
+        dml.setPreprocessor(new VelocityPreprocessor());
+        dml.afterPropertiesSet();
+        return dml;
+    }
+
+    public static BenchItem newItem(long id) {
+        BenchItem item = new BenchItem();
+        item.setId(id);
+        item.setName("item-" + id);
+        item.setStatus("open");
+        item.setQty((int) (id % 100));
+        item.setPrice(BigDecimal.valueOf(id, 2));
+        item.setCreatedAt(new Timestamp(System.currentTimeMillis()));
+        return item;
+    }
+
+    public void close() {
+        jdbcTemplate.execute("shutdown");
+    }
+}
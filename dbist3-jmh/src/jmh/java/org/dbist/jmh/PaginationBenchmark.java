@@ -0,0 +1,84 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.jmh;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.dbist.dml.jdbc.QueryMapper;
+import org.dbist.dml.jdbc.QueryMapperDb2;
+import org.dbist.dml.jdbc.QueryMapperH2;
+import org.dbist.dml.jdbc.QueryMapperMysql;
+import org.dbist.dml.jdbc.QueryMapperOracle;
+import org.dbist.dml.jdbc.QueryMapperPostgresql;
+import org.dbist.dml.jdbc.QueryMapperSqlserver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * QueryMapper*.applyPagination of each dialect.
+ */
+@State(Scope.Benchmark)
+public class PaginationBenchmark {
+    private static final String SQL = "select id, name, status, qty, price, created_at from bench_item where status = :status order by id";
+
+    @Param({ "h2", "mysql", "postgresql", "oracle", "sqlserver", "db2" })
+    public String dbType;
+
+    private QueryMapper queryMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (dbType) {
+            case "mysql":
+                queryMapper = new QueryMapperMysql();
+                break;
+            case "postgresql":
+                queryMapper = new QueryMapperPostgresql();
+                break;
+            case "oracle":
+                queryMapper = new QueryMapperOracle();
+                break;
+            case "sqlserver":
+                queryMapper = new QueryMapperSqlserver();
+                break;
+            case "db2":
+                queryMapper = new QueryMapperDb2();
+                break;
+            default:
+                queryMapper = new QueryMapperH2();
+                break;
+        }
+    }
+
+    @Benchmark
+    public String pageIndex() {
+        Map<String, Object> paramMap = new HashMap<>();
+        paramMap.put("status", "open");
+        return queryMapper.applyPagination(SQL, paramMap, 3, 20, 0, 0);
+    }
+
+    @Benchmark
+    public String firstResultIndex() {
+        Map<String, Object> paramMap = new HashMap<>();
+        paramMap.put("status", "open");
+        return queryMapper.applyPagination(SQL, paramMap, 0, 0, 40, 20);
+    }
+}
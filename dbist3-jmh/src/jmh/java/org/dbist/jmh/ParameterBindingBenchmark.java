@@ -0,0 +1,81 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dbist.dml.impl.DmlJdbc;
+import org.dbist.dml.jdbc.PositionalSql;
+import org.dbist.metadata.Table;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Parameter binding of entities (the former toParamMap/toParamMapList, now PositionalSql), alone and with update/updateBatch.
+ */
+@State(Scope.Benchmark)
+public class ParameterBindingBenchmark {
+    private BenchmarkDatabase database;
+    private DmlJdbc dml;
+    private PositionalSql insertSql;
+    private BenchItem item;
+    private List<BenchItem> itemList;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase(null, 100);
+        dml = database.newDml();
+        Table table = dml.getTable(BenchItem.class);
+        insertSql = table.getPositionalSql(table.getInsertSql());
+        item = BenchmarkDatabase.newItem(1);
+        itemList = new ArrayList<>(100);
+        for (int i = 0; i < 100; i++)
+            itemList.add(BenchmarkDatabase.newItem(i));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Object[] toValues() {
+        return insertSql.toValues(item);
+    }
+
+    @Benchmark
+    public List<Object[]> toValuesList() {
+        List<Object[]> valuesList = new ArrayList<>(itemList.size());
+        for (BenchItem item : itemList)
+            valuesList.add(insertSql.toValues(item));
+        return valuesList;
+    }
+
+    @Benchmark
+    public void update() throws Exception {
+        dml.update(item);
+    }
+
+    @Benchmark
+    public void updateBatch() throws Exception {
+        dml.updateBatch(itemList);
+    }
+}
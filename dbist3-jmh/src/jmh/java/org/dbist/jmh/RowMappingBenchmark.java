@@ -0,0 +1,68 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.jmh;
+
+import java.util.List;
+import java.util.Map;
+
+import org.dbist.dml.Query;
+import org.dbist.dml.impl.DmlJdbc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Mapping of result set rows to entities (DmlJdbc.newInstance) and to maps, in the H2 compatibility modes.
+ */
+@State(Scope.Benchmark)
+public class RowMappingBenchmark {
+    @Param({ "REGULAR", "MySQL", "PostgreSQL", "Oracle" })
+    public String mode;
+    @Param({ "10", "100" })
+    public int pageSize;
+
+    private BenchmarkDatabase database;
+    private DmlJdbc dml;
+    private Query query;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase(mode, 1000);
+        dml = database.newDml();
+        query = new Query(1, pageSize);
+        query.addOrder("id", true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<BenchItem> selectListEntity() throws Exception {
+        return dml.selectList(BenchItem.class, query);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Benchmark
+    public List<Map> selectListBySqlMap() throws Exception {
+        return dml.selectListBySql("select * from bench_item order by id", null, Map.class, 1, pageSize);
+    }
+}
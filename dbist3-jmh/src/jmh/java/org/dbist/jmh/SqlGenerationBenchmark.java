@@ -0,0 +1,105 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.jmh;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.dbist.dml.Filters;
+import org.dbist.dml.Query;
+import org.dbist.dml.impl.DmlJdbc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * SQL generation of selectList (appendSelectSql, appendWhere and the pagination of the dialect) without executing the SQL.<br>
+ * maxSqlPlanCacheSize 0 generates the SQL on every call, the others measure the cached plan path.
+ */
+@State(Scope.Benchmark)
+public class SqlGenerationBenchmark {
+    @Param({ "0", "1000" })
+    public int maxSqlPlanCacheSize;
+
+    private BenchmarkDatabase database;
+    private DmlJdbc dml;
+    private DryRunTemplate dryRunTemplate;
+    private Query simpleQuery;
+    private Query complexQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase(null, 0);
+        dryRunTemplate = new DryRunTemplate(database.getJdbcTemplate().getDataSource());
+        dml = database.newDml(dryRunTemplate);
+        dml.setMaxSqlPlanCacheSize(maxSqlPlanCacheSize);
+
+        simpleQuery = new Query();
+        simpleQuery.addFilter("id", 1L);
+
+        complexQuery = new Query(2, 20);
+        complexQuery.addSelect("id", "name", "qty", "price");
+        complexQuery.addFilter("status", "open");
+        complexQuery.addFilter("qty", ">=", 10);
+        complexQuery.addFilter("id", "in", Arrays.asList(1L, 2L, 3L, 5L, 8L, 13L, 21L));
+        complexQuery.addFilters(new Filters("or").addFilter("name", "like", "item-1%").addFilter("price", "<", 5));
+        complexQuery.addOrder("createdAt", false).addOrder("id", true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public String simpleSelect() throws Exception {
+        dml.selectList(BenchItem.class, simpleQuery);
+        return dryRunTemplate.lastSql;
+    }
+
+    @Benchmark
+    public String complexSelect() throws Exception {
+        dml.selectList(BenchItem.class, complexQuery);
+        return dryRunTemplate.lastSql;
+    }
+
+    /**
+     * Keeps the SQL of the select statements instead of executing them.
+     */
+    static class DryRunTemplate extends NamedParameterJdbcTemplate {
+        String lastSql;
+
+        DryRunTemplate(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        public <T> List<T> query(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper) throws DataAccessException {
+            lastSql = sql;
+            return Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.jmh;
+
+import org.dbist.dml.impl.DmlJdbc;
+import org.dbist.metadata.Table;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Cached table metadata lookups by object, class and table name.
+ */
+@State(Scope.Benchmark)
+public class TableLookupBenchmark {
+    private BenchmarkDatabase database;
+    private DmlJdbc dml;
+    private BenchItem item;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase(null, 0);
+        dml = database.newDml();
+        item = BenchmarkDatabase.newItem(1);
+        dml.getTable(item);
+        dml.getTable("bench_item");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Table getTableByObject() {
+        return dml.getTable(item);
+    }
+
+    @Benchmark
+    public Table getTableByClass() {
+        return dml.getTable(BenchItem.class);
+    }
+
+    @Benchmark
+    public Table getTableByName() {
+        return dml.getTable("bench_item");
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.jmh;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.dbist.processor.impl.VelocityPreprocessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * VelocityPreprocessor.process of a SQL template, with and without the template cache, and of a plain SQL.
+ */
+@State(Scope.Benchmark)
+public class VelocityPreprocessorBenchmark {
+    private static final String TEMPLATE = "select id, name, qty from bench_item where 1 = 1" //
+            + " #if ($status) and status = :status #end" //
+            + " #if ($minQty) and qty >= :minQty #end" //
+            + " #if ($name) and name like :name #end" //
+            + " order by ${orderBy}";
+    private static final String PLAIN = "select id, name, qty from bench_item where status = :status order by id";
+
+    @Param({ "0", "1000" })
+    public int maxTemplateCacheSize;
+
+    private VelocityPreprocessor preprocessor;
+    private Map<String, Object> contextMap;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        preprocessor = new VelocityPreprocessor();
+        preprocessor.setMaxTemplateCacheSize(maxTemplateCacheSize);
+        contextMap = new HashMap<>();
+        contextMap.put("status", "open");
+        contextMap.put("minQty", 10);
+        contextMap.put("orderBy", "id");
+        preprocessor.process(TEMPLATE, contextMap);
+    }
+
+    @Benchmark
+    public String template() throws Exception {
+        return preprocessor.process(TEMPLATE, contextMap);
+    }
+
+    @Benchmark
+    public String plain() throws Exception {
+        return preprocessor.process(PLAIN, contextMap);
+    }
+}
@@ -96,11 +96,19 @@ public @interface Table {
     String uniqueFields() default "";
 
     /**
-     * Version Management - version, active 필드가 존재해야 하고 마지막 버전은 반드시 active가 true 나머지는 false가 되어야 한다.
-     * titleField가 있다면 domainId + titleField + version으로 unique하고 domainId + titleField로 active가 true인 것을 찾으면 된다.
+     * Optimistic locking by the numeric versionField.<br>
+     * Update and delete check the version read before (where pk = :pk and version = :version) and update increases it. A stale
+     * write throws OptimisticLockException.<br>
+     * A null version column, as of the rows written before the table managed version, counts as 0. Updating or deleting data of which
+     * the version field is null (not read from the table) throws DbistRuntimeException.
      */
     boolean manageVersion() default false;
 
+    /**
+     * Version field of manageVersion
+     */
+    String versionField() default "version";
+
     /**
      * Tracer Entity - Tracer Entity가 있으면 히스토리 자동관리
      */
@@ -129,4 +137,19 @@ public @interface Table {
     Index[] indexes() default {};
 
     boolean reservedWordTolerated() default false;
+
+    /**
+     * Eviction policy of the entity cache by primary key: lru, lfu or ttl (empty means no cache)
+     */
+    String cache() default "";
+
+    /**
+     * Max number of the cached entities
+     */
+    int cacheMaxSize() default 1000;
+
+    /**
+     * Seconds after which the cached entities expire (0 means never)
+     */
+    long cacheTimeToLive() default 0;
 }
\ No newline at end of file
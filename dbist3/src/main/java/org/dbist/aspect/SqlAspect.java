@@ -15,22 +15,28 @@
  */
 package org.dbist.aspect;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
-import org.apache.commons.collections.ComparatorUtils;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.dbist.dml.jdbc.PositionalSql;
+import org.dbist.metrics.SqlMetricsSink;
 import org.dbist.util.SqlFormatter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.util.StringUtils;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 
 import net.sf.common.util.ValueUtils;
 
@@ -40,27 +46,199 @@ public class SqlAspect {
     private static final Logger logger = LoggerFactory.getLogger(SqlAspect.class);
 
     private boolean enabled = true;
+    private boolean logEnabled = true;
     private boolean prettyPrint;
     private boolean combinedPrint;
     private boolean includeElapsedTime;
+    private long slowQueryThreshold;
+    private List<SqlMetricsSink> metricsSinkList = new ArrayList<>();
+    private boolean asyncLog;
+    private int asyncLogQueueSize = 1024;
     private SqlFormatter formatter = new SqlFormatter();
 
-    @Around("execution(* org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate.*(..))")
+    // Not to measure the calls of a template to itself twice
+    private static final ThreadLocal<Boolean> EXECUTING = new ThreadLocal<>();
+
+    @Around("execution(* org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate.*(..))"
+        + " || execution(* org.springframework.jdbc.core.JdbcTemplate.update(..))"
+        + " || execution(* org.springframework.jdbc.core.JdbcTemplate.batchUpdate(..))")
     public Object print(final ProceedingJoinPoint point) throws Throwable {
-        print(point.getArgs());
-        return point.proceed();
+        Object[] args = point.getArgs();
+        if (!enabled || ValueUtils.isEmpty(args) || !(args[0] instanceof String) || EXECUTING.get() != null)
+            return point.proceed();
+
+        boolean log = logEnabled && logger.isInfoEnabled();
+        // Print before the execution unless the elapsed time is printed
+        if (log && !includeElapsedTime)
+            log(false, args, -1);
+
+        long startTime = System.nanoTime();
+        Object result = null;
+        Throwable error = null;
+        EXECUTING.set(Boolean.TRUE);
+        try {
+            result = point.proceed();
+            return result;
+        } catch (Throwable e) {
+            error = e;
+            throw e;
+        } finally {
+            EXECUTING.remove();
+            long elapsedNanos = System.nanoTime() - startTime;
+            if (!metricsSinkList.isEmpty()) {
+                long rowCount = error == null ? toRowCount(point.getSignature().getName(), result) : -1;
+                for (SqlMetricsSink sink : metricsSinkList) {
+                    try {
+                        sink.record((String) args[0], elapsedNanos, rowCount, error);
+                    } catch (RuntimeException e) {
+                        logger.warn(e.getMessage(), e);
+                    }
+                }
+            }
+            if (log && includeElapsedTime)
+                log(false, args, elapsedNanos);
+            if (slowQueryThreshold > 0 && elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(slowQueryThreshold) && logger.isWarnEnabled())
+                log(true, args, elapsedNanos);
+        }
+    }
+
+    private void log(boolean slow, Object[] args, long elapsedNanos) {
+        String sql = (String) args[0];
+        Object params = args.length > 1 && !ValueUtils.isEmpty(args[1]) ? args[1] : null;
+        // Entity values bound by Dml without parameter maps
+        if (params instanceof PositionalSql.Setter)
+            params = ((PositionalSql.Setter) params).getValues();
+        if (!asyncLog) {
+            write(slow, sql, params, elapsedNanos);
+            return;
+        }
+        // Drop rather than block the caller when the log thread falls behind
+        if (!getLogQueue().offer(new LogEntry(slow, sql, snapshot(params), elapsedNanos)))
+            droppedLogCount.increment();
+    }
+
+    private void write(boolean slow, String sql, Object params, long elapsedNanos) {
+        if (slow)
+            logger.warn("\r\nSlow SQL (threshold: " + slowQueryThreshold + "ms)" + toMessage(sql, params, false, false, elapsedNanos));
+        else
+            logger.info(toMessage(sql, params, prettyPrint, combinedPrint, elapsedNanos));
     }
 
-    private static final Comparator<String> COMPARATOR_REVERSED = ComparatorUtils.reversedComparator(ComparatorUtils.naturalComparator());
+    /**
+     * Copy of the parameter container, so that the caller can reuse it while the entry is in the queue
+     */
+    private static Object snapshot(Object params) {
+        if (params instanceof Map)
+            return new LinkedHashMap<>((Map<?, ?>) params);
+        if (params instanceof Object[]) {
+            // The parameter maps and sources of a batch are reused by the next batch
+            Object[] array = ((Object[]) params).clone();
+            for (int i = 0; i < array.length; i++) {
+                if (array[i] instanceof Map)
+                    array[i] = new LinkedHashMap<>((Map<?, ?>) array[i]);
+                else if (array[i] instanceof MapSqlParameterSource)
+                    array[i] = new LinkedHashMap<>(((MapSqlParameterSource) array[i]).getValues());
+            }
+            return array;
+        }
+        return params;
+    }
+
+    private static class LogEntry {
+        private final boolean slow;
+        private final String sql;
+        private final Object params;
+        private final long elapsedNanos;
+
+        LogEntry(boolean slow, String sql, Object params, long elapsedNanos) {
+            this.slow = slow;
+            this.sql = sql;
+            this.params = params;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
 
-    private void print(Object[] args) {
-        if (!enabled || !logger.isInfoEnabled() || ValueUtils.isEmpty(args) || !(args[0] instanceof String))
+    private static final LogEntry CLOSE = new LogEntry(false, null, null, 0);
+
+    private volatile BlockingQueue<LogEntry> logQueue;
+    private Thread logThread;
+    private final LongAdder droppedLogCount = new LongAdder();
+
+    private BlockingQueue<LogEntry> getLogQueue() {
+        BlockingQueue<LogEntry> queue = logQueue;
+        if (queue != null)
+            return queue;
+        synchronized (this) {
+            if (logQueue == null) {
+                queue = new ArrayBlockingQueue<>(asyncLogQueueSize);
+                final BlockingQueue<LogEntry> _queue = queue;
+                logThread = new Thread(() -> drain(_queue), "dbist-sql-log");
+                logThread.setDaemon(true);
+                logThread.start();
+                logQueue = queue;
+            }
+            return logQueue;
+        }
+    }
+
+    private void drain(BlockingQueue<LogEntry> queue) {
+        try {
+            while (true) {
+                LogEntry entry = queue.take();
+                if (entry == CLOSE)
+                    return;
+                try {
+                    write(entry.slow, entry.sql, entry.params, entry.elapsedNanos);
+                } catch (RuntimeException e) {
+                    logger.warn(e.getMessage(), e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Print the queued statements and stop the log thread of asyncLog.
+     */
+    public void close() throws InterruptedException {
+        BlockingQueue<LogEntry> queue;
+        Thread thread;
+        synchronized (this) {
+            queue = logQueue;
+            thread = logThread;
+            logQueue = null;
+            logThread = null;
+        }
+        if (queue == null)
             return;
+        while (!queue.offer(CLOSE, 100, TimeUnit.MILLISECONDS)) {
+            if (!thread.isAlive())
+                return;
+        }
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+    }
 
-        long startTime = includeElapsedTime ? new Date().getTime() : 0;
-        String sql = (String) args[0];
-        Object params = args.length > 1 && !ValueUtils.isEmpty(args[1]) ? args[1] : null;
+    /**
+     * Selected or updated rows by the method of NamedParameterJdbcTemplate, or -1 if unknown
+     */
+    private static long toRowCount(String methodName, Object result) {
+        if (result instanceof Collection)
+            return ((Collection<?>) result).size();
+        if ("update".equals(methodName) && result instanceof Number)
+            return ((Number) result).longValue();
+        if ("batchUpdate".equals(methodName) && result instanceof int[]) {
+            long count = 0;
+            for (int i : (int[]) result)
+                count += Math.max(i, 0);
+            return count;
+        }
+        if (methodName.startsWith("queryFor") && !"queryForRowSet".equals(methodName))
+            return result == null ? 0 : 1;
+        return -1;
+    }
 
+    private String toMessage(String sql, Object params, boolean prettyPrint, boolean combinedPrint, long elapsedNanos) {
         // SQL
         StringBuilder buf = new StringBuilder("\r\nSQL: ");
         boolean combined = false;
@@ -71,8 +249,11 @@ public class SqlAspect {
 
         if (combinedPrint) {
             try {
-                sql = combine(sql, params);
-                combined = true;
+                String combinedSql = combine(sql, params);
+                if (combinedSql != null) {
+                    sql = combinedSql;
+                    combined = true;
+                }
             } catch (Exception ignored) {
             }
         }
@@ -93,7 +274,8 @@ public class SqlAspect {
                     buf.append("\r\nParameters:");
                     int i = 0;
                     for (Object param : (Object[]) params)
-                        buf.append(i++ == 0 ? "" : ",").append("\r\n\t").append(ValueUtils.toString(param));
+                        buf.append(i++ == 0 ? "" : ",").append("\r\n\t")
+                            .append(param instanceof Object[] ? Arrays.toString((Object[]) param) : ValueUtils.toString(param));
                 }
             } catch (Exception e) {
                 logger.warn(e.getMessage(), e);
@@ -101,34 +283,64 @@ public class SqlAspect {
         }
 
         // ElapsedTime
-        if (includeElapsedTime)
-            buf.append("\r\nElapsedTime: ").append(new Date().getTime() - startTime);
+        if (elapsedNanos >= 0)
+            buf.append("\r\nElapsedTime: ").append(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
 
         buf.append("\r\n");
-        logger.info(buf.toString());
+        return buf.toString();
     }
 
+    /**
+     * Replace the parameters with the values in a single pass (string literals are skipped).
+     *
+     * @return The combined SQL, or null if the parameters cannot be combined (e.g. batch parameters)
+     */
     private static String combine(String sql, Object params) {
         if (sql == null || params == null)
             return sql;
 
-        if (params instanceof Map) {
-            Map<String, ?> map = (Map<String, ?>) params;
-            Set<String> keySet = new TreeSet<>(COMPARATOR_REVERSED);
-            keySet.addAll(map.keySet());
-
-            for (String key : keySet) {
-                String value = toParamValue(map.get(key));
-                sql = StringUtils.replace(sql, ":" + key, value);
+        Map<?, ?> map = params instanceof Map ? (Map<?, ?>) params : null;
+        Object[] array = params instanceof Object[] ? (Object[]) params : null;
+        if (map == null && array == null)
+            return null;
+        if (array != null && array.length > 0 && (array[0] instanceof Map || array[0] instanceof Object[]))
+            return null;
+
+        int length = sql.length();
+        StringBuilder buf = new StringBuilder(length + 64);
+        int index = 0;
+        for (int i = 0; i < length; i++) {
+            char ch = sql.charAt(i);
+            if (ch == '\'') {
+                int end = sql.indexOf('\'', i + 1);
+                end = end < 0 ? length - 1 : end;
+                buf.append(sql, i, end + 1);
+                i = end;
+                continue;
             }
-
-        } else if (params instanceof Object[]) {
-            for (Object param : (Object[]) params) {
-                sql = sql.replaceFirst("?", toParamValue(param));
+            if (map != null && ch == ':' && i + 1 < length && Character.isJavaIdentifierStart(sql.charAt(i + 1))
+                && (i == 0 || sql.charAt(i - 1) != ':')) {
+                int end = i + 1;
+                while (end < length && Character.isJavaIdentifierPart(sql.charAt(end)))
+                    end++;
+                String key = sql.substring(i + 1, end);
+                if (map.containsKey(key)) {
+                    buf.append(toParamValue(map.get(key)));
+                    i = end - 1;
+                    continue;
+                }
+            } else if (array != null && ch == '?') {
+                if (index == array.length)
+                    return null;
+                buf.append(toParamValue(array[index++]));
+                continue;
             }
+            buf.append(ch);
         }
+        if (array != null && index != array.length)
+            return null;
 
-        return sql;
+        return buf.toString();
     }
 
     private static String toParamValue(Object value) {
@@ -166,6 +378,23 @@ public class SqlAspect {
         this.enabled = enabled;
     }
 
+    public boolean isLogEnabled() {
+        return logEnabled;
+    }
+
+    public void setLogEnabled(String logEnabled) {
+        this.setLogEnabled(ValueUtils.toBoolean(logEnabled, false));
+    }
+
+    /**
+     * Whether to print every statement (true by default). Metrics and slow queries are not affected.
+     *
+     * @param logEnabled
+     */
+    public void setLogEnabled(boolean logEnabled) {
+        this.logEnabled = logEnabled;
+    }
+
     public boolean isPrettyPrint() {
         return prettyPrint;
     }
@@ -201,4 +430,72 @@ public class SqlAspect {
     public void setIncludeElapsedTime(boolean includesElapsedTime) {
         this.includeElapsedTime = includesElapsedTime;
     }
+
+    public boolean isAsyncLog() {
+        return asyncLog;
+    }
+
+    public void setAsyncLog(String asyncLog) {
+        this.setAsyncLog(ValueUtils.toBoolean(asyncLog, false));
+    }
+
+    /**
+     * Whether to format and print the statements on a background thread.<br>
+     * The caller only puts the SQL and a copy of the parameters into a bounded queue, and the entries are dropped and counted if it is full.
+     *
+     * @param asyncLog
+     */
+    public void setAsyncLog(boolean asyncLog) {
+        this.asyncLog = asyncLog;
+    }
+
+    public int getAsyncLogQueueSize() {
+        return asyncLogQueueSize;
+    }
+
+    public void setAsyncLogQueueSize(String asyncLogQueueSize) {
+        this.setAsyncLogQueueSize(ValueUtils.toInteger(asyncLogQueueSize, 1024));
+    }
+
+    public void setAsyncLogQueueSize(int asyncLogQueueSize) {
+        this.asyncLogQueueSize = asyncLogQueueSize;
+    }
+
+    /**
+     * @return The number of the statements not printed because the queue of asyncLog was full
+     */
+    public long getDroppedLogCount() {
+        return droppedLogCount.sum();
+    }
+
+    public long getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+
+    public void setSlowQueryThreshold(String slowQueryThreshold) {
+        this.setSlowQueryThreshold(ValueUtils.toLong(slowQueryThreshold, 0L));
+    }
+
+    /**
+     * Statements slower than this (milliseconds) are printed in full with their parameters as warnings, even if logEnabled is false.
+     * 0 disables it.
+     *
+     * @param slowQueryThreshold
+     */
+    public void setSlowQueryThreshold(long slowQueryThreshold) {
+        this.slowQueryThreshold = slowQueryThreshold;
+    }
+
+    public List<SqlMetricsSink> getMetricsSinkList() {
+        return metricsSinkList;
+    }
+
+    public void setMetricsSinkList(List<SqlMetricsSink> metricsSinkList) {
+        this.metricsSinkList = metricsSinkList == null ? new ArrayList<>() : metricsSinkList;
+    }
+
+    public void setMetricsSink(SqlMetricsSink metricsSink) {
+        this.metricsSinkList = new ArrayList<>();
+        this.metricsSinkList.add(metricsSink);
+    }
 }
@@ -0,0 +1,266 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.dbist.exception.DbistRuntimeException;
+
+/**
+ * Cache of the entities of a table by primary key.<br>
+ * Entries are evicted by evictionPolicy when maxSize is exceeded: lru (least recently used), lfu (least frequently used)
+ * or ttl (oldest stored). With timeToLive (seconds), entries expire regardless of the policy.<br>
+ * Cached objects are held as they are put, so the callers should put and get copies.
+ */
+public class EntityCache {
+    public static final String EVICTION_LRU = "lru";
+    public static final String EVICTION_LFU = "lfu";
+    public static final String EVICTION_TTL = "ttl";
+
+    private String evictionPolicy = EVICTION_LRU;
+    private int maxSize = 1000;
+    private long timeToLive;
+
+    private Map<Object, Entry> entryMap;
+    // Keys by use count, only for lfu
+    private Map<Long, LinkedHashSet<Object>> keySetByCountMap;
+    private long minCount;
+    private long generation;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder expirationCount = new LongAdder();
+
+    public EntityCache() {
+    }
+
+    public EntityCache(String evictionPolicy, int maxSize, long timeToLive) {
+        setEvictionPolicy(evictionPolicy);
+        setMaxSize(maxSize);
+        setTimeToLive(timeToLive);
+    }
+
+    private Map<Object, Entry> getEntryMap() {
+        if (entryMap == null) {
+            entryMap = new LinkedHashMap<Object, Entry>(16, 0.75f, EVICTION_LRU.equals(evictionPolicy));
+            if (EVICTION_LFU.equals(evictionPolicy))
+                keySetByCountMap = new HashMap<Long, LinkedHashSet<Object>>();
+        }
+        return entryMap;
+    }
+
+    /**
+     * @param key
+     * @return The cached object, or null if it isn't cached or is expired
+     */
+    public synchronized Object get(Object key) {
+        Entry entry = getEntryMap().get(key);
+        if (entry != null && entry.expiresAt != 0 && entry.expiresAt < System.currentTimeMillis()) {
+            removeEntry(key);
+            expirationCount.increment();
+            entry = null;
+        }
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        if (keySetByCountMap != null)
+            touch(key, entry);
+        hitCount.increment();
+        return entry.value;
+    }
+
+    /**
+     * The generation to be passed to put method, which is read before the object is loaded from the database.
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Put the object, unless the cache is invalidated after the generation was read.
+     *
+     * @param key
+     * @param value
+     * @param generation
+     */
+    public synchronized void put(Object key, Object value, long generation) {
+        if (generation != this.generation || maxSize <= 0)
+            return;
+        Map<Object, Entry> map = getEntryMap();
+        if (map.containsKey(key))
+            removeEntry(key);
+        else if (map.size() >= maxSize)
+            evict();
+        Entry entry = new Entry(value, timeToLive > 0 ? System.currentTimeMillis() + timeToLive * 1000 : 0);
+        map.put(key, entry);
+        if (keySetByCountMap != null) {
+            addKey(key, entry.count);
+            minCount = entry.count;
+        }
+    }
+
+    public synchronized void remove(Object key) {
+        generation++;
+        removeEntry(key);
+    }
+
+    public synchronized void clear() {
+        generation++;
+        getEntryMap().clear();
+        if (keySetByCountMap != null)
+            keySetByCountMap.clear();
+    }
+
+    public synchronized int size() {
+        return getEntryMap().size();
+    }
+
+    private void evict() {
+        Object key;
+        if (keySetByCountMap == null) {
+            // The eldest of the access order (lru) or of the insertion order (ttl)
+            key = entryMap.keySet().iterator().next();
+        } else {
+            LinkedHashSet<Object> keySet = keySetByCountMap.get(minCount);
+            if (keySet == null) {
+                minCount = Long.MAX_VALUE;
+                for (Long count : keySetByCountMap.keySet())
+                    minCount = Math.min(minCount, count);
+                keySet = keySetByCountMap.get(minCount);
+            }
+            key = keySet.iterator().next();
+        }
+        removeEntry(key);
+        evictionCount.increment();
+    }
+
+    private void removeEntry(Object key) {
+        Entry entry = getEntryMap().remove(key);
+        if (entry == null || keySetByCountMap == null)
+            return;
+        removeKey(key, entry.count);
+    }
+
+    private void touch(Object key, Entry entry) {
+        removeKey(key, entry.count);
+        if (entry.count == minCount && !keySetByCountMap.containsKey(minCount))
+            minCount++;
+        addKey(key, ++entry.count);
+    }
+
+    private void addKey(Object key, long count) {
+        LinkedHashSet<Object> keySet = keySetByCountMap.get(count);
+        if (keySet == null) {
+            keySet = new LinkedHashSet<Object>();
+            keySetByCountMap.put(count, keySet);
+        }
+        keySet.add(key);
+    }
+
+    private void removeKey(Object key, long count) {
+        LinkedHashSet<Object> keySet = keySetByCountMap.get(count);
+        if (keySet == null)
+            return;
+        keySet.remove(key);
+        if (keySet.isEmpty())
+            keySetByCountMap.remove(count);
+    }
+
+    /**
+     * Remove the expired entries.
+     */
+    public synchronized void purge() {
+        if (timeToLive <= 0 || entryMap == null)
+            return;
+        long now = System.currentTimeMillis();
+        for (Iterator<Map.Entry<Object, Entry>> i = entryMap.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<Object, Entry> entry = i.next();
+            if (entry.getValue().expiresAt >= now)
+                continue;
+            i.remove();
+            if (keySetByCountMap != null)
+                removeKey(entry.getKey(), entry.getValue().count);
+            expirationCount.increment();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirationCount.sum();
+    }
+
+    public String getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    public synchronized void setEvictionPolicy(String evictionPolicy) {
+        if (!EVICTION_LRU.equals(evictionPolicy) && !EVICTION_LFU.equals(evictionPolicy) && !EVICTION_TTL.equals(evictionPolicy))
+            throw new DbistRuntimeException("Unsupported evictionPolicy: " + evictionPolicy);
+        if (entryMap != null && !entryMap.isEmpty())
+            throw new DbistRuntimeException("evictionPolicy cannot be changed after entries are cached.");
+        this.evictionPolicy = evictionPolicy;
+        this.entryMap = null;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * @param timeToLive
+     *            Seconds after which entries expire (0 means never)
+     */
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final long expiresAt;
+        private long count = 1;
+
+        Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
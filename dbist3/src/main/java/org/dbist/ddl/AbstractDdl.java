@@ -12,7 +12,6 @@ import java.util.Map;
 
 import javax.annotation.Resource;
 
-import org.apache.commons.lang.ClassUtils;
 import org.dbist.DbistConstants;
 import org.dbist.annotation.Column;
 import org.dbist.annotation.PrimaryKey;
@@ -29,13 +28,11 @@ import org.dbist.dml.impl.DmlJdbc;
 import org.dbist.exception.DbistRuntimeException;
 import org.dbist.metadata.TableCol;
 import org.dbist.metadata.TableIdx;
+import org.dbist.util.ReflectionUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.config.BeanDefinition;
-import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.env.Environment;
-import org.springframework.core.type.filter.AnnotationTypeFilter;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.util.StringUtils;
 
@@ -282,36 +279,7 @@ public abstract class AbstractDdl implements Ddl {
 
     @Override
     public List<Class<?>> scanEntity(String basePackage) {
-        List<Class<?>> classList = new ArrayList<>();
-
-        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
-        scanner.addIncludeFilter(new AnnotationTypeFilter(Table.class));
-
-        String[] basePackages = StringUtils.tokenizeToStringArray(basePackage, ",");
-        if (ValueUtils.isEmpty(basePackages)) {
-            throw new DbistRuntimeException("Base Package is Empty.");
-        }
-
-        for (String path : basePackages) {
-            for (BeanDefinition bd : scanner.findCandidateComponents(path)) {
-                try {
-                    Class<?> clazz = ClassUtils.getClass(bd.getBeanClassName());
-                    Annotation tableAnn = AnnotationUtils.findAnnotation(clazz, Table.class);
-
-                    if (tableAnn == null) {
-                        continue;
-                    }
-
-                    Map<String, Object> tableAnnInfoMap = AnnotationUtils.getAnnotationAttributes(tableAnn);
-                    if (!(boolean) tableAnnInfoMap.get("isRef")) {
-                        classList.add(clazz);
-                    }
-                } catch (Exception e) {
-                    logger.debug(e.getMessage() + "[" + bd.getBeanClassName() + "]", e);
-                }
-            }
-        }
-        return classList;
+        return ReflectionUtil.scanEntity(basePackage, false);
     }
 
     /**
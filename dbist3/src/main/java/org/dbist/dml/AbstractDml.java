@@ -19,9 +19,12 @@ import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.sql.DataSource;
@@ -31,6 +34,7 @@ import org.apache.commons.lang.ClassUtils;
 import org.dbist.annotation.GenerationRule;
 import org.dbist.exception.DataNotFoundException;
 import org.dbist.exception.DbistRuntimeException;
+import org.dbist.metadata.Column;
 import org.dbist.metadata.Table;
 import org.dbist.processor.Preprocessor;
 import org.dbist.util.UuidGenerator;
@@ -40,6 +44,7 @@ import org.springframework.beans.factory.BeanNameAware;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.util.StringUtils;
 
 import net.sf.common.util.ValueUtils;
 
@@ -383,13 +388,46 @@ public abstract class AbstractDml implements Dml, ApplicationContextAware, BeanN
         page.setMaxResultSize(query.getMaxResultSize());
         page.setTotalSize(selectSize(clazz, query));
 
-        if (page.getIndex() >= 0 && page.getSize() > 0 && page.getTotalSize() > 0)
-            page.setLastIndex((page.getTotalSize() / page.getSize()) - (page.getTotalSize() % page.getSize() == 0 ? 1 : 0));
+        if (query.isSeek()) {
+            page.setList(selectList(clazz, query));
+            page.setNextToken(toNextToken(clazz, query, page.getList()));
+            return page;
+        }
+
+        populateLastIndex(page);
 
         page.setList(selectList(clazz, query));
         return page;
     }
 
+    protected static void populateLastIndex(Page<?> page) {
+        if (page.getIndex() >= 0 && page.getSize() > 0 && page.getTotalSize() > 0)
+            page.setLastIndex((page.getTotalSize() / page.getSize()) - (page.getTotalSize() % page.getSize() == 0 ? 1 : 0));
+    }
+
+    /**
+     * Continuation token of keyset pagination (the order field values of the last row), or null if the page is not full.
+     */
+    protected String toNextToken(Class<?> clazz, Query query, List<?> list) throws IllegalAccessException {
+        if (query.getPageSize() <= 0 || list.size() < query.getPageSize())
+            return null;
+        Object last = list.get(list.size() - 1);
+        Table table = getTable(clazz);
+        List<Object> values = new ArrayList<>();
+        for (Order order : query.getOrder()) {
+            for (String fieldName : StringUtils.tokenizeToStringArray(order.getField(), ",")) {
+                Field field = table.getField(fieldName);
+                if (field == null)
+                    field = table.getFieldByColumnName(fieldName);
+                if (field == null)
+                    throw new DbistRuntimeException("Couldn't find order field: " + fieldName + " of " + clazz.getName());
+                field.setAccessible(true);
+                values.add(field.get(last));
+            }
+        }
+        return SeekToken.encode(values);
+    }
+
     public int selectSize(String tableName, Object condition) throws Exception {
         ValueUtils.assertNotNull("tableName", tableName);
         return selectSize(getClass(tableName), condition);
@@ -453,6 +491,24 @@ public abstract class AbstractDml implements Dml, ApplicationContextAware, BeanN
         return page;
     }
 
+    public <T> void forEach(Class<T> clazz, Object condition, Consumer<? super T> action) throws Exception {
+        ValueUtils.assertNotNull("action", action);
+        try (Stream<T> stream = selectStream(clazz, condition)) {
+            stream.forEach(action);
+        }
+    }
+
+    public <T> void forEachByQl(String ql, Map<String, ?> paramMap, Class<T> requiredType, Consumer<? super T> action) throws Exception {
+        ValueUtils.assertNotNull("action", action);
+        try (Stream<T> stream = selectStreamByQl(ql, paramMap, requiredType)) {
+            stream.forEach(action);
+        }
+    }
+
+    public <T> Stream<T> selectStreamBySql(String sql, Map<String, ?> paramMap, Class<T> requiredType) throws Exception {
+        return selectStreamByQl(sql, paramMap, requiredType);
+    }
+
     public <T> List<T> selectListByQl(String ql, Map<String, ?> paramMap, Class<T> requiredType, int pageIndex, int pageSize) throws Exception {
         return selectListByQl(ql, paramMap, requiredType, pageIndex, pageSize, 0, 0);
     }
@@ -586,6 +642,43 @@ public abstract class AbstractDml implements Dml, ApplicationContextAware, BeanN
         insertBatch(getClass(tableName), list, fieldNames);
     }
 
+    public void bulkLoad(List<?> list) throws Exception {
+        insertBatch(list);
+    }
+
+    public void bulkLoad(Stream<?> stream) throws Exception {
+        bulkLoad(stream, getBulkLoadChunkSize());
+    }
+
+    public void bulkLoad(Stream<?> stream, int chunkSize) throws Exception {
+        if (chunkSize < 1)
+            throw new DbistRuntimeException("chunkSize must be greater than 0: " + chunkSize);
+        insertBatch(stream.iterator(), chunkSize);
+    }
+
+    /**
+     * Chunk size of bulkLoad(Stream)
+     */
+    protected int getBulkLoadChunkSize() {
+        return 1000;
+    }
+
+    /**
+     * Insert the data of the iterator by insertBatch of chunkSize data.
+     */
+    protected void insertBatch(Iterator<?> iterator, int chunkSize) throws Exception {
+        List<Object> list = new ArrayList<Object>(chunkSize);
+        while (iterator.hasNext()) {
+            list.add(iterator.next());
+            if (list.size() < chunkSize)
+                continue;
+            insertBatch(list);
+            list.clear();
+        }
+        if (!list.isEmpty())
+            insertBatch(list);
+    }
+
     protected ValueGenerator getValueGenerator(String generator) {
         if (ValueUtils.isEmpty(generator))
             return null;
@@ -606,6 +699,11 @@ public abstract class AbstractDml implements Dml, ApplicationContextAware, BeanN
     }
 
     protected <T> void doBeforeInsert(T data, Table table) throws Exception {
+        // The first version of a versioned table
+        Column versionColumn = table.getVersionColumn();
+        if (versionColumn != null && versionColumn.getField().get(data) == null)
+            versionColumn.getField().set(data, ValueUtils.toRequiredType(1, versionColumn.getField().getType()));
+
         for (Field field : table.getValueGeneratorByFieldMap().keySet()) {
             if (!ValueUtils.isEmpty(field.get(data)))
                 continue;
@@ -616,7 +714,7 @@ public abstract class AbstractDml implements Dml, ApplicationContextAware, BeanN
     }
 
     protected <T> void doBeforeInsertBatch(List<T> list, Table table) throws Exception {
-        if (ValueUtils.isEmpty(list) || table.getValueGeneratorByFieldMap().isEmpty())
+        if (ValueUtils.isEmpty(list) || (table.getValueGeneratorByFieldMap().isEmpty() && table.getVersionColumn() == null))
             return;
 
         for (T data : list)
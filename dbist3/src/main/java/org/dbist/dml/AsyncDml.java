@@ -0,0 +1,390 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * Asynchronous facade of a Dml, which returns CompletableFuture instead of blocking the caller.<br>
+ * Calls run on virtual threads if the JVM supports them (Java 21 or later), or on a bounded pool otherwise. Either way at most
+ * maxConcurrency calls run at the same time, which should not exceed the connection pool size.<br>
+ * Each call runs in another thread, so it doesn't join the transaction of the caller.
+ */
+public class AsyncDml implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncDml.class);
+
+    private Dml dml;
+    private boolean virtualThreadEnabled = true;
+    private int maxConcurrency = Runtime.getRuntime().availableProcessors() * 2;
+    private int queueSize = 1000;
+    private long timeout;
+    private ExecutorService executor;
+    private boolean executorOwned;
+    private Semaphore semaphore;
+    private ScheduledExecutorService timeoutScheduler;
+    private AsyncDml parent;
+
+    public AsyncDml() {
+    }
+
+    public AsyncDml(Dml dml) {
+        this.dml = dml;
+    }
+
+    /**
+     * Call of a Dml run by submit method
+     */
+    public interface Call<T> {
+        T call(Dml dml) throws Exception;
+    }
+
+    /**
+     * Run the call asynchronously.<br>
+     * The future is completed exceptionally by TimeoutException after the timeout, and the thread running the call is interrupted.
+     * Cancelling the future interrupts it too.
+     *
+     * @param call
+     * @return
+     */
+    public <T> CompletableFuture<T> submit(final Call<T> call) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        final Semaphore semaphore = getSemaphore();
+        final Future<?> task;
+        try {
+            task = getExecutor().submit(() -> {
+                if (future.isDone())
+                    return;
+                try {
+                    if (semaphore != null)
+                        semaphore.acquire();
+                    try {
+                        future.complete(call.call(dml));
+                    } finally {
+                        if (semaphore != null)
+                            semaphore.release();
+                    }
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        if (timeout > 0) {
+            final ScheduledFuture<?> timer = getTimeoutScheduler().schedule(() -> {
+                if (future.completeExceptionally(new TimeoutException("Dml call timed out after " + timeout + "ms")))
+                    task.cancel(true);
+            }, timeout, TimeUnit.MILLISECONDS);
+            future.whenComplete((result, e) -> timer.cancel(false));
+        }
+        future.whenComplete((result, e) -> {
+            if (future.isCancelled())
+                task.cancel(true);
+        });
+        return future;
+    }
+
+    /**
+     * The facade of the same Dml and executor, with the timeout of each call.
+     *
+     * @param timeout
+     *            0 means no timeout
+     * @param unit
+     * @return
+     */
+    public AsyncDml withTimeout(long timeout, TimeUnit unit) {
+        AsyncDml asyncDml = new AsyncDml(dml);
+        asyncDml.parent = parent == null ? this : parent;
+        asyncDml.timeout = unit.toMillis(timeout);
+        return asyncDml;
+    }
+
+    public <T> CompletableFuture<T> select(T data) {
+        return submit(dml -> dml.select(data));
+    }
+
+    public <T> CompletableFuture<T> select(Class<T> clazz, Object... pkCondition) {
+        return submit(dml -> dml.select(clazz, pkCondition));
+    }
+
+    public <T> CompletableFuture<T> selectByCondition(Class<T> clazz, Object condition) {
+        return submit(dml -> dml.selectByCondition(clazz, condition));
+    }
+
+    public <T> CompletableFuture<List<T>> selectList(Class<T> clazz, Object condition) {
+        return submit(dml -> dml.selectList(clazz, condition));
+    }
+
+    public <T> CompletableFuture<Page<T>> selectPage(Class<T> clazz, Query query) {
+        return submit(dml -> dml.selectPage(clazz, query));
+    }
+
+    public CompletableFuture<Integer> selectSize(Class<?> clazz, Object condition) {
+        return submit(dml -> dml.selectSize(clazz, condition));
+    }
+
+    public <T> CompletableFuture<T> selectByQl(String ql, Map<String, ?> paramMap, Class<T> requiredType) {
+        return submit(dml -> dml.selectByQl(ql, paramMap, requiredType));
+    }
+
+    public <T> CompletableFuture<List<T>> selectListByQl(String ql, Map<String, ?> paramMap, Class<T> requiredType, int pageIndex, int pageSize) {
+        return submit(dml -> dml.selectListByQl(ql, paramMap, requiredType, pageIndex, pageSize));
+    }
+
+    public <T> CompletableFuture<Page<T>> selectPageByQl(String ql, Map<String, ?> paramMap, Class<T> requiredType, int pageIndex, int pageSize) {
+        return submit(dml -> dml.selectPageByQl(ql, paramMap, requiredType, pageIndex, pageSize));
+    }
+
+    public CompletableFuture<Integer> selectSizeByQl(String ql, Map<String, ?> paramMap) {
+        return submit(dml -> dml.selectSizeByQl(ql, paramMap));
+    }
+
+    public <T> CompletableFuture<T> selectBySql(String sql, Map<String, ?> paramMap, Class<T> requiredType) {
+        return submit(dml -> dml.selectBySql(sql, paramMap, requiredType));
+    }
+
+    public <T> CompletableFuture<List<T>> selectListBySql(String sql, Map<String, ?> paramMap, Class<T> requiredType, int pageIndex, int pageSize) {
+        return submit(dml -> dml.selectListBySql(sql, paramMap, requiredType, pageIndex, pageSize));
+    }
+
+    public CompletableFuture<Void> insert(Object data, String... fieldNames) {
+        return submit(dml -> {
+            dml.insert(data, fieldNames);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> insertBatch(List<?> list, String... fieldNames) {
+        return submit(dml -> {
+            dml.insertBatch(list, fieldNames);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> update(Object data, String... fieldNames) {
+        return submit(dml -> {
+            dml.update(data, fieldNames);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> updateBatch(List<?> list, String... fieldNames) {
+        return submit(dml -> {
+            dml.updateBatch(list, fieldNames);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> upsert(Object data, String... fieldNames) {
+        return submit(dml -> {
+            dml.upsert(data, fieldNames);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> upsertBatch(List<?> list, String... fieldNames) {
+        return submit(dml -> {
+            dml.upsertBatch(list, fieldNames);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> delete(Object data) {
+        return submit(dml -> {
+            dml.delete(data);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteBatch(List<?> list) {
+        return submit(dml -> {
+            dml.deleteBatch(list);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Integer> executeByQl(String ql, Map<String, ?> paramMap) {
+        return submit(dml -> dml.executeByQl(ql, paramMap));
+    }
+
+    public CompletableFuture<Integer> executeBySql(String sql, Map<String, ?> paramMap) {
+        return submit(dml -> dml.executeBySql(sql, paramMap));
+    }
+
+    public Dml getDml() {
+        return dml;
+    }
+
+    public void setDml(Dml dml) {
+        this.dml = dml;
+    }
+
+    public boolean isVirtualThreadEnabled() {
+        return virtualThreadEnabled;
+    }
+
+    /**
+     * Whether the calls run on virtual threads if the JVM supports them (default true)
+     *
+     * @param virtualThreadEnabled
+     */
+    public void setVirtualThreadEnabled(boolean virtualThreadEnabled) {
+        this.virtualThreadEnabled = virtualThreadEnabled;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Max number of the calls running at the same time: the threads of the bounded pool, or the permits of the virtual threads
+     *
+     * @param maxConcurrency
+     */
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Max number of the calls waiting for a thread of the bounded pool. More calls are completed by RejectedExecutionException.
+     *
+     * @param queueSize
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Default timeout of each call in milliseconds (0 means no timeout)
+     *
+     * @param timeout
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public synchronized ExecutorService getExecutor() {
+        if (parent != null)
+            return parent.getExecutor();
+        if (executor == null) {
+            executor = newVirtualThreadExecutor();
+            if (executor == null) {
+                ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(Math.max(maxConcurrency, 1), Math.max(maxConcurrency, 1), 60,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(Math.max(queueSize, 1)), newThreadFactory("dbist-async-"));
+                threadPoolExecutor.allowCoreThreadTimeOut(true);
+                executor = threadPoolExecutor;
+            } else {
+                semaphore = new Semaphore(Math.max(maxConcurrency, 1));
+            }
+            executorOwned = true;
+        }
+        return executor;
+    }
+
+    /**
+     * @param executor
+     *            Executor of the calls (virtual threads or a bounded pool of maxConcurrency threads by default), which isn't shut down by
+     *            destroy method
+     */
+    public synchronized void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+        this.executorOwned = false;
+        this.semaphore = null;
+    }
+
+    private synchronized Semaphore getSemaphore() {
+        if (parent != null)
+            return parent.getSemaphore();
+        getExecutor();
+        return semaphore;
+    }
+
+    private synchronized ScheduledExecutorService getTimeoutScheduler() {
+        if (parent != null)
+            return parent.getTimeoutScheduler();
+        if (timeoutScheduler == null)
+            timeoutScheduler = Executors.newSingleThreadScheduledExecutor(newThreadFactory("dbist-async-timeout-"));
+        return timeoutScheduler;
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() of Java 21 or later, or null if it isn't supported.
+     */
+    private ExecutorService newVirtualThreadExecutor() {
+        if (!virtualThreadEnabled)
+            return null;
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (Exception e) {
+            logger.warn("Couldn't create virtual thread executor: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static ThreadFactory newThreadFactory(final String prefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    public synchronized void destroy() {
+        if (parent != null)
+            return;
+        if (executor != null && executorOwned)
+            executor.shutdownNow();
+        if (timeoutScheduler != null)
+            timeoutScheduler.shutdownNow();
+        executor = null;
+        timeoutScheduler = null;
+    }
+}
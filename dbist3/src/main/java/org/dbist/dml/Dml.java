@@ -17,6 +17,8 @@ package org.dbist.dml;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import javax.sql.DataSource;
 
@@ -348,6 +350,40 @@ public interface Dml {
      */
     void insertBatch(String tableName, List<?> list, String... fieldNames) throws Exception;
 
+    /**
+     * Insert data list to the database table mapped to the list item class by the native bulk load protocol of the database
+     * (copy of postgresql, load data local infile of mysql).<br>
+     * Inserted by batches where the protocol isn't supported.
+     *
+     * @param list
+     *            The data list to insert
+     * @throws Exception
+     */
+    void bulkLoad(List<?> list) throws Exception;
+
+    /**
+     * Insert data stream to the database table mapped to the stream item class by the native bulk load protocol of the database.<br>
+     * The data are read while they are sent, so the stream may be larger than the memory. The stream is not closed.
+     *
+     * @param stream
+     *            The data stream to insert
+     * @throws Exception
+     */
+    void bulkLoad(Stream<?> stream) throws Exception;
+
+    /**
+     * Insert data stream to the database table mapped to the stream item class by the native bulk load protocol of the database.<br>
+     * The data are read by chunkSize data, to which the value generators are applied (or which are inserted by a batch where the
+     * protocol isn't supported). The stream is not closed.
+     *
+     * @param stream
+     *            The data stream to insert
+     * @param chunkSize
+     *            The number of data read at a time
+     * @throws Exception
+     */
+    void bulkLoad(Stream<?> stream, int chunkSize) throws Exception;
+
     /**
      * Update a data row to the database table mapped to the data class.
      *
@@ -466,7 +502,10 @@ public interface Dml {
     void updateBatch(String tableName, List<?> list, String... fieldNames) throws Exception;
 
     /**
-     * Upsert (Insert or update) a data row to the database table mapped to the data class.
+     * Upsert (Insert or update) a data row to the database table mapped to the data class.<br>
+     * Where a single upsert statement is supported, the value generators (@Column generator) are applied before the statement even
+     * if the row is updated, so generated fields are overwritten on the update too. And MySQL updates the row conflicting with any
+     * unique key (on duplicate key update), not only the primary key.
      *
      * @param data
      *            The data to upsert
@@ -475,7 +514,8 @@ public interface Dml {
     void upsert(Object data) throws Exception;
 
     /**
-     * Upsert (Insert or update) data list to the database table mapped to the list item class.
+     * Upsert (Insert or update) data list to the database table mapped to the list item class.<br>
+     * The same caveats as upsert(Object) apply to the value generators and the unique keys of MySQL.
      *
      * @param list
      * @throws Exception
@@ -593,6 +633,32 @@ public interface Dml {
 
     <T> Page<T> selectPage(String tableName, Query query, Class<T> requiredType) throws Exception;
 
+    /**
+     * Select some data from the database table mapped to T class as a stream<br>
+     * Rows are read one by one from a forward-only cursor, so the memory doesn't grow with the number of rows<br>
+     * The stream holds a database connection until it is closed or read to the end, so use it in try-with-resources
+     *
+     * @param <T>
+     *            The object class mapped to a database table
+     * @param clazz
+     *            The object class mapped to a database table
+     * @param condition
+     *            The condition wanted to select
+     * @return The data stream selected
+     * @throws Exception
+     */
+    <T> Stream<T> selectStream(Class<T> clazz, Object condition) throws Exception;
+
+    /**
+     * Call the action for each data selected by selectStream, and close the stream
+     *
+     * @param clazz
+     * @param condition
+     * @param action
+     * @throws Exception
+     */
+    <T> void forEach(Class<T> clazz, Object condition, Consumer<? super T> action) throws Exception;
+
     /**
      * Select some data as the requiredType by the query statement and the paramMap<br>
      * In case of DmlJdbc query means SQL query. In case of DmlHibernate query means HQL query. ...<br>
@@ -618,6 +684,20 @@ public interface Dml {
 
     int selectSizeByQl(String ql, Map<String, ?> paramMap) throws Exception;
 
+    /**
+     * Select some data as the requiredType by the query statement and the paramMap as a stream<br>
+     * The stream holds a database connection until it is closed or read to the end, so use it in try-with-resources
+     *
+     * @param ql
+     * @param paramMap
+     * @param requiredType
+     * @return The data stream selected
+     * @throws Exception
+     */
+    <T> Stream<T> selectStreamByQl(String ql, Map<String, ?> paramMap, Class<T> requiredType) throws Exception;
+
+    <T> void forEachByQl(String ql, Map<String, ?> paramMap, Class<T> requiredType, Consumer<? super T> action) throws Exception;
+
     /**
      * Select some data as the requiredType by the query statement (which is in the path) and the paramMap<br>
      * The path means classpath or filepath<br>
@@ -667,6 +747,8 @@ public interface Dml {
 
     int selectSizeBySql(String sql, Map<String, ?> paramMap) throws Exception;
 
+    <T> Stream<T> selectStreamBySql(String sql, Map<String, ?> paramMap, Class<T> requiredType) throws Exception;
+
     /**
      * Select some data as the requiredType by the query statement (SQL query) and the paramMap<br>
      * The path means classpath or filepath
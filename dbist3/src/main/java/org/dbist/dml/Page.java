@@ -40,6 +40,10 @@ public class Page<T> {
     private int totalSize;
     @JsonProperty("items")
     private List<T> list;
+    @JsonProperty("next")
+    private String nextToken;
+    @JsonProperty("hasNext")
+    private Boolean hasNext;
 
     public int getIndex() {
         return index;
@@ -96,4 +100,30 @@ public class Page<T> {
     public void setList(List<T> list) {
         this.list = list;
     }
+
+    /**
+     * Continuation token of keyset pagination to get the next page by Query.setSeekToken, or null if this is the last page.
+     *
+     * @return
+     */
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public void setNextToken(String nextToken) {
+        this.nextToken = nextToken;
+    }
+
+    /**
+     * Whether the next page exists, which is set when the total size is not counted (Query.COUNT_NONE).
+     *
+     * @return
+     */
+    public Boolean getHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(Boolean hasNext) {
+        this.hasNext = hasNext;
+    }
 }
@@ -25,6 +25,13 @@ import net.sf.common.util.ValueUtils;
  * @since 2011. 6. 2. (version 0.0.1)
  */
 public class Query extends Filters {
+    /**
+     * Count modes of selectPage
+     */
+    public static final String COUNT_SEPARATE = "separate";
+    public static final String COUNT_WINDOW = "window";
+    public static final String COUNT_NONE = "none";
+
     private int pageIndex;
     private int pageSize;
     private int firstResultIndex;
@@ -35,6 +42,12 @@ public class Query extends Filters {
     private List<String> group;
     private List<Order> order;
     private Lock lock;
+    private List<?> seek;
+    private String seekToken;
+    private String countMode;
+    private List<String> fetch;
+    private String partitionField;
+    private int partitionCount;
 
     public Query() {
         super();
@@ -229,4 +242,112 @@ public class Query extends Filters {
     public void setLock(Lock lock) {
         this.lock = lock;
     }
+
+    public List<?> getSeek() {
+        return seek;
+    }
+
+    /**
+     * Keyset pagination: select the pageSize rows after these values of the order fields (pageIndex is ignored).<br>
+     * The order should end with a unique field like the primary key.
+     *
+     * @param seek
+     *            The order field values of the last row of the previous page
+     */
+    public void setSeek(List<?> seek) {
+        this.seek = seek;
+    }
+
+    public Query addSeek(Object... seek) {
+        if (ValueUtils.isEmpty(seek))
+            return this;
+        List<Object> list = new ArrayList<Object>();
+        if (this.seek != null)
+            list.addAll(this.seek);
+        for (Object value : seek)
+            list.add(value);
+        this.seek = list;
+        return this;
+    }
+
+    public String getSeekToken() {
+        return seekToken;
+    }
+
+    /**
+     * Keyset pagination by the continuation token of the previous Page (Page.getNextToken()).
+     *
+     * @param seekToken
+     */
+    public void setSeekToken(String seekToken) {
+        this.seekToken = seekToken;
+    }
+
+    public String getCountMode() {
+        return countMode;
+    }
+
+    /**
+     * How selectPage counts the total size (null means the default of the Dml)<br>
+     * COUNT_SEPARATE: another count query<br>
+     * COUNT_WINDOW: count(*) over() in the page query where window functions are supported, or another count query<br>
+     * COUNT_NONE: no count, Page.hasNext tells whether the next page exists
+     *
+     * @param countMode
+     */
+    public void setCountMode(String countMode) {
+        this.countMode = countMode;
+    }
+
+    public List<String> getFetch() {
+        return fetch;
+    }
+
+    /**
+     * Child entities to be loaded for all the selected entities at once (by in conditions, not by a query per entity).
+     *
+     * @param fetch
+     *            The dataProperty of @ChildEntity, or the field of the child entities
+     */
+    public void setFetch(List<String> fetch) {
+        this.fetch = fetch;
+    }
+
+    public Query addFetch(String... fetch) {
+        if (ValueUtils.isEmpty(fetch))
+            return this;
+        if (this.fetch == null)
+            this.fetch = new ArrayList<String>();
+        for (String f : fetch)
+            this.fetch.add(f);
+        return this;
+    }
+
+    public String getPartitionField() {
+        return partitionField;
+    }
+
+    /**
+     * Parallel partitioned scan: the range of this numeric or date field is split into partitionCount partitions,
+     * each of which is selected on its own connection, and the results are merged (in the order if it is set).<br>
+     * The order must start with the partition field, or else consist of decimal, date or numeric primary key fields only.<br>
+     * It is ignored with pagination, group, lock, seek or in a transaction.
+     *
+     * @param partitionField
+     */
+    public void setPartitionField(String partitionField) {
+        this.partitionField = partitionField;
+    }
+
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    public void setPartitionCount(int partitionCount) {
+        this.partitionCount = partitionCount;
+    }
+
+    public boolean isSeek() {
+        return seek != null || !ValueUtils.isEmpty(seekToken);
+    }
 }
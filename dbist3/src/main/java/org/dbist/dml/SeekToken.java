@@ -0,0 +1,103 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import org.dbist.exception.DbistRuntimeException;
+
+import net.sf.common.util.ValueUtils;
+
+/**
+ * Continuation token of keyset pagination, which holds the order field values of the last row of a page.<br>
+ * Values are written as text and read back as the field types, so the token can be passed to and from clients.
+ */
+public class SeekToken {
+
+    /**
+     * @param values
+     *            The order field values of the last row
+     * @return The URL safe token
+     */
+    public static String encode(List<?> values) {
+        StringBuffer buf = new StringBuffer();
+        for (Object value : values) {
+            if (value == null)
+                throw new DbistRuntimeException("Seek value cannot be null.");
+            String str = toString(value);
+            buf.append(str.length()).append(':').append(str);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buf.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param token
+     *            The token made by encode method
+     * @param types
+     *            The order field types
+     * @return The order field values
+     */
+    public static List<Object> decode(String token, List<Class<?>> types) {
+        List<Object> values = new ArrayList<>(types.size());
+        try {
+            String str = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int index = 0;
+            for (Class<?> type : types) {
+                int colonIndex = str.indexOf(':', index);
+                int length = Integer.parseInt(str.substring(index, colonIndex));
+                index = colonIndex + 1 + length;
+                values.add(toValue(str.substring(colonIndex + 1, index), type));
+            }
+            if (index != str.length())
+                throw new IllegalArgumentException("Unexpected length");
+        } catch (RuntimeException e) {
+            throw new DbistRuntimeException("Invalid seek token: " + token, e);
+        }
+        return values;
+    }
+
+    private static String toString(Object value) {
+        if (value instanceof Timestamp)
+            return ((Timestamp) value).getTime() + "." + ((Timestamp) value).getNanos();
+        if (value instanceof Date)
+            return Long.toString(((Date) value).getTime());
+        if (value instanceof BigDecimal)
+            return ((BigDecimal) value).toPlainString();
+        return value.toString();
+    }
+
+    private static Object toValue(String str, Class<?> type) {
+        if (Date.class.isAssignableFrom(type)) {
+            int dotIndex = str.indexOf('.');
+            long time = Long.parseLong(dotIndex < 0 ? str : str.substring(0, dotIndex));
+            if (java.sql.Date.class.equals(type))
+                return new java.sql.Date(time);
+            Timestamp timestamp = new Timestamp(time);
+            if (dotIndex > -1)
+                timestamp.setNanos(Integer.parseInt(str.substring(dotIndex + 1)));
+            return timestamp;
+        }
+        if (type.equals(String.class))
+            return str;
+        return ValueUtils.toRequiredType(str, type);
+    }
+}
@@ -17,28 +17,61 @@ package org.dbist.dml.impl;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.io.File;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.commons.collections.map.LRUMap;
 import org.apache.commons.collections.map.ListOrderedMap;
 import org.dbist.DbistConstants;
+import org.dbist.annotation.ChildEntity;
 import org.dbist.annotation.Ignore;
+import org.dbist.annotation.MasterDetailType;
 import org.dbist.annotation.PrimaryKey;
 import org.dbist.annotation.Relation;
+import org.dbist.cache.EntityCache;
 import org.dbist.dml.AbstractDml;
 import org.dbist.dml.Dml;
 import org.dbist.dml.Filter;
@@ -47,6 +80,14 @@ import org.dbist.dml.Lock;
 import org.dbist.dml.Order;
 import org.dbist.dml.Page;
 import org.dbist.dml.Query;
+import org.dbist.dml.SeekToken;
+import org.dbist.dml.jdbc.AbstractQueryMapper;
+import org.dbist.dml.jdbc.BulkLoader;
+import org.dbist.dml.jdbc.CompiledRowMapper;
+import org.dbist.dml.jdbc.CursorIterator;
+import org.dbist.dml.jdbc.DefaultSqlResourceRepository;
+import org.dbist.dml.jdbc.EntitySnapshotMap;
+import org.dbist.dml.jdbc.PositionalSql;
 import org.dbist.dml.jdbc.QueryMapper;
 import org.dbist.dml.jdbc.QueryMapperCassandra;
 import org.dbist.dml.jdbc.QueryMapperDb2;
@@ -55,21 +96,38 @@ import org.dbist.dml.jdbc.QueryMapperMysql;
 import org.dbist.dml.jdbc.QueryMapperOracle;
 import org.dbist.dml.jdbc.QueryMapperPostgresql;
 import org.dbist.dml.jdbc.QueryMapperSqlserver;
+import org.dbist.dml.jdbc.SqlPlan;
+import org.dbist.dml.jdbc.SqlPlan.Binding;
+import org.dbist.dml.jdbc.SqlResourceRepository;
 import org.dbist.exception.DataNotFoundException;
 import org.dbist.exception.DbistRuntimeException;
+import org.dbist.exception.OptimisticLockException;
 import org.dbist.metadata.Column;
+import org.dbist.metadata.MetadataSnapshot;
 import org.dbist.metadata.Sequence;
 import org.dbist.metadata.Table;
+import org.dbist.metadata.TableSnapshot;
+import org.dbist.metadata.TableSnapshot.ColumnEntry;
+import org.dbist.metadata.TableSnapshot.SequenceEntry;
+import org.dbist.util.ReflectionUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.dao.DataAccessException;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
 import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
 import org.springframework.jdbc.core.simple.SimpleJdbcCall;
+import org.springframework.jdbc.core.support.AbstractSqlTypeValue;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 
@@ -80,11 +138,10 @@ import javassist.CtField;
 import javassist.NotFoundException;
 import net.sf.common.util.Closure;
 import net.sf.common.util.ReflectionUtils;
-import net.sf.common.util.ResourceUtils;
 import net.sf.common.util.SyncCtrlUtils;
 import net.sf.common.util.ValueUtils;
 
-public class DmlJdbc extends AbstractDml implements Dml {
+public class DmlJdbc extends AbstractDml implements Dml, DisposableBean {
 
     /**
      * Logger
@@ -121,10 +178,25 @@ public class DmlJdbc extends AbstractDml implements Dml {
     private JdbcOperations jdbcOperations;
     private NamedParameterJdbcOperations namedParameterJdbcOperations;
     private int maxSqlByPathCacheSize = 1000;
+    private SqlResourceRepository sqlResourceRepository;
+    private Map<String, EntityCache> entityCacheMap;
+    private int maxSqlPlanCacheSize = 1000;
     private int defaultLockTimeout = -1;
     private boolean reservedWordTolerated;
     private boolean alwaysWithNoLock;
     private QueryMapper queryMapper;
+    private String warmUpBasePackage;
+    private int warmUpThreadCount = Runtime.getRuntime().availableProcessors();
+    private int partitionThreadCount = Runtime.getRuntime().availableProcessors();
+    private ExecutorService partitionExecutor;
+    private boolean partitionExecutorOwned;
+    private int streamFetchSize = 1000;
+    private int batchSize = 1000;
+    private boolean multiRowInsert;
+    private boolean dirtyCheckingEnabled;
+    private String pageCountMode = Query.COUNT_SEPARATE;
+    private String metadataSnapshotDir;
+    private int metadataSnapshotRevalidationDelay = 60;
 
     @SuppressWarnings("unchecked")
     @Override
@@ -149,7 +221,11 @@ public class DmlJdbc extends AbstractDml implements Dml {
         if (getQueryMapper() == null) {
             switch (getDbType()) {
                 case DbistConstants.MYSQL:
-                    setQueryMapper(new QueryMapperMysql());
+                    QueryMapperMysql queryMapperMysql = new QueryMapperMysql();
+                    try (Connection con = getDataSource().getConnection()) {
+                        queryMapperMysql.setSupportedWindowFunction(con.getMetaData().getDatabaseMajorVersion() >= 8);
+                    }
+                    setQueryMapper(queryMapperMysql);
                     columnAliasRuleForMapKey = COLUMNALIASRULE_LOWERCASE;
                     break;
                 case DbistConstants.POSTGRESQL:
@@ -184,17 +260,417 @@ public class DmlJdbc extends AbstractDml implements Dml {
             throw new IllegalArgumentException("Unsupported columnAliasRule: ");
         columnAliasRule = COLUMNALIASRULE_LIST.indexOf(columnAliasRuleForMapKey);
 
-        if (maxSqlByPathCacheSize > 0)
-            sqlByPathCache = Collections.synchronizedMap(new LRUMap(maxSqlByPathCacheSize));
+        if (sqlResourceRepository == null) {
+            DefaultSqlResourceRepository repository = new DefaultSqlResourceRepository();
+            repository.setMaxSize(maxSqlByPathCacheSize);
+            sqlResourceRepository = repository;
+        }
+        sqlResourceRepository.init(getDbType());
+        if (maxSqlPlanCacheSize > 0)
+            sqlPlanCache = Collections.synchronizedMap(new LRUMap(maxSqlPlanCacheSize));
         if (debug)
             logger.debug("dml loaded (dbType: " + getDbType() + ")");
+
+        if (!ValueUtils.isEmpty(metadataSnapshotDir))
+            loadMetadataSnapshot();
+
+        if (!ValueUtils.isEmpty(warmUpBasePackage))
+            warmUp(warmUpBasePackage);
+
+        if (metadataSnapshot != null && metadataSnapshotRevalidationDelay >= 0)
+            metadataSnapshotExecutor.schedule(this::revalidateMetadataSnapshot, metadataSnapshotRevalidationDelay, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Resolve table metadata of all @Table entities under the base package(s) (comma separated) in parallel.
+     *
+     * @param basePackage
+     */
+    public void warmUp(String basePackage) {
+        warmUp(ReflectionUtil.scanEntity(basePackage, true));
+    }
+
+    /**
+     * Resolve table metadata of the classes in parallel, so that the first requests don't pay for the catalog queries.<br>
+     * Failures are only logged, getTable will throw them again when the class is used.
+     *
+     * @param classes
+     */
+    public void warmUp(Collection<Class<?>> classes) {
+        if (ValueUtils.isEmpty(classes))
+            return;
+
+        long start = System.currentTimeMillis();
+        int threadCount = Math.max(1, Math.min(warmUpThreadCount, classes.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "dbist-warmup-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            Map<Class<?>, Future<Table>> futureMap = new LinkedHashMap<>();
+            for (final Class<?> clazz : classes)
+                futureMap.put(clazz, executor.submit(() -> getTable(clazz)));
+            for (Class<?> clazz : futureMap.keySet()) {
+                try {
+                    futureMap.get(clazz).get();
+                } catch (ExecutionException e) {
+                    logger.warn("Couldn't warm up table metadata of " + clazz.getName() + ": " + e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        logger.info("Warmed up table metadata of " + classes.size() + " classes in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    private MetadataSnapshot metadataSnapshot;
+    private File metadataSnapshotFile;
+    private ScheduledExecutorService metadataSnapshotExecutor;
+    private final AtomicBoolean metadataSnapshotSaveScheduled = new AtomicBoolean();
+
+    /**
+     * Load the metadata snapshot of this datasource and domain(s) from metadataSnapshotDir.
+     */
+    private void loadMetadataSnapshot() throws SQLException {
+        String url;
+        try (Connection con = getDataSource().getConnection()) {
+            url = con.getMetaData().getURL();
+        }
+        String key = MetadataSnapshot.toKey(getDbType(), url, domainList);
+        metadataSnapshotFile = new File(metadataSnapshotDir, "dbist-metadata-" + key + ".ser");
+        metadataSnapshot = MetadataSnapshot.load(metadataSnapshotFile, key);
+        metadataSnapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dbist-metadata-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Loaded metadata snapshot of " + metadataSnapshot.size() + " classes: " + metadataSnapshotFile);
+    }
+
+    /**
+     * Save the metadata snapshot a moment later, so that tables resolved together are saved at once.
+     */
+    private void scheduleMetadataSnapshotSave() {
+        if (metadataSnapshotExecutor != null && metadataSnapshotSaveScheduled.compareAndSet(false, true)) {
+            metadataSnapshotExecutor.schedule(() -> {
+                metadataSnapshotSaveScheduled.set(false);
+                metadataSnapshot.save(metadataSnapshotFile);
+            }, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Compare the metadata snapshot with the catalog, and evict the tables of which catalog or class is changed.<br>
+     * It runs in the background metadataSnapshotRevalidationDelay seconds after the start up.
+     */
+    public void revalidateMetadataSnapshot() {
+        if (metadataSnapshot == null)
+            return;
+
+        long start = System.currentTimeMillis();
+        List<String> staleList = new ArrayList<>();
+        for (String className : metadataSnapshot.getClassNameList()) {
+            TableSnapshot tableSnapshot = metadataSnapshot.get(className);
+            TableSnapshot current = null;
+            try {
+                current = readTableSnapshot(ClassUtils.forName(className, null));
+            } catch (Exception | LinkageError e) {
+                // removed class or table
+            }
+            if (tableSnapshot == null || tableSnapshot.equals(current))
+                continue;
+            if (current == null)
+                metadataSnapshot.remove(className);
+            else
+                metadataSnapshot.put(className, current);
+            staleList.add(className);
+        }
+
+        if (!staleList.isEmpty()) {
+            // The tables linking an evicted table by @Relation columns refer to its metadata, so those tables are evicted too.
+            Set<String> evictedSet = new LinkedHashSet<>(staleList);
+            boolean evicted = true;
+            while (evicted) {
+                evicted = false;
+                for (Table table : tableByClassCache.values()) {
+                    if (!evictedSet.contains(table.getClazz().getName()) && !isLinking(table, evictedSet))
+                        continue;
+                    tableByClassCache.remove(table.getClazz());
+                    evictedSet.add(table.getClazz().getName());
+                    evicted = true;
+                }
+            }
+            removeSqlPlans(evictedSet);
+            logger.info("Evicted stale table metadata of " + mapOr(new ArrayList<>(evictedSet)));
+        }
+        metadataSnapshot.save(metadataSnapshotFile);
+        logger.info("Revalidated metadata snapshot of " + metadataSnapshot.size() + " classes in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * Remove the SQL plans of the classes, which are keyed by kind|domain.table|class|...
+     */
+    private void removeSqlPlans(Set<String> classNameSet) {
+        if (sqlPlanCache == null)
+            return;
+        synchronized (sqlPlanCache) {
+            for (Iterator<String> i = sqlPlanCache.keySet().iterator(); i.hasNext();) {
+                if (classNameSet.contains(i.next().split("\\|", 4)[2]))
+                    i.remove();
+            }
+        }
+    }
+
+    /**
+     * Whether the table links any of the classes by @Relation columns.
+     */
+    private static boolean isLinking(Table table, Set<String> classNameSet) {
+        if (!table.containsLinkedTable())
+            return false;
+        for (Column column : table.getColumnList()) {
+            if (column.getRelation() != null && classNameSet.contains(column.getField().getType().getName()))
+                return true;
+        }
+        return false;
     }
 
     public void clear() {
         logger.info("Clearing DmlJdbc bean: " + getBeanName() + "...");
         classFieldCache.clear();
         classByTableNameCache.clear();
+        for (Table table : tableByClassCache.values()) {
+            if (table.getEntityCache() != null)
+                table.getEntityCache().clear();
+        }
         tableByClassCache.clear();
+        sequenceNameSetByDomainCache.clear();
+        if (sqlPlanCache != null)
+            sqlPlanCache.clear();
+        if (sqlResourceRepository != null)
+            sqlResourceRepository.clear();
+        if (metadataSnapshot != null) {
+            metadataSnapshot.clear();
+            metadataSnapshotFile.delete();
+        }
+    }
+
+    public <T> T select(T data) throws Exception {
+        ValueUtils.assertNotNull("data", data);
+        Table table = getTable(data);
+        if (table.getEntityCache() == null)
+            return super.select(data);
+        return selectByPkQuery(table, toPkQuery(data.getClass(), data));
+    }
+
+    public <T> T select(Class<T> clazz, Object... pkCondition) throws Exception {
+        ValueUtils.assertNotNull("clazz", clazz);
+        ValueUtils.assertNotEmpty("pkCondition", pkCondition);
+        Table table = getTable(clazz);
+        if (table.getEntityCache() == null)
+            return super.select(clazz, pkCondition);
+        return selectByPkQuery(table, toPkQuery(clazz, pkCondition));
+    }
+
+    /**
+     * Select through the entity cache of the table. Copies are cached and returned, so the cached entities are not changed by
+     * the callers.<br>
+     * The cache is bypassed in a transaction which has changed the table, until the transaction is completed.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T selectByPkQuery(Table table, Query query) throws Exception {
+        EntityCache cache = table.getEntityCache();
+        List<Object> key = toEntityCacheKey(table, query);
+        if (key == null || TransactionSynchronizationManager.hasResource(cache))
+            return (T) select(selectList(table.getClazz(), query));
+
+        Object cached = cache.get(key);
+        if (cached != null)
+            return (T) snapshot(table, copyEntity(table, cached));
+        long generation = cache.getGeneration();
+        T data = (T) select(selectList(table.getClazz(), query));
+        // Not cached if the key doesn't match exactly (e.g. case insensitive collation)
+        if (data != null && key.equals(toEntityCacheKey(table, data)))
+            cache.put(key, copyEntity(table, data), generation);
+        return data;
+    }
+
+    /**
+     * The primary key values of the query converted to the field types, or null if the query has other conditions.
+     */
+    private static List<Object> toEntityCacheKey(Table table, Query query) {
+        String[] pkFieldNames = table.getPkFieldNames();
+        List<Filter> filterList = query.getFilter();
+        if (filterList == null || filterList.size() != pkFieldNames.length || !ValueUtils.isEmpty(query.getFilters())
+            || !ValueUtils.isEmpty(query.getSelect()) || !ValueUtils.isEmpty(query.getUnselect()) || !ValueUtils.isEmpty(query.getGroup())
+            || query.getLock() != null || Filters.OPERATOR_OR.equalsIgnoreCase(query.getOperator()))
+            return null;
+
+        List<String> pkFieldNameList = Arrays.asList(pkFieldNames);
+        Object[] values = new Object[pkFieldNames.length];
+        try {
+            for (Filter filter : filterList) {
+                int index = pkFieldNameList.indexOf(filter.getLeftOperand());
+                List<?> rightOperand = filter.getRightOperand();
+                if (index == -1 || values[index] != null || !"=".equals(filter.getOperator()) || !filter.isCaseSensitive()
+                    || rightOperand == null || rightOperand.size() != 1 || rightOperand.get(0) == null)
+                    return null;
+                values[index] = ValueUtils.toRequiredType(rightOperand.get(0), table.getField(pkFieldNames[index]).getType());
+            }
+        } catch (RuntimeException e) {
+            return null;
+        }
+        return Arrays.asList(values);
+    }
+
+    private static List<Object> toEntityCacheKey(Table table, Object data) throws Exception {
+        List<Object> key = new ArrayList<>();
+        for (String fieldName : table.getPkFieldNames())
+            key.add(table.getField(fieldName).get(data));
+        return key;
+    }
+
+    /**
+     * Deep copy of the entity. Dates and arrays are cloned, and the linked entities of @Relation columns are copied too.
+     */
+    private static Object copyEntity(Table table, Object data) throws Exception {
+        Object copy = newInstance(data.getClass());
+        for (Column column : table.getColumnList()) {
+            Object value = column.getField().get(data);
+            if (value != null && column.getRelation() != null)
+                value = copyEntity(column.getTable(), value);
+            column.getField().set(copy, copyValue(value));
+        }
+        return copy;
+    }
+
+    /**
+     * Copy of the value which can be changed in place (Date, byte[] and Object[]), or else the value itself.
+     */
+    private static Object copyValue(Object value) {
+        if (value instanceof Date)
+            return ((Date) value).clone();
+        if (value instanceof byte[])
+            return ((byte[]) value).clone();
+        if (value instanceof Object[])
+            return ((Object[]) value).clone();
+        return value;
+    }
+
+    private static final Object ALL_KEYS = new Object();
+
+    /**
+     * Evict the entities of the list (or all the entities if the list is null) from the entity caches of every class mapped to
+     * the same table, and all the entities from the entity caches of the classes linking the table by @Relation columns.
+     */
+    private void evictEntityCache(Table table, List<?> list) throws Exception {
+        List<Table> tableList = new ArrayList<>(tableByClassCache.values());
+        if (!tableList.contains(table))
+            tableList.add(table);
+        for (Table cachedTable : tableList) {
+            if (cachedTable.getEntityCache() == null)
+                continue;
+            if (isSameTable(cachedTable, table))
+                evictEntityCache(cachedTable.getEntityCache(), toEntityCacheKeySet(cachedTable, table, list));
+            else if (isLinking(cachedTable, table))
+                evictEntityCache(cachedTable.getEntityCache(), Collections.singleton(ALL_KEYS));
+        }
+    }
+
+    private static boolean isSameTable(Table table, Table other) {
+        return table == other || (table.getDomain().equalsIgnoreCase(other.getDomain()) && table.getName().equalsIgnoreCase(other.getName()));
+    }
+
+    private static boolean isLinking(Table table, Table linkedTable) {
+        if (!table.containsLinkedTable())
+            return false;
+        for (Column column : table.getColumnList()) {
+            if (column.getRelation() != null && isSameTable(column.getTable(), linkedTable))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * The entity cache keys of the cached table for the data of the written table, which is mapped to the same table by another
+     * class possibly. All the keys if the list is null or the primary key columns don't match.
+     */
+    private static Set<Object> toEntityCacheKeySet(Table cachedTable, Table table, List<?> list) throws Exception {
+        Set<Object> keySet = new HashSet<>();
+        if (list == null) {
+            keySet.add(ALL_KEYS);
+            return keySet;
+        }
+        if (cachedTable == table) {
+            for (Object data : list)
+                keySet.add(toEntityCacheKey(table, data));
+            return keySet;
+        }
+        try {
+            for (Object data : list) {
+                List<Object> key = new ArrayList<>();
+                for (String fieldName : cachedTable.getPkFieldNames()) {
+                    Field field = cachedTable.getField(fieldName);
+                    Column column = table.getColumn(cachedTable.getColumnByFieldName(fieldName).getName());
+                    if (column == null) {
+                        keySet.add(ALL_KEYS);
+                        return keySet;
+                    }
+                    key.add(ValueUtils.toRequiredType(column.getField().get(data), field.getType()));
+                }
+                keySet.add(key);
+            }
+        } catch (RuntimeException e) {
+            keySet.add(ALL_KEYS);
+        }
+        return keySet;
+    }
+
+    /**
+     * Evict the keys from the entity cache.<br>
+     * In a transaction, they are evicted again after the completion, so that the values read before the commit don't stay.
+     */
+    private static void evictEntityCache(final EntityCache cache, Set<Object> keySet) {
+        removeEntityCacheKeys(cache, keySet);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+        @SuppressWarnings("unchecked")
+        Set<Object> evictedKeySet = (Set<Object>) TransactionSynchronizationManager.getResource(cache);
+        if (evictedKeySet == null) {
+            final Set<Object> _evictedKeySet = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(cache, _evictedKeySet);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(cache);
+                    removeEntityCacheKeys(cache, _evictedKeySet);
+                }
+            });
+            evictedKeySet = _evictedKeySet;
+        }
+        evictedKeySet.addAll(keySet);
+    }
+
+    private static void removeEntityCacheKeys(EntityCache cache, Set<Object> keySet) {
+        if (keySet.contains(ALL_KEYS)) {
+            cache.clear();
+            return;
+        }
+        for (Object key : keySet)
+            cache.remove(key);
+    }
+
+    private void evictEntityCaches() {
+        for (Table table : tableByClassCache.values()) {
+            if (table.getEntityCache() != null)
+                evictEntityCache(table.getEntityCache(), Collections.singleton(ALL_KEYS));
+        }
     }
 
     public void insert(Object data) throws Exception {
@@ -218,19 +694,155 @@ public class DmlJdbc extends AbstractDml implements Dml {
         Table table = getTable(data);
         doBeforeInsert(data, table);
         String sql = table.getInsertSql(fieldNames);
-        Map<String, Object> paramMap = toParamMap(table, data, fieldNames);
-        updateBySql(sql, paramMap);
+        updateBySql(table, sql, data);
     }
 
     private <T> void _insertBatch(List<T> list, String... fieldNames) throws Exception {
         if (ValueUtils.isEmpty(list))
             return;
         Table table = getTable(list.get(0));
-        doBeforeInsertBatch(list, table);
         String sql = table.getInsertSql(fieldNames);
-        fieldNames = toFieldNamesForUpdate(table, fieldNames);
-        List<Map<String, ?>> paramMapList = toParamMapList(table, list, fieldNames);
-        updateBatchBySql(sql, paramMapList);
+        if (multiRowInsert)
+            list = insertBatchByMultiRow(table, sql, list);
+        updateBatchBySql(table, sql, list, true);
+    }
+
+    /**
+     * Insert the rows of the list by multi-row insert statements of the same size, as many as the bind parameter limit and batchSize allow.
+     *
+     * @return The rest of the list which is not enough for a statement
+     */
+    private <T> List<T> insertBatchByMultiRow(Table table, String sql, List<T> list) throws Exception {
+        List<String> nameList = new ArrayList<>();
+        Matcher matcher = AbstractQueryMapper.PATTERN_PARAM.matcher(sql.substring(sql.indexOf(" values(")));
+        while (matcher.find())
+            nameList.add(matcher.group(1));
+        int rowCount = Math.min(list.size(), queryMapper.getMaxBindParameterCount() / Math.max(nameList.size(), 1));
+        if (batchSize > 0)
+            rowCount = Math.min(rowCount, batchSize);
+        if (rowCount < 2)
+            return list;
+        String multiRowSql = queryMapper.toMultiRowInsert(sql, rowCount);
+        if (multiRowSql == null)
+            return list;
+
+        Field[] fields = new Field[nameList.size()];
+        String[][] paramNames = new String[rowCount][nameList.size()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = table.getField(nameList.get(i));
+            for (int row = 0; row < rowCount; row++)
+                paramNames[row][i] = nameList.get(i) + "__" + row;
+        }
+
+        // Statements per JDBC batch
+        int size = Math.max(batchSize / rowCount, 1);
+        int multiRowSize = list.size() - list.size() % rowCount;
+        MapSqlParameterSource[] paramSources = new MapSqlParameterSource[size];
+        for (int i = 0; i < multiRowSize; i += size * rowCount) {
+            List<T> subList = list.subList(i, Math.min(i + size * rowCount, multiRowSize));
+            doBeforeInsertBatch(subList, table);
+            int count = subList.size() / rowCount;
+            for (int j = 0; j < count; j++) {
+                if (paramSources[j] == null)
+                    paramSources[j] = new MapSqlParameterSource();
+                for (int row = 0; row < rowCount; row++) {
+                    T data = subList.get(j * rowCount + row);
+                    for (int k = 0; k < fields.length; k++)
+                        paramSources[j].addValue(paramNames[row][k], toParamData(fields[k].get(data)));
+                }
+            }
+            this.namedParameterJdbcOperations.batchUpdate(multiRowSql, count == size ? paramSources : Arrays.copyOf(paramSources, count));
+        }
+        return list.subList(multiRowSize, list.size());
+    }
+
+    public void bulkLoad(List<?> list) throws Exception {
+        if (ValueUtils.isEmpty(list))
+            return;
+        if (!bulkLoad(getTable(list.get(0)), list.iterator(), getBulkLoadChunkSize()))
+            insertBatch(list);
+    }
+
+    public void bulkLoad(Stream<?> stream, int chunkSize) throws Exception {
+        if (chunkSize < 1)
+            throw new DbistRuntimeException("chunkSize must be greater than 0: " + chunkSize);
+        Iterator<?> iterator = stream.iterator();
+        if (!iterator.hasNext())
+            return;
+        Object first = iterator.next();
+        iterator = Stream.<Object> concat(Stream.of(first), StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false))
+            .iterator();
+        if (!bulkLoad(getTable(first), iterator, chunkSize))
+            insertBatch(iterator, chunkSize);
+    }
+
+    /**
+     * batchSize, or 1000 if batchSize is not positive
+     */
+    @Override
+    protected int getBulkLoadChunkSize() {
+        return batchSize > 0 ? batchSize : super.getBulkLoadChunkSize();
+    }
+
+    /**
+     * Send the data by the BulkLoader of the QueryMapper, in the column order of the insert statement of the table.<br>
+     * The value generators are applied by chunkSize data while the driver reads the rows.
+     *
+     * @return false if the bulk load isn't supported by the database or the table (sequences or binary columns)
+     */
+    private boolean bulkLoad(final Table table, final Iterator<?> iterator, final int chunkSize) throws Exception {
+        final BulkLoader bulkLoader = queryMapper.getBulkLoader();
+        if (bulkLoader == null)
+            return false;
+        for (Column column : table.getColumnList()) {
+            if (column.getRelation() != null)
+                continue;
+            if (column.getSequence() != null && !column.getSequence().isAutoIncrement() && !ValueUtils.isEmpty(column.getSequence().getName()))
+                return false;
+            if (!bulkLoader.isSupportedType(column.getField().getType()))
+                return false;
+        }
+
+        final PositionalSql positionalSql = table.getPositionalSql(table.getInsertSql());
+        List<String> columnNameList = new ArrayList<>(positionalSql.getFields().length);
+        for (Field field : positionalSql.getFields())
+            columnNameList.add(appendName(table, new StringBuffer(), table.getColumnByFieldName(field.getName()).getName()).toString());
+        String tableName = appendName(table, new StringBuffer(table.getDomain()).append("."), table.getName()).toString();
+        final String sql = bulkLoader.toSql(tableName, columnNameList);
+
+        final Iterator<Object[]> rowIterator = new Iterator<Object[]>() {
+            private final List<Object> list = new ArrayList<>(chunkSize);
+            private int index;
+
+            public boolean hasNext() {
+                if (index < list.size())
+                    return true;
+                list.clear();
+                index = 0;
+                while (list.size() < chunkSize && iterator.hasNext())
+                    list.add(iterator.next());
+                if (list.isEmpty())
+                    return false;
+                try {
+                    doBeforeInsertBatch(list, table);
+                } catch (Exception e) {
+                    throw new DbistRuntimeException(e);
+                }
+                return true;
+            }
+
+            public Object[] next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return positionalSql.toValues(list.get(index++));
+            }
+        };
+        this.jdbcOperations.execute(new ConnectionCallback<Long>() {
+            public Long doInConnection(Connection con) throws SQLException {
+                return bulkLoader.load(con, sql, rowIterator);
+            }
+        });
+        return true;
     }
 
     public void update(Object data) throws Exception {
@@ -254,11 +866,78 @@ public class DmlJdbc extends AbstractDml implements Dml {
         Table table = getTable(data);
         if (ValueUtils.isEmpty(table.getPkFieldNames()))
             throw new DbistRuntimeException("More than 1 primary key field is required in the class " + table.getClazz().getName() + " to update");
-        String sql = table.getUpdateSql(fieldNames);
-        fieldNames = toFieldNamesForUpdate(table, fieldNames);
-        Map<String, Object> paramMap = toParamMap(table, data, fieldNames);
-        if (updateBySql(sql, paramMap) != 1 && !this.getDbType().equals(DbistConstants.CASSANDRA))
+        assertVersion(table, Collections.singletonList(data));
+        PositionalSql positionalSql = null;
+        if (dirtyCheckingEnabled && ValueUtils.isEmpty(fieldNames)) {
+            Object[] snapshot = table.getEntitySnapshotMap().get(data);
+            if (snapshot != null) {
+                String[] changedFieldNames = toChangedFieldNames(table, data, snapshot);
+                if (changedFieldNames.length == 0)
+                    return;
+                positionalSql = toChangedUpdateSql(table, changedFieldNames);
+            }
+        }
+        if (positionalSql == null)
+            positionalSql = table.getPositionalSql(table.getUpdateSql(fieldNames));
+        int count = updateBySql(positionalSql, data);
+        evictEntityCache(table, Collections.singletonList(data));
+        if (count != 1 && !this.getDbType().equals(DbistConstants.CASSANDRA)) {
+            if (table.getVersionColumn() != null)
+                throw new OptimisticLockException(toOptimisticLockErrorMessage(table, data));
             throw new DataNotFoundException(toNotFoundErrorMessage(table, data, toParamMap(table, data, table.getPkFieldNames())));
+        }
+        increaseVersion(table, Collections.singletonList(data));
+        refreshSnapshots(table, Collections.singletonList(data), fieldNames);
+    }
+
+    private static <T> String toOptimisticLockErrorMessage(Table table, T data) throws Exception {
+        List<String> fieldNameList = new ArrayList<>(Arrays.asList(table.getPkFieldNames()));
+        fieldNameList.add(table.getVersionColumn().getField().getName());
+        StringBuffer buf = new StringBuffer("Data was changed or deleted by another transaction ").append(data.getClass().getName());
+        int i = 0;
+        for (String fieldName : fieldNameList)
+            buf.append(i++ == 0 ? " " : ", ").append(fieldName).append(":").append(table.getField(fieldName).get(data));
+        return buf.toString();
+    }
+
+    /**
+     * Check the version fields of the data of a versioned table, which must be the version read before.
+     */
+    private void assertVersion(Table table, List<?> list) throws Exception {
+        if (table.getVersionColumn() == null)
+            return;
+        Field field = table.getVersionColumn().getField();
+        for (Object data : list) {
+            if (field.get(data) == null)
+                throw new DbistRuntimeException("Version field " + field.getName() + " is required to write the data of " + table.getClazz().getName()
+                    + " managing version: " + toParamMap(table, data, table.getPkFieldNames()));
+        }
+    }
+
+    /**
+     * Check the row counts of a batch of a versioned table. Rows counted as Statement.SUCCESS_NO_INFO are regarded as written.
+     */
+    private static void checkVersion(Table table, List<?> list, int[] counts) throws Exception {
+        if (table.getVersionColumn() == null)
+            return;
+        for (int i = 0; i < counts.length && i < list.size(); i++) {
+            if (counts[i] == 0)
+                throw new OptimisticLockException(toOptimisticLockErrorMessage(table, list.get(i)));
+        }
+    }
+
+    /**
+     * Increase the version fields of the written data as the statement did.
+     */
+    private static void increaseVersion(Table table, List<?> list) throws Exception {
+        if (table.getVersionColumn() == null)
+            return;
+        Field field = table.getVersionColumn().getField();
+        for (Object data : list) {
+            Object version = field.get(data);
+            if (version != null)
+                field.set(data, ValueUtils.toRequiredType(((Number) version).longValue() + 1, field.getType()));
+        }
     }
 
     private static <T> String toNotFoundErrorMessage(Table table, T data, Map<String, ?> paramMap) {
@@ -276,23 +955,176 @@ public class DmlJdbc extends AbstractDml implements Dml {
         if (ValueUtils.isEmpty(table.getPkFieldNames()))
             throw new DbistRuntimeException("More than 1 primary key field is required in the class " + table.getClazz().getName()
                 + " to update batch");
-        String sql = table.getUpdateSql(fieldNames);
-        fieldNames = toFieldNamesForUpdate(table, fieldNames);
-        List<Map<String, ?>> paramMapList = toParamMapList(table, list, fieldNames);
-        updateBatchBySql(sql, paramMapList);
-    }
-
-    private static String[] toFieldNamesForUpdate(Table table, String... fieldNames) {
-        if (ValueUtils.isEmpty(fieldNames))
-            return fieldNames;
-        List<String> fieldNameList = ValueUtils.toList(fieldNames);
-        for (String fieldName : table.getPkFieldNames()) {
-            if (fieldNameList.contains(fieldName))
+        assertVersion(table, list);
+        List<T> updatedList = list;
+        if (dirtyCheckingEnabled && ValueUtils.isEmpty(fieldNames)) {
+            // Grouped by the changed fields, so that each group shares a statement
+            updatedList = new ArrayList<>(list.size());
+            Map<List<String>, List<T>> listByFieldNames = new LinkedHashMap<>();
+            for (T data : list) {
+                Object[] snapshot = table.getEntitySnapshotMap().get(data);
+                List<String> key = snapshot == null ? Collections.<String> emptyList() : Arrays.asList(toChangedFieldNames(table, data, snapshot));
+                if (snapshot != null && key.isEmpty())
+                    continue;
+                List<T> _list = listByFieldNames.get(key);
+                if (_list == null) {
+                    _list = new ArrayList<>();
+                    listByFieldNames.put(key, _list);
+                }
+                _list.add(data);
+            }
+            for (Map.Entry<List<String>, List<T>> entry : listByFieldNames.entrySet()) {
+                PositionalSql positionalSql = toChangedUpdateSql(table, entry.getKey().toArray(new String[entry.getKey().size()]));
+                checkVersion(table, entry.getValue(), updateBatchBySql(table, positionalSql, entry.getValue(), false));
+                updatedList.addAll(entry.getValue());
+            }
+        } else {
+            String sql = table.getUpdateSql(fieldNames);
+            checkVersion(table, list, updateBatchBySql(table, sql, list, false));
+        }
+        evictEntityCache(table, list);
+        increaseVersion(table, updatedList);
+        refreshSnapshots(table, list, fieldNames);
+    }
+
+    /**
+     * Positional form of the update statement of the changed fields (all the fields if empty).<br>
+     * The statements of the changed fields are not cached by the table, since there can be as many as the combinations of the fields.
+     */
+    private static PositionalSql toChangedUpdateSql(Table table, String... changedFieldNames) {
+        String sql = table.getUpdateSql(changedFieldNames);
+        return ValueUtils.isEmpty(changedFieldNames) ? table.getPositionalSql(sql) : PositionalSql.compile(sql, table);
+    }
+
+    /**
+     * Snapshot the column values of the entities for dirty checking, if it is enabled.
+     */
+    private <T> T snapshot(Table table, T data) {
+        if (dirtyCheckingEnabled && data != null)
+            table.getEntitySnapshotMap().put(data, toSnapshot(table, data, null));
+        return data;
+    }
+
+    private void snapshot(Table table, List<?> list) {
+        if (!dirtyCheckingEnabled)
+            return;
+        for (Object data : list)
+            snapshot(table, data);
+    }
+
+    /**
+     * Refresh the snapshots of the tracked entities of the list after they are written.
+     *
+     * @param fieldNames
+     *            The written fields (empty means all the fields)
+     */
+    private void refreshSnapshots(Table table, List<?> list, String... fieldNames) {
+        if (!dirtyCheckingEnabled)
+            return;
+        EntitySnapshotMap entitySnapshotMap = table.getEntitySnapshotMap();
+        for (Object data : list) {
+            Object[] snapshot = entitySnapshotMap.get(data);
+            if (snapshot != null)
+                entitySnapshotMap.put(data, toSnapshot(table, data, ValueUtils.isEmpty(fieldNames) ? null : snapshot, fieldNames));
+        }
+    }
+
+    /**
+     * Column values of the data in the order of the column list. Dates and arrays are copied, since they can be changed in place.
+     *
+     * @param base
+     *            The snapshot to copy the values of the other fields from, or null to take all the fields
+     */
+    private static Object[] toSnapshot(Table table, Object data, Object[] base, String... fieldNames) {
+        List<Column> columnList = table.getColumnList();
+        Object[] snapshot = base == null ? new Object[columnList.size()] : base.clone();
+        List<String> fieldNameList = base == null ? null : Arrays.asList(fieldNames);
+        try {
+            for (int i = 0; i < snapshot.length; i++) {
+                Column column = columnList.get(i);
+                if (column.getRelation() != null || (fieldNameList != null && !fieldNameList.contains(column.getField().getName())))
+                    continue;
+                snapshot[i] = copyValue(column.getField().get(data));
+            }
+        } catch (IllegalAccessException e) {
+            throw new DbistRuntimeException(e);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Names of the non primary key fields of which values are changed from the snapshot.
+     */
+    private static String[] toChangedFieldNames(Table table, Object data, Object[] snapshot) throws Exception {
+        List<Column> columnList = table.getColumnList();
+        List<String> fieldNameList = new ArrayList<>();
+        for (int i = 0; i < snapshot.length; i++) {
+            Column column = columnList.get(i);
+            if (column.getRelation() != null || column.isPrimaryKey() || column == table.getVersionColumn())
                 continue;
-            fieldNameList.add(fieldName);
+            Object value = column.getField().get(data);
+            if (value instanceof BigDecimal && snapshot[i] instanceof BigDecimal ? ((BigDecimal) value).compareTo((BigDecimal) snapshot[i]) != 0
+                : !Objects.deepEquals(value, snapshot[i]))
+                fieldNameList.add(column.getField().getName());
+        }
+        return fieldNameList.toArray(new String[fieldNameList.size()]);
+    }
+
+    public void upsert(Object data) throws Exception {
+        _upsert(data);
+    }
+
+    public void upsertBatch(List<?> list) throws Exception {
+        _upsertBatch(list);
+    }
+
+    public void upsert(Object data, String... fieldNames) throws Exception {
+        _upsert(data, fieldNames);
+    }
+
+    public void upsertBatch(List<?> list, String... fieldNames) throws Exception {
+        _upsertBatch(list, fieldNames);
+    }
+
+    private void _upsert(Object data, String... fieldNames) throws Exception {
+        if (data == null)
+            return;
+        Table table = getTable(data);
+        if (!isSupportedUpsertQuery(table)) {
+            super.upsert(data, fieldNames);
+            return;
+        }
+        doBeforeInsert(data, table);
+        String sql = table.getUpsertSql(fieldNames);
+        updateBySql(table, sql, data);
+        evictEntityCache(table, Collections.singletonList(data));
+    }
+
+    private <T> void _upsertBatch(List<T> list, String... fieldNames) throws Exception {
+        if (ValueUtils.isEmpty(list))
+            return;
+        Table table = getTable(list.get(0));
+        if (!isSupportedUpsertQuery(table)) {
+            super.upsertBatch(list, fieldNames);
+            return;
+        }
+        String sql = table.getUpsertSql(fieldNames);
+        updateBatchBySql(table, sql, list, true);
+        evictEntityCache(table, list);
+    }
+
+    /**
+     * Native upsert needs the primary key values to be bound, so the tables which have sequence columns use select and insert/update.<br>
+     * Versioned tables also use select and insert/update, so that the version is checked.
+     */
+    private boolean isSupportedUpsertQuery(Table table) {
+        if (!queryMapper.isSupportedUpsertQuery() || ValueUtils.isEmpty(table.getPkColumnNameList()) || table.getVersionColumn() != null)
+            return false;
+        for (Column column : table.getColumnList()) {
+            if (column.getSequence() != null)
+                return false;
         }
-        fieldNames = fieldNameList.toArray(new String[fieldNameList.size()]);
-        return fieldNames;
+        return true;
     }
 
     public void delete(Object data) throws Exception {
@@ -300,10 +1132,17 @@ public class DmlJdbc extends AbstractDml implements Dml {
         Table table = getTable(data);
         if (ValueUtils.isEmpty(table.getPkFieldNames()))
             throw new DbistRuntimeException("More than 1 primary key field is required in the class " + table.getClazz().getName() + " to delete");
+        assertVersion(table, Collections.singletonList(data));
         String sql = table.getDeleteSql();
-        Map<String, Object> paramMap = toParamMap(table, data, table.getPkFieldNames());
-        if (updateBySql(sql, paramMap) != 1)
-            throw new DataNotFoundException(toNotFoundErrorMessage(table, data, paramMap));
+        int count = updateBySql(table, sql, data);
+        evictEntityCache(table, Collections.singletonList(data));
+        if (dirtyCheckingEnabled)
+            table.getEntitySnapshotMap().remove(data);
+        if (count != 1) {
+            if (table.getVersionColumn() != null)
+                throw new OptimisticLockException(toOptimisticLockErrorMessage(table, data));
+            throw new DataNotFoundException(toNotFoundErrorMessage(table, data, toParamMap(table, data, table.getPkFieldNames())));
+        }
     }
 
     public void deleteBatch(List<?> list) throws Exception {
@@ -313,29 +1152,55 @@ public class DmlJdbc extends AbstractDml implements Dml {
         if (ValueUtils.isEmpty(table.getPkFieldNames()))
             throw new DbistRuntimeException("More than 1 primary key field is required in the class " + table.getClazz().getName()
                 + " to delete batch");
+        assertVersion(table, list);
         String sql = table.getDeleteSql();
-        List<Map<String, ?>> paramMapList = toParamMapList(table, list, table.getPkFieldNames());
-        updateBatchBySql(sql, paramMapList);
+        checkVersion(table, list, updateBatchBySql(table, sql, list, false));
+        evictEntityCache(table, list);
+        if (dirtyCheckingEnabled) {
+            for (Object data : list)
+                table.getEntitySnapshotMap().remove(data);
+        }
     }
 
-    private int updateBySql(String sql, Map<String, ?> paramMap) {
-        return this.namedParameterJdbcOperations.update(sql, paramMap);
+    /**
+     * Bind the field values of the data to the positional form of the statement directly.
+     */
+    private int updateBySql(Table table, String sql, Object data) {
+        return updateBySql(table.getPositionalSql(sql), data);
     }
 
-    @SuppressWarnings("unchecked")
-    private int[] updateBatchBySql(String sql, List<Map<String, ?>> paramMapList) {
-        return this.namedParameterJdbcOperations.batchUpdate(sql, paramMapList.toArray(new Map[paramMapList.size()]));
+    private int updateBySql(PositionalSql positionalSql, Object data) {
+        return this.jdbcOperations.update(positionalSql.getSql(), positionalSql.toSetter(data));
     }
 
-    private StringBuffer appendName(Table table, StringBuffer buf, String name) {
-        return table.appendName(buf, name);
+    /**
+     * Execute the statement by JDBC batches of batchSize rows.<br>
+     * The rows of a batch are bound to the positional form of the statement just before it is sent, without any parameter map.
+     *
+     * @return The row counts of the rows of the list
+     */
+    private <T> int[] updateBatchBySql(Table table, String sql, List<T> list, boolean insert) throws Exception {
+        return updateBatchBySql(table, table.getPositionalSql(sql), list, insert);
+    }
+
+    private <T> int[] updateBatchBySql(Table table, PositionalSql positionalSql, List<T> list, boolean insert) throws Exception {
+        int[] counts = new int[list.size()];
+        if (list.isEmpty())
+            return counts;
+        Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+        int size = batchSize > 0 ? batchSize : list.size();
+        for (int i = 0; i < list.size(); i += size) {
+            List<T> subList = list.subList(i, Math.min(i + size, list.size()));
+            if (insert)
+                doBeforeInsertBatch(subList, table);
+            int[] subCounts = this.jdbcOperations.batchUpdate(positionalSql.getSql(), positionalSql.toBatchSetter(subList));
+            System.arraycopy(subCounts, 0, counts, i, Math.min(subCounts.length, subList.size()));
+        }
+        return counts;
     }
 
-    private <T> List<Map<String, ?>> toParamMapList(Table table, List<T> list, String... fieldNames) throws Exception {
-        List<Map<String, ?>> paramMapList = new ArrayList<>();
-        for (T data : list)
-            paramMapList.add(toParamMap(table, data, fieldNames));
-        return paramMapList;
+    private StringBuffer appendName(Table table, StringBuffer buf, String name) {
+        return table.appendName(buf, name);
     }
 
     private <T> Map<String, Object> toParamMap(Table table, T data, String... fieldNames) throws Exception {
@@ -359,153 +1224,750 @@ public class DmlJdbc extends AbstractDml implements Dml {
                     + fieldName + "]");
             paramMap.put(fieldName, toParamData(field.get(data)));
         }
-        return paramMap;
+        return paramMap;
+    }
+
+    private static Object toParamData(Object data) {
+        if (data instanceof Character)
+            return data.toString();
+        return data;
+    }
+
+    /**
+     * @return The index of buf where the where clause starts
+     */
+    private int appendFromWhere(Table table, Query query, StringBuffer buf, Map<String, Object> paramMap, Map<String, Column> relColMap) {
+        // Select 필드가 없어도 Reference에 대해서 Join이 실행되도록 수정.
+        // if (relColMap != null && table.containsLinkedTable() && (!ValueUtils.isEmpty(query.getSelect()) || !ValueUtils.isEmpty(query.getUnselect())))
+        if (relColMap != null && table.containsLinkedTable())
+            populateRelColMap(table, query, relColMap);
+
+        // From
+        buf.append(" from ").append(table.getDomain()).append(".");
+        appendName(table, buf, table.getName());
+
+        String str = null;
+        Lock lock = query.getLock();
+
+        if (this.alwaysWithNoLock) {
+            lock = new Lock();
+            lock.setWithNoLock(true);
+        }
+
+        if (lock != null && queryMapper != null) {
+            if (ValueUtils.toBoolean(lock.getWithNoLock(), false)) {
+                str = queryMapper.toWithNoLock(query.getLock());
+            } else {
+                str = queryMapper.toWithLock(query.getLock());
+            }
+
+            if (!ValueUtils.isEmpty(str))
+                buf.append(" ").append(str);
+        }
+
+        if (!ValueUtils.isEmpty(relColMap)) {
+            for (Column col : relColMap.values()) {
+                Table subTab = col.getTable();
+                buf.append(" left outer join ").append(subTab.getDomain()).append(".");
+                appendName(subTab, buf, subTab.getName());
+                if (!subTab.getName().equals(col.getName())) {
+                    buf.append(" ");
+                    appendName(subTab, buf, col.getName());
+                }
+
+                if (!ValueUtils.isEmpty(str))
+                    buf.append(" ").append(str);
+
+                buf.append(" on ");
+                Relation relation = col.getRelation();
+                int i = 0;
+                for (String key : subTab.getPkColumnNameList()) {
+                    appendName(table, buf, table.getName()).append(".");
+                    appendName(table, buf, toColumnName(table, relation.field()[i++])).append(" = ");
+                    appendName(subTab, buf, col.getName()).append(".").append(key);
+                }
+            }
+        }
+
+        // Where
+        int whereIndex = buf.length();
+        appendWhere(buf, table, query, 0, paramMap);
+        return whereIndex;
+    }
+
+    private static final String WHERE = " where ";
+
+    /**
+     * Keyset pagination predicate, which selects the rows after the seek values in the order.<br>
+     * (a, b) &gt; (:a, :b) if row value comparison is supported and all orders have the same direction,
+     * or else a &gt;= :a and (a &gt; :a or (a = :a and (b &gt; :b))).
+     */
+    private void appendSeek(StringBuffer buf, int whereIndex, Table table, Query query, Map<String, Object> paramMap) {
+        if (ValueUtils.isEmpty(query.getOrder()))
+            throw new DbistRuntimeException("Seek requires order. (class: " + table.getClazz() + ")");
+        if (!ValueUtils.isEmpty(query.getGroup()))
+            throw new DbistRuntimeException("Seek cannot be executed with group. (class: " + table.getClazz() + ")");
+
+        List<String> fieldNameList = new ArrayList<>();
+        List<Boolean> ascendingList = new ArrayList<>();
+        for (Order order : query.getOrder()) {
+            for (String fieldName : StringUtils.tokenizeToStringArray(order.getField(), ",")) {
+                fieldNameList.add(fieldName);
+                ascendingList.add(order.isAscending());
+            }
+        }
+
+        List<?> values = toSeekValues(table, query);
+
+        int size = fieldNameList.size();
+        List<String> columnNameList = new ArrayList<>(size);
+        List<String> keyList = new ArrayList<>(size);
+        boolean sameDirection = true;
+        for (int i = 0; i < size; i++) {
+            StringBuffer colBuf = new StringBuffer();
+            if (table.containsLinkedTable())
+                appendName(table, colBuf, table.getName()).append(".");
+            appendName(table, colBuf, toColumnName(table, fieldNameList.get(i)));
+            columnNameList.add(colBuf.toString());
+
+            String key = "__seek" + i;
+            putParam(paramMap, key, toParamData(values.get(i)), null, i, null, null);
+            keyList.add(key);
+            sameDirection &= ascendingList.get(i).equals(ascendingList.get(0));
+        }
+
+        if (buf.length() > whereIndex)
+            buf.insert(whereIndex + WHERE.length(), "(").append(") and ");
+        else
+            buf.append(WHERE);
+
+        if (size > 1 && sameDirection && queryMapper.isSupportedRowValueComparison()) {
+            buf.append("(").append(StringUtils.collectionToDelimitedString(columnNameList, ", ")).append(")");
+            buf.append(ascendingList.get(0) ? " > " : " < ");
+            buf.append("(").append(StringUtils.collectionToDelimitedString(keyList, ", ", ":", "")).append(")");
+            return;
+        }
+
+        // Leading bound lets the database use a range scan of the first order column
+        if (size > 1)
+            buf.append(columnNameList.get(0)).append(ascendingList.get(0) ? " >= :" : " <= :").append(keyList.get(0)).append(" and ");
+        for (int i = 0; i < size; i++) {
+            buf.append("(").append(columnNameList.get(i)).append(ascendingList.get(i) ? " > :" : " < :").append(keyList.get(i));
+            if (i < size - 1)
+                buf.append(" or (").append(columnNameList.get(i)).append(" = :").append(keyList.get(i)).append(" and ");
+        }
+        for (int i = 0; i < size; i++)
+            buf.append(i == 0 ? ")" : "))");
+    }
+
+    /**
+     * The seek values of the query, or the values of its seek token.
+     */
+    private static List<?> toSeekValues(Table table, Query query) {
+        List<String> fieldNameList = new ArrayList<>();
+        for (Order order : query.getOrder()) {
+            for (String fieldName : StringUtils.tokenizeToStringArray(order.getField(), ","))
+                fieldNameList.add(fieldName);
+        }
+
+        List<?> values = query.getSeek();
+        if (values == null) {
+            List<Class<?>> typeList = new ArrayList<>(fieldNameList.size());
+            for (String fieldName : fieldNameList)
+                typeList.add(toColumn(table, fieldName).getField().getType());
+            values = SeekToken.decode(query.getSeekToken(), typeList);
+        }
+        if (values.size() != fieldNameList.size())
+            throw new DbistRuntimeException("Seek values must be as many as the order fields: " + mapOr(fieldNameList));
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i) == null)
+                throw new DbistRuntimeException("Seek value of " + fieldNameList.get(i) + " cannot be null.");
+        }
+        return values;
+    }
+
+    private void populateRelColMap(Table table, Filters filters, Map<String, Column> relColMap) {
+        if (relColMap == null)
+            return;
+
+        if (!ValueUtils.isEmpty(filters.getFilter())) {
+            for (Filter filter : filters.getFilter()) {
+                if (!filter.getLeftOperand().contains("."))
+                    continue;
+
+                String lo = filter.getLeftOperand();
+                String fieldName = lo.substring(0, lo.indexOf('.'));
+                Column column = toColumn(table, fieldName);
+
+                if (column.getRelation() == null)
+                    throw new DbistRuntimeException("filter: " + lo + " is not a joined condition.");
+
+                if (relColMap.containsKey(column.getName()))
+                    continue;
+
+                relColMap.put(column.getName(), column);
+            }
+        }
+
+        if (!ValueUtils.isEmpty(filters.getFilters())) {
+            for (Filters fs : filters.getFilters())
+                populateRelColMap(table, fs, relColMap);
+        }
+    }
+
+    public int selectSize(Class<?> clazz, Object condition) throws Exception {
+        ValueUtils.assertNotNull("clazz", clazz);
+        ValueUtils.assertNotNull("condition", condition);
+
+        final Table table = getTable(clazz);
+        Query query = toQuery(table, condition);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> paramMap = new ListOrderedMap();
+        String sql;
+        Lock lock = query.getLock();
+        try {
+            query.setLock(null);
+            sql = toSql("size", table, query, paramMap, (buf, _paramMap) -> {
+                buf.append("select count(*)");
+                if (ValueUtils.isEmpty(query.getGroup())) {
+                    appendFromWhere(table, query, buf, _paramMap, table.containsLinkedTable() ? new HashMap<>() : null);
+                } else {
+                    buf.append(" from (");
+                    appendSelectSql(buf, _paramMap, table, query, true, true);
+                    buf.append(") grptbl_");
+                }
+            });
+        } finally {
+            query.setLock(lock);
+        }
+
+        return this.namedParameterJdbcOperations.queryForObject(sql, paramMap, Integer.class);
+    }
+
+    public <T> List<T> selectList(final Class<T> clazz, Object condition) throws Exception {
+        return _selectList(clazz, condition, false);
+    }
+
+    public <T> List<T> selectListWithLock(Class<T> clazz, Object condition) throws Exception {
+        return _selectList(clazz, condition, true);
+    }
+
+    public <T> List<T> _selectList(final Class<T> clazz, Object condition, boolean lock) throws Exception {
+        ValueUtils.assertNotNull("clazz", clazz);
+        ValueUtils.assertNotNull("condition", condition);
+
+        final Table table = getTable(clazz);
+        final Query query = toQuery(table, condition);
+        if (!lock && isPartitioned(query)) {
+            List<T> list = selectListByPartition(clazz, table, query);
+            fetch(table, list, query.getFetch());
+            snapshot(table, list);
+            return list;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> paramMap = new ListOrderedMap();
+        String sql = toSelectSql(table, query, lock, paramMap);
+
+        List<T> list;
+        if (query.isSeek())
+            list = query(sql, paramMap, clazz, table, 0, 0, 0, query.getPageSize());
+        else
+            list = query(sql, paramMap, clazz, table, query.getPageIndex(), query.getPageSize(), query.getFirstResultIndex(),
+                query.getMaxResultSize());
+        fetch(table, list, query.getFetch());
+        snapshot(table, list);
+        return list;
+    }
+
+    /**
+     * Partitions run on other connections, which don't see the changes of the current transaction.
+     */
+    private static boolean isPartitioned(Query query) {
+        return query.getPartitionCount() > 1 && !ValueUtils.isEmpty(query.getPartitionField()) && query.getLock() == null && !query.isSeek()
+            && ValueUtils.isEmpty(query.getGroup()) && query.getPageSize() <= 0 && query.getMaxResultSize() <= 0
+            && query.getFirstResultIndex() <= 0 && !TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    /**
+     * Select the min and max of the partition field, and select the rows of each range in parallel by partitionExecutor.<br>
+     * Rows of which partition field is null are selected by another partition, which is placed by the null ordering of the
+     * database. The partitions are concatenated if the query is ordered by the partition field first, or else merged by the order
+     * fields, which must be compared by Java the same as the database (see toComparator).
+     */
+    private <T> List<T> selectListByPartition(final Class<T> clazz, final Table table, final Query query) throws Exception {
+        String fieldName = query.getPartitionField();
+        if (table.getField(fieldName) == null)
+            throw new DbistRuntimeException("Couldn't find the partition field " + fieldName + " of " + clazz.getName());
+        List<Order> orderList = query.getOrder();
+        boolean partitionOrder = !ValueUtils.isEmpty(orderList) && fieldName.equals(orderList.get(0).getField());
+        Comparator<T> comparator = ValueUtils.isEmpty(orderList) || partitionOrder ? null
+            : toComparator(table, orderList, isNullsFirst(true), isNullsFirst(false));
+
+        // Range of the partition field
+        StringBuffer colBuf = new StringBuffer();
+        if (table.containsLinkedTable())
+            appendName(table, colBuf, table.getName()).append(".");
+        appendName(table, colBuf, toColumnName(table, fieldName));
+        final String columnName = colBuf.toString();
+        @SuppressWarnings("unchecked")
+        Map<String, Object> paramMap = new ListOrderedMap();
+        String sql = toSql("range " + fieldName, table, query, paramMap, (buf, _paramMap) -> {
+            buf.append("select min(").append(columnName).append(") min_, max(").append(columnName).append(") max_");
+            appendFromWhere(table, query, buf, _paramMap, table.containsLinkedTable() ? new HashMap<>() : null);
+        });
+        Map<String, Object> range = this.namedParameterJdbcOperations.queryForMap(sql, paramMap);
+        Object min = range.get("min_");
+        Object max = range.get("max_");
+
+        List<Object> boundList = min == null ? Collections.emptyList() : toPartitionBoundList(min, max, query.getPartitionCount());
+        List<Future<List<T>>> futureList = new ArrayList<>(boundList.size() + 1);
+        try {
+            for (int i = 0; i < boundList.size(); i++)
+                futureList.add(submitPartition(clazz, table, toPartitionQuery(query, fieldName, boundList.get(i),
+                    i == boundList.size() - 1 ? null : boundList.get(i + 1))));
+            futureList.add(submitPartition(clazz, table, toPartitionQuery(query, fieldName, null, null)));
+
+            List<List<T>> listList = new ArrayList<>(futureList.size());
+            for (Future<List<T>> future : futureList)
+                listList.add(future.get());
+            if (comparator != null)
+                return merge(listList, comparator);
+
+            // The partitions are already in the order of the partition field
+            List<T> nullList = listList.remove(listList.size() - 1);
+            if (partitionOrder && !orderList.get(0).isAscending())
+                Collections.reverse(listList);
+            if (partitionOrder && isNullsFirst(orderList.get(0).isAscending()))
+                listList.add(0, nullList);
+            else
+                listList.add(nullList);
+            List<T> list = new ArrayList<>();
+            for (List<T> _list : listList)
+                list.addAll(_list);
+            return list;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception)
+                throw (Exception) e.getCause();
+            throw e;
+        } finally {
+            for (Future<List<T>> future : futureList)
+                future.cancel(true);
+        }
+    }
+
+    private <T> Future<List<T>> submitPartition(final Class<T> clazz, final Table table, Query partitionQuery) {
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> partitionParamMap = new ListOrderedMap();
+        final String partitionSql = toSelectSql(table, partitionQuery, false, partitionParamMap);
+        return getPartitionExecutor().submit(() -> query(partitionSql, partitionParamMap, clazz, table, 0, 0, 0, 0));
+    }
+
+    private String nullOrdering;
+
+    /**
+     * Whether the database sorts nulls before the values in the direction (by DatabaseMetaData).
+     */
+    private boolean isNullsFirst(boolean ascending) throws SQLException {
+        if (nullOrdering == null) {
+            try (Connection con = getDataSource().getConnection()) {
+                DatabaseMetaData metadata = con.getMetaData();
+                nullOrdering = metadata.nullsAreSortedAtStart() ? "start" : metadata.nullsAreSortedAtEnd() ? "end"
+                    : metadata.nullsAreSortedLow() ? "low" : "high";
+            }
+        }
+        return "start".equals(nullOrdering) || (ascending ? "low" : "high").equals(nullOrdering);
+    }
+
+    /**
+     * Lower bounds of the partitions, from min to max by the same width (fewer if the range is narrow).
+     */
+    private static List<Object> toPartitionBoundList(Object min, Object max, int partitionCount) {
+        List<Object> boundList = new ArrayList<>(partitionCount);
+        if (min instanceof Date) {
+            long from = ((Date) min).getTime();
+            double width = (double) (((Date) max).getTime() - from) / partitionCount;
+            for (int i = 0; i < partitionCount; i++) {
+                Timestamp bound = new Timestamp(from + (long) Math.ceil(width * i));
+                if (boundList.isEmpty() || !bound.equals(boundList.get(boundList.size() - 1)))
+                    boundList.add(bound);
+            }
+        } else if (min instanceof Number) {
+            BigDecimal from = new BigDecimal(min.toString());
+            BigDecimal width = new BigDecimal(max.toString()).subtract(from).divide(BigDecimal.valueOf(partitionCount), 10, RoundingMode.HALF_UP);
+            boolean integral = from.scale() <= 0 && new BigDecimal(max.toString()).scale() <= 0;
+            for (int i = 0; i < partitionCount; i++) {
+                BigDecimal bound = from.add(width.multiply(BigDecimal.valueOf(i)));
+                if (integral)
+                    bound = bound.setScale(0, RoundingMode.CEILING);
+                if (boundList.isEmpty() || bound.compareTo((BigDecimal) boundList.get(boundList.size() - 1)) != 0)
+                    boundList.add(bound);
+            }
+        } else {
+            throw new DbistRuntimeException("Partition field must be numeric or date: " + min.getClass().getName());
+        }
+        return boundList;
+    }
+
+    /**
+     * Query of the rows from (inclusive) to (exclusive, or no upper bound if null), or of the null rows if from is null.
+     */
+    private static Query toPartitionQuery(Query query, String fieldName, Object from, Object to) {
+        Query partitionQuery = new Query();
+        partitionQuery.setSelect(query.getSelect());
+        partitionQuery.setUnselect(query.getUnselect());
+        partitionQuery.setExtselect(query.getExtselect());
+        partitionQuery.setOrder(query.getOrder());
+        if (!ValueUtils.isEmpty(query.getFilter()) || !ValueUtils.isEmpty(query.getFilters())) {
+            Filters filters = new Filters(query.getOperator());
+            filters.setFilter(query.getFilter());
+            filters.setFilters(query.getFilters());
+            partitionQuery.addFilters(filters);
+        }
+        if (from == null)
+            partitionQuery.addFilter(fieldName, "is null", null);
+        else
+            partitionQuery.addFilter(fieldName, ">=", from);
+        if (to != null)
+            partitionQuery.addFilter(fieldName, "<", to);
+        return partitionQuery;
+    }
+
+    /**
+     * Comparator of the order fields, with the null ordering of the database. Only decimal, date and numeric primary key fields
+     * are supported, since Java compares text differently from the collations of the database, and the other numeric fields read
+     * nulls as 0.
+     */
+    private static <T> Comparator<T> toComparator(Table table, List<Order> orderList, final boolean nullsFirstAscending,
+                                                  final boolean nullsFirstDescending) {
+        final List<Field> fieldList = new ArrayList<>();
+        final List<Boolean> ascendingList = new ArrayList<>();
+        for (Order order : orderList) {
+            for (String fieldName : StringUtils.tokenizeToStringArray(order.getField(), ",")) {
+                Field field = table.getField(fieldName);
+                if (field == null)
+                    throw new DbistRuntimeException("Couldn't find the order field " + fieldName + " of " + table.getClazz().getName());
+                Class<?> type = ClassUtils.resolvePrimitiveIfNecessary(field.getType());
+                if (!BigDecimal.class.equals(type) && !Date.class.isAssignableFrom(type)
+                    && !(Number.class.isAssignableFrom(type) && table.getColumnByFieldName(fieldName).isPrimaryKey()))
+                    throw new DbistRuntimeException("Partitioned query must be ordered by the partition field first, or by decimal, date or"
+                        + " numeric primary key fields: " + table.getClazz().getName() + "." + fieldName);
+                fieldList.add(field);
+                ascendingList.add(order.isAscending());
+            }
+        }
+        return (a, b) -> {
+            try {
+                for (int i = 0; i < fieldList.size(); i++) {
+                    @SuppressWarnings("unchecked")
+                    Comparable<Object> x = (Comparable<Object>) fieldList.get(i).get(a);
+                    Object y = fieldList.get(i).get(b);
+                    boolean ascending = ascendingList.get(i);
+                    if (x == null || y == null) {
+                        if (x == y)
+                            continue;
+                        return (x == null) == (ascending ? nullsFirstAscending : nullsFirstDescending) ? -1 : 1;
+                    }
+                    int result = x.compareTo(y);
+                    if (result != 0)
+                        return ascending ? result : -result;
+                }
+                return 0;
+            } catch (IllegalAccessException e) {
+                throw new DbistRuntimeException(e);
+            }
+        };
     }
 
-    private static Object toParamData(Object data) {
-        if (data instanceof Character)
-            return data.toString();
-        return data;
+    /**
+     * K-way merge of the sorted lists.
+     */
+    private static <T> List<T> merge(List<List<T>> listList, final Comparator<T> comparator) {
+        int size = 0;
+        PriorityQueue<PeekingIterator<T>> queue = new PriorityQueue<>(Math.max(listList.size(), 1),
+            (a, b) -> comparator.compare(a.peek(), b.peek()));
+        for (List<T> list : listList) {
+            size += list.size();
+            if (!list.isEmpty())
+                queue.add(new PeekingIterator<>(list.iterator()));
+        }
+        List<T> merged = new ArrayList<>(size);
+        while (!queue.isEmpty()) {
+            PeekingIterator<T> iterator = queue.poll();
+            merged.add(iterator.next());
+            if (iterator.hasNext())
+                queue.add(iterator);
+        }
+        return merged;
     }
 
-    private void appendFromWhere(Table table, Query query, StringBuffer buf, Map<String, Object> paramMap, Map<String, Column> relColMap) {
-        // Select 필드가 없어도 Reference에 대해서 Join이 실행되도록 수정.
-        // if (relColMap != null && table.containsLinkedTable() && (!ValueUtils.isEmpty(query.getSelect()) || !ValueUtils.isEmpty(query.getUnselect())))
-        if (relColMap != null && table.containsLinkedTable())
-            populateRelColMap(table, query, relColMap);
+    private static class PeekingIterator<T> {
+        private final Iterator<T> iterator;
+        private T next;
 
-        // From
-        buf.append(" from ").append(table.getDomain()).append(".");
-        appendName(table, buf, table.getName());
+        PeekingIterator(Iterator<T> iterator) {
+            this.iterator = iterator;
+            this.next = iterator.next();
+        }
 
-        String str = null;
-        Lock lock = query.getLock();
+        T peek() {
+            return next;
+        }
 
-        if (this.alwaysWithNoLock) {
-            lock = new Lock();
-            lock.setWithNoLock(true);
+        T next() {
+            T value = next;
+            next = iterator.hasNext() ? iterator.next() : null;
+            return value;
         }
 
-        if (lock != null && queryMapper != null) {
-            if (ValueUtils.toBoolean(lock.getWithNoLock(), false)) {
-                str = queryMapper.toWithNoLock(query.getLock());
-            } else {
-                str = queryMapper.toWithLock(query.getLock());
+        boolean hasNext() {
+            return next != null;
+        }
+    }
+
+    /**
+     * Load the child entities of the fetch names for all the entities of the list, by one query per getMaxInListSize() entities,
+     * and set them to the entities.
+     */
+    private <T> void fetch(Table table, List<T> list, List<String> fetchList) throws Exception {
+        if (ValueUtils.isEmpty(fetchList) || ValueUtils.isEmpty(list))
+            return;
+        for (String name : fetchList)
+            fetch(table, list, name);
+    }
+
+    private <T> void fetch(Table table, List<T> list, String name) throws Exception {
+        Class<?> clazz = table.getClazz();
+        org.dbist.annotation.Table tableAnn = clazz.getAnnotation(org.dbist.annotation.Table.class);
+        ChildEntity childEntity = null;
+        Field field = toFetchField(clazz, name);
+        if (tableAnn != null) {
+            Class<?> elementType = field == null ? null : toElementType(field);
+            for (ChildEntity ce : tableAnn.childEntities()) {
+                if (name.equals(ce.dataProperty()) || (ValueUtils.isEmpty(ce.dataProperty()) && ce.entityClass().equals(elementType))) {
+                    childEntity = ce;
+                    break;
+                }
             }
+        }
+        if (childEntity == null || field == null)
+            throw new DbistRuntimeException("Couldn't find @ChildEntity and its field to fetch: " + name + " (class: " + clazz.getName() + ")");
+
+        String[] pkFieldNames = table.getPkFieldNames();
+        String[] refFieldNames = StringUtils.tokenizeToStringArray(childEntity.refFields(), ",");
+        if (ValueUtils.isEmpty(pkFieldNames) || refFieldNames.length != pkFieldNames.length)
+            throw new DbistRuntimeException("@ChildEntity.refFields of " + name + " must match the primary key of " + clazz.getName());
+        Table childTable = getTable(childEntity.entityClass());
+        for (String refFieldName : refFieldNames) {
+            if (childTable.getField(refFieldName) == null)
+                throw new DbistRuntimeException("Couldn't find the field " + refFieldName + " of " + childTable.getClazz().getName());
+        }
 
-            if (!ValueUtils.isEmpty(str))
-                buf.append(" ").append(str);
+        // Parents by primary key
+        Map<List<Object>, List<T>> parentListByKeyMap = new LinkedHashMap<>();
+        for (T parent : list) {
+            List<Object> key = new ArrayList<>(pkFieldNames.length);
+            for (String pkFieldName : pkFieldNames)
+                key.add(table.getField(pkFieldName).get(parent));
+            if (key.contains(null))
+                continue;
+            List<T> parentList = parentListByKeyMap.get(key);
+            if (parentList == null) {
+                parentList = new ArrayList<>(1);
+                parentListByKeyMap.put(key, parentList);
+            }
+            parentList.add(parent);
         }
 
-        if (!ValueUtils.isEmpty(relColMap)) {
-            for (Column col : relColMap.values()) {
-                Table subTab = col.getTable();
-                buf.append(" left outer join ").append(subTab.getDomain()).append(".");
-                appendName(subTab, buf, subTab.getName());
-                if (!subTab.getName().equals(col.getName())) {
-                    buf.append(" ");
-                    appendName(subTab, buf, col.getName());
+        // Children by the primary key of the parent
+        Map<List<Object>, List<Object>> childListByKeyMap = new HashMap<>();
+        List<List<Object>> keyList = new ArrayList<>(parentListByKeyMap.keySet());
+        int chunkSize = Math.max(queryMapper.getMaxInListSize() / refFieldNames.length, 1);
+        for (int i = 0; i < keyList.size(); i += chunkSize) {
+            List<List<Object>> chunk = keyList.subList(i, Math.min(i + chunkSize, keyList.size()));
+            Query query = new Query();
+            if (refFieldNames.length == 1) {
+                List<Object> values = new ArrayList<>(chunk.size());
+                for (List<Object> key : chunk)
+                    values.add(key.get(0));
+                query.addFilter(refFieldNames[0], "in", values);
+            } else {
+                Filters filters = new Filters(Filters.OPERATOR_OR);
+                for (List<Object> key : chunk) {
+                    Filters keyFilters = new Filters(Filters.OPERATOR_AND);
+                    for (int j = 0; j < refFieldNames.length; j++)
+                        keyFilters.addFilter(refFieldNames[j], key.get(j));
+                    filters.addFilters(keyFilters);
                 }
+                query.addFilters(filters);
+            }
+            if (!ValueUtils.isEmpty(childTable.getPkFieldNames())) {
+                for (String pkFieldName : childTable.getPkFieldNames())
+                    query.addOrder(pkFieldName, true);
+            }
 
-                if (!ValueUtils.isEmpty(str))
-                    buf.append(" ").append(str);
-
-                buf.append(" on ");
-                Relation relation = col.getRelation();
-                int i = 0;
-                for (String key : subTab.getPkColumnNameList()) {
-                    appendName(table, buf, table.getName()).append(".");
-                    appendName(table, buf, toColumnName(table, relation.field()[i++])).append(" = ");
-                    appendName(subTab, buf, col.getName()).append(".").append(key);
+            for (Object child : selectList(childTable.getClazz(), query)) {
+                List<Object> key = new ArrayList<>(refFieldNames.length);
+                for (int j = 0; j < refFieldNames.length; j++) {
+                    Object value = childTable.getField(refFieldNames[j]).get(child);
+                    key.add(value == null ? null : ValueUtils.toRequiredType(value, table.getField(pkFieldNames[j]).getType()));
                 }
+                List<Object> childList = childListByKeyMap.get(key);
+                if (childList == null) {
+                    childList = new ArrayList<>();
+                    childListByKeyMap.put(key, childList);
+                }
+                childList.add(child);
             }
         }
 
-        // Where
-        appendWhere(buf, table, query, 0, paramMap);
+        // Stitch
+        boolean oneToOne = MasterDetailType.ONE_TO_ONE.equals(childEntity.type());
+        for (Map.Entry<List<Object>, List<T>> entry : parentListByKeyMap.entrySet()) {
+            List<Object> childList = childListByKeyMap.get(entry.getKey());
+            Object value;
+            if (oneToOne)
+                value = childList == null ? null : childList.get(0);
+            else if (field.getType().isAssignableFrom(ArrayList.class))
+                value = childList == null ? new ArrayList<>() : childList;
+            else if (field.getType().isAssignableFrom(LinkedHashSet.class))
+                value = childList == null ? new LinkedHashSet<>() : new LinkedHashSet<>(childList);
+            else
+                throw new DbistRuntimeException("Unsupported field type to fetch: " + field.getType().getName() + " " + name);
+            for (T parent : entry.getValue())
+                field.set(parent, value);
+        }
     }
 
-    private void populateRelColMap(Table table, Filters filters, Map<String, Column> relColMap) {
-        if (relColMap == null)
-            return;
+    private static Field toFetchField(Class<?> clazz, String name) {
+        for (Field field : ReflectionUtils.getFieldList(clazz, false)) {
+            if (!field.getName().equals(name))
+                continue;
+            field.setAccessible(true);
+            return field;
+        }
+        return null;
+    }
 
-        if (!ValueUtils.isEmpty(filters.getFilter())) {
-            for (Filter filter : filters.getFilter()) {
-                if (!filter.getLeftOperand().contains("."))
-                    continue;
+    private static Class<?> toElementType(Field field) {
+        if (!Collection.class.isAssignableFrom(field.getType()))
+            return field.getType();
+        Type type = field.getGenericType();
+        if (type instanceof ParameterizedType && ((ParameterizedType) type).getActualTypeArguments()[0] instanceof Class)
+            return (Class<?>) ((ParameterizedType) type).getActualTypeArguments()[0];
+        return null;
+    }
 
-                String lo = filter.getLeftOperand();
-                String fieldName = lo.substring(0, lo.indexOf('.'));
-                Column column = toColumn(table, fieldName);
+    private static final String TOTALSIZE_ALIAS = "totalsize_";
 
-                if (column.getRelation() == null)
-                    throw new DbistRuntimeException("filter: " + lo + " is not a joined condition.");
+    /**
+     * Counts the total size by count(*) over() in the page query (Query.COUNT_WINDOW) or skips counting (Query.COUNT_NONE).<br>
+     * Otherwise, or with lock or if the database doesn't support it, the total size is selected by another query.
+     */
+    public <T> Page<T> selectPage(final Class<T> clazz, Query query) throws Exception {
+        ValueUtils.assertNotNull("clazz", clazz);
 
-                if (relColMap.containsKey(column.getName()))
-                    continue;
+        if (query == null)
+            query = new Query();
 
-                relColMap.put(column.getName(), column);
-            }
+        String countMode = ValueUtils.isEmpty(query.getCountMode()) ? pageCountMode : query.getCountMode();
+        boolean none = Query.COUNT_NONE.equals(countMode);
+        // The window counts the rows after the seek predicate, not the total size
+        boolean window = Query.COUNT_WINDOW.equals(countMode) && queryMapper.isSupportedWindowFunction() && !query.isSeek()
+            && ValueUtils.isEmpty(query.getGroup());
+        if ((!none && !window) || query.getLock() != null || !isSupportedPaginationQuery())
+            return super.selectPage(clazz, query);
+
+        final Table table = getTable(clazz);
+
+        Page<T> page = new Page<>();
+        page.setIndex(query.getPageIndex());
+        page.setSize(query.getPageSize());
+        page.setFirstResultIndex(query.getFirstResultIndex());
+        page.setMaxResultSize(query.getMaxResultSize());
+
+        int offset = 0;
+        int limit = query.getPageSize();
+        if (!query.isSeek()) {
+            boolean pagination = query.getPageIndex() >= 0 && query.getPageSize() > 0;
+            int firstResultIndex = Math.max(query.getFirstResultIndex(), 0);
+            int maxResultSize = Math.max(query.getMaxResultSize(), 0);
+            offset = (pagination && query.getPageIndex() > 0 ? query.getPageIndex() - 1 : 0) * query.getPageSize() + firstResultIndex;
+            limit = pagination ? query.getPageSize() - firstResultIndex : maxResultSize;
+            if (pagination && maxResultSize > 0)
+                limit = Math.min(limit, maxResultSize);
         }
+        if (limit < 0)
+            limit = 0;
 
-        if (!ValueUtils.isEmpty(filters.getFilters())) {
-            for (Filters fs : filters.getFilters())
-                populateRelColMap(table, fs, relColMap);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> paramMap = new ListOrderedMap();
+        final Query _query = query;
+        String sql = toSql(window ? "window" : "select", table, query, paramMap,
+            (buf, _paramMap) -> appendSelectSql(buf, _paramMap, table, _query, !ValueUtils.isEmpty(_query.getGroup()), false, window));
+        // One more row tells whether the next page exists
+        sql = applyPagination(sql, paramMap, 0, 0, offset, none && limit > 0 ? limit + 1 : limit);
+
+        final RowMapper<T> rowMapper = toRowMapper(clazz, table);
+        final int[] totalSize = {0};
+        List<T> list = this.namedParameterJdbcOperations.query(sql, paramMap, !window ? rowMapper : new RowMapper<T>() {
+            public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+                if (rowNum == 0)
+                    totalSize[0] = rs.getInt(TOTALSIZE_ALIAS);
+                return rowMapper.mapRow(rs, rowNum);
+            }
+        });
+
+        if (none) {
+            page.setTotalSize(-1);
+            page.setHasNext(limit > 0 && list.size() > limit);
+            if (page.getHasNext())
+                list = new ArrayList<>(list.subList(0, limit));
+            fetch(table, list, query.getFetch());
+            snapshot(table, list);
+            page.setList(list);
+            if (query.isSeek() && page.getHasNext())
+                page.setNextToken(toNextToken(clazz, query, list));
+            return page;
         }
+
+        // No row past the last page
+        if (list.isEmpty() && offset > 0)
+            totalSize[0] = selectSize(clazz, query);
+        page.setTotalSize(totalSize[0]);
+        populateLastIndex(page);
+        fetch(table, list, query.getFetch());
+        snapshot(table, list);
+        page.setList(list);
+        return page;
     }
 
-    public int selectSize(Class<?> clazz, Object condition) throws Exception {
+    public <T> Stream<T> selectStream(Class<T> clazz, Object condition) throws Exception {
         ValueUtils.assertNotNull("clazz", clazz);
         ValueUtils.assertNotNull("condition", condition);
 
-        final Table table = getTable(clazz);
+        Table table = getTable(clazz);
         Query query = toQuery(table, condition);
-
-        StringBuffer buf = new StringBuffer("select count(*)");
         @SuppressWarnings("unchecked")
         Map<String, Object> paramMap = new ListOrderedMap();
-        Lock lock = query.getLock();
-        try {
-            query.setLock(null);
-            if (ValueUtils.isEmpty(query.getGroup())) {
-                appendFromWhere(table, query, buf, paramMap, table.containsLinkedTable() ? new HashMap<>() : null);
-            } else {
-                buf.append(" from (");
-                appendSelectSql(buf, paramMap, table, query, true, true);
-                buf.append(") grptbl_");
-            }
-        } finally {
-            query.setLock(lock);
-        }
-
-        return this.namedParameterJdbcOperations.queryForObject(buf.toString(), paramMap, Integer.class);
-    }
-
-    public <T> List<T> selectList(final Class<T> clazz, Object condition) throws Exception {
-        return _selectList(clazz, condition, false);
-    }
+        String sql = toSelectSql(table, query, false, paramMap);
 
-    public <T> List<T> selectListWithLock(Class<T> clazz, Object condition) throws Exception {
-        return _selectList(clazz, condition, true);
+        if (query.isSeek())
+            return stream(sql, paramMap, clazz, table, 0, 0, 0, query.getPageSize());
+        return stream(sql, paramMap, clazz, table, query.getPageIndex(), query.getPageSize(), query.getFirstResultIndex(),
+            query.getMaxResultSize());
     }
 
-    public <T> List<T> _selectList(final Class<T> clazz, Object condition, boolean lock) throws Exception {
-        ValueUtils.assertNotNull("clazz", clazz);
-        ValueUtils.assertNotNull("condition", condition);
-
-        final Table table = getTable(clazz);
-        final Query query = toQuery(table, condition);
+    private String toSelectSql(Table table, Query query, boolean lock, Map<String, Object> paramMap) {
         Lock lockObj = query.getLock();
 
         if ((lock || lockObj != null) && query.getPageIndex() >= 0 && query.getPageSize() > 0) {
             if (lockObj != null && !lockObj.getWithNoLock())
-                throw new DbistRuntimeException("Cannot select with lock and pagination at the same time. (class: " + clazz + ")");
+                throw new DbistRuntimeException("Cannot select with lock and pagination at the same time. (class: " + table.getClazz() + ")");
         }
 
-        StringBuffer buf = new StringBuffer();
-        @SuppressWarnings("unchecked")
-        Map<String, Object> paramMap = new ListOrderedMap();
-
+        String sql;
         try {
             if (lock && lockObj == null)
                 query.setLock(new Lock());
@@ -513,20 +1975,191 @@ public class DmlJdbc extends AbstractDml implements Dml {
             if (groupBy && query.getLock() != null)
                 throw new DbistRuntimeException("Grouping query cannot be executed with lock.");
 
-            appendSelectSql(buf, paramMap, table, query, groupBy, false);
+            sql = toSql("select", table, query, paramMap, (buf, _paramMap) -> appendSelectSql(buf, _paramMap, table, query, groupBy, false));
         } finally {
             query.setLock(lockObj);
         }
 
-        String sql = applyPagination(buf.toString(), paramMap, query.getPageIndex(), query.getPageSize(), query.getFirstResultIndex(),
-            query.getMaxResultSize());
+        // Keyset pagination needs only the limit, the offset is the seek predicate
+        if (query.isSeek())
+            return applyPagination(sql, paramMap, 0, 0, 0, query.getPageSize());
+        return applyPagination(sql, paramMap, query.getPageIndex(), query.getPageSize(), query.getFirstResultIndex(), query.getMaxResultSize());
+    }
 
-        List<T> list = query(sql, paramMap, clazz, table, query.getPageIndex(), query.getPageSize(), query.getFirstResultIndex(),
-            query.getMaxResultSize());
-        return list;
+    private interface SqlBuilder {
+        void append(StringBuffer buf, Map<String, Object> paramMap);
+    }
+
+    private Map<String, SqlPlan> sqlPlanCache;
+
+    /**
+     * SQL built by the builder, which is cached by the shape of the query so that the same shape skips building it again.<br>
+     * The parameter values of the query are populated to paramMap either way.
+     */
+    private String toSql(String kind, Table table, Query query, Map<String, Object> paramMap, SqlBuilder builder) {
+        String key = sqlPlanCache == null ? null : toSqlPlanKey(kind, table, query, queryMapper.getMaxInListSize());
+        if (key == null) {
+            StringBuffer buf = new StringBuffer();
+            builder.append(buf, paramMap);
+            return buf.toString();
+        }
+
+        SqlPlan sqlPlan = sqlPlanCache.get(key);
+        // A plan of evicted table metadata is built again
+        if (sqlPlan != null && sqlPlan.getTable() == table) {
+            bind(sqlPlan, table, query, paramMap);
+            return sqlPlan.getSql();
+        }
+
+        BindingRecorder recorder = new BindingRecorder(toFilterList(query, new ArrayList<>()));
+        StringBuffer buf = new StringBuffer();
+        builder.append(buf, recorder);
+        paramMap.putAll(recorder);
+        // Every parameter must be bound by the plan
+        if (recorder.size() != recorder.bindingList.size())
+            return buf.toString();
+        sqlPlan = new SqlPlan(buf.toString(), table, recorder.bindingList);
+        sqlPlanCache.put(key, sqlPlan);
+        return sqlPlan.getSql();
+    }
+
+    private void bind(SqlPlan sqlPlan, Table table, Query query, Map<String, Object> paramMap) {
+        List<Filter> filterList = toFilterList(query, new ArrayList<>());
+        List<?> seekValues = null;
+        int filterIndex = -1;
+        List<?> rightOperand = null;
+        for (Binding binding : sqlPlan.getBindingList()) {
+            Object value;
+            if (binding.getFilterIndex() < 0) {
+                if (seekValues == null)
+                    seekValues = toSeekValues(table, query);
+                value = toParamData(seekValues.get(binding.getValueIndex()));
+            } else {
+                if (binding.getFilterIndex() != filterIndex) {
+                    filterIndex = binding.getFilterIndex();
+                    Filter filter = filterList.get(filterIndex);
+                    Column column = binding.getColumn();
+                    rightOperand = checkValueByCaseSensitive(column.getField().getType(), filter, filter.getRightOperand(), column);
+                }
+                value = binding.getValueIndex() < 0 ? rightOperand : rightOperand.get(binding.getValueIndex());
+                if (binding.getOperator() != null && binding.getValueIndex() < 0)
+                    value = toMultiValueParam(rightOperand, binding.getColumn().getField().getType());
+                else if (binding.getOperator() != null)
+                    value = toRealValue(binding.getOperator(), value);
+            }
+            paramMap.put(binding.getKey(), value);
+        }
+    }
+
+    private static void putParam(Map<String, Object> paramMap, String key, Object value, Filter filter, int valueIndex, Column column, String operator) {
+        paramMap.put(key, value);
+        if (paramMap instanceof BindingRecorder)
+            ((BindingRecorder) paramMap).add(key, filter, valueIndex, column, operator);
+    }
+
+    /**
+     * Parameter map which records where each parameter comes from while the SQL is built.
+     */
+    @SuppressWarnings("serial")
+    private static class BindingRecorder extends LinkedHashMap<String, Object> {
+        private final List<Filter> filterList;
+        private final List<Binding> bindingList = new ArrayList<>();
+
+        BindingRecorder(List<Filter> filterList) {
+            this.filterList = filterList;
+        }
+
+        void add(String key, Filter filter, int valueIndex, Column column, String operator) {
+            int filterIndex = -1;
+            if (filter != null) {
+                for (int i = 0; i < filterList.size(); i++) {
+                    if (filterList.get(i) == filter) {
+                        filterIndex = i;
+                        break;
+                    }
+                }
+                if (filterIndex < 0)
+                    throw new DbistRuntimeException("Filter is not of the query: " + filter.getLeftOperand());
+            }
+            bindingList.add(new Binding(key, filterIndex, valueIndex, column, operator));
+        }
+    }
+
+    /**
+     * Filters in the order of appendWhere
+     */
+    private static List<Filter> toFilterList(Filters filters, List<Filter> filterList) {
+        if (!ValueUtils.isEmpty(filters.getFilter()))
+            filterList.addAll(filters.getFilter());
+        if (!ValueUtils.isEmpty(filters.getFilters())) {
+            for (Filters subFilters : filters.getFilters())
+                toFilterList(subFilters, filterList);
+        }
+        return filterList;
+    }
+
+    /**
+     * Shape of the query which determines the SQL (fields, filter tree without values, order, group, lock and seek),
+     * or null if the SQL depends on the values (geolocation filters).
+     */
+    private static String toSqlPlanKey(String kind, Table table, Query query, int maxInListSize) {
+        StringBuffer buf = new StringBuffer(kind).append('|').append(table.getDomain()).append('.').append(table.getName());
+        buf.append('|').append(table.getClazz() == null ? "" : table.getClazz().getName());
+        buf.append('|').append(query.getSelect()).append('|').append(query.getUnselect()).append('|').append(query.getGroup());
+        buf.append('|');
+        if (!ValueUtils.isEmpty(query.getOrder())) {
+            for (Order order : query.getOrder())
+                buf.append(order.getField()).append(order.isAscending() ? " asc," : " desc,");
+        }
+        Lock lock = query.getLock();
+        buf.append('|').append(lock == null ? "" : lock.getTimeout() + "," + lock.getWithNoLock());
+        buf.append('|').append(query.isSeek());
+        if (!appendShape(buf, query, maxInListSize))
+            return null;
+        return buf.toString();
+    }
+
+    private static boolean appendShape(StringBuffer buf, Filters filters, int maxInListSize) {
+        buf.append("|(").append(filters.getOperator());
+        if (!ValueUtils.isEmpty(filters.getFilter())) {
+            for (Filter filter : filters.getFilter()) {
+                if (RESERVED_FIELDS_FOR_GEOLOC.contains(filter.getLeftOperand()))
+                    return false;
+                buf.append(',').append(filter.getLeftOperand()).append(' ').append(filter.getOperator()).append(' ');
+                buf.append(filter.isCaseSensitive() ? 's' : 'i').append(filter.getEscape() == null ? "" : filter.getEscape());
+                // Nulls change the condition, the number of the values doesn't unless there is a null
+                List<?> rightOperand = filter.getRightOperand();
+                // More values than maxInListSize are split into several conditions
+                if (rightOperand != null && rightOperand.size() > maxInListSize)
+                    return false;
+                if (rightOperand == null)
+                    buf.append('x');
+                else if (rightOperand.isEmpty())
+                    buf.append('e');
+                else if (!rightOperand.contains(null))
+                    buf.append('v');
+                else {
+                    for (Object value : rightOperand)
+                        buf.append(value == null ? 'n' : 'v');
+                }
+            }
+        }
+        if (!ValueUtils.isEmpty(filters.getFilters())) {
+            for (Filters subFilters : filters.getFilters()) {
+                if (!appendShape(buf, subFilters, maxInListSize))
+                    return false;
+            }
+        }
+        buf.append(')');
+        return true;
     }
 
     private void appendSelectSql(StringBuffer buf, Map<String, Object> paramMap, Table table, Query query, boolean groupBy, boolean ignoreOrderBy) {
+        appendSelectSql(buf, paramMap, table, query, groupBy, ignoreOrderBy, false);
+    }
+
+    private void appendSelectSql(StringBuffer buf, Map<String, Object> paramMap, Table table, Query query, boolean groupBy, boolean ignoreOrderBy,
+                                 boolean totalSize) {
         boolean joined = table.containsLinkedTable();
         @SuppressWarnings("unchecked")
         Map<String, Column> relColMap = joined ? new ListOrderedMap() : null;
@@ -581,7 +2214,15 @@ public class DmlJdbc extends AbstractDml implements Dml {
             }
         }
 
-        appendFromWhere(table, query, buf, paramMap, relColMap);
+        // Total size of the rows before pagination
+        if (totalSize)
+            buf.append(", count(*) over() ").append(TOTALSIZE_ALIAS);
+
+        int whereIndex = appendFromWhere(table, query, buf, paramMap, relColMap);
+
+        // Seek (not for counting)
+        if (!ignoreOrderBy && query.isSeek())
+            appendSeek(buf, whereIndex, table, query, paramMap);
 
         // Group by
         if (groupBy) {
@@ -659,16 +2300,13 @@ public class DmlJdbc extends AbstractDml implements Dml {
         boolean pagination = pageIndex >= 0 && pageSize > 0;
         boolean fragment = firstResultIndex > 0 || maxResultSize > 0;
 
+        final RowMapper<T> rowMapper = toRowMapper(requiredType, table);
         List<T> list = null;
         if (isSupportedPaginationQuery() || (!pagination && !fragment)) {
-            list = this.namedParameterJdbcOperations.query(sql, paramMap, new RowMapper<T>() {
-                public T mapRow(ResultSet rs, int rowNum) throws SQLException {
-                    // if (rowNum > 5000) {
-                    // throw new DbistRuntimeException("데이터 량이 너무 많습니다. 5000건 이하로 조회해 주세요.");
-                    // }
-                    return newInstance(rs, requiredType, table);
-                }
-            });
+            // if (rowNum > 5000) {
+            // throw new DbistRuntimeException("데이터 량이 너무 많습니다. 5000건 이하로 조회해 주세요.");
+            // }
+            list = this.namedParameterJdbcOperations.query(sql, paramMap, rowMapper);
 
             // TODO MSSQL이고 Pagination 쿼리라면 프로시져 호출 ...
         } else {
@@ -680,8 +2318,8 @@ public class DmlJdbc extends AbstractDml implements Dml {
                 firstResultIndex = 0;
             if (maxResultSize < 0)
                 maxResultSize = 0;
-            int pageFromIndex = pagination ? pageIndex * pageSize : 0;
-            int offset = pageFromIndex + firstResultIndex;
+            int pageFromIndex = pagination ? (pageIndex > 0 ? (pageIndex - 1) : 0) * pageSize : 0;
+            final int offset = pageFromIndex + firstResultIndex;
             long limit = 0;
             if (pageSize > 0) {
                 limit = pageSize - firstResultIndex;
@@ -692,28 +2330,164 @@ public class DmlJdbc extends AbstractDml implements Dml {
             } else if (limit == 0) {
                 limit = Long.MAX_VALUE;
             }
-            final int _offset = offset;
             final long _limit = limit;
-            list = this.namedParameterJdbcOperations.query(sql, paramMap, new ResultSetExtractor<List<T>>() {
+            list = this.jdbcOperations.query(toScrollableStatementCreator(sql, paramMap, offset, limit), new ResultSetExtractor<List<T>>() {
                 public List<T> extractData(ResultSet rs) throws SQLException, DataAccessException {
                     List<T> list = new ArrayList<>();
-                    for (int i = 0; i < _offset; i++) {
-                        if (rs.next())
-                            continue;
-                        //return list;
+                    // Jump to the offset on a scrollable cursor, or skip the rows if the driver supports forward-only cursor only
+                    if (offset > 0) {
+                        if (rs.getType() != ResultSet.TYPE_FORWARD_ONLY) {
+                            if (!rs.absolute(offset))
+                                return list;
+                        } else {
+                            for (int i = 0; i < offset; i++) {
+                                if (!rs.next())
+                                    return list;
+                            }
+                        }
                     }
 
                     int i = 0;
-                    while (rs.next()) {
-                        if (i++ == _limit)
-                            break;
-                        list.add(newInstance(rs, requiredType, table));
-                    }
+                    while (i < _limit && rs.next())
+                        list.add(rowMapper.mapRow(rs, i++));
                     return list;
                 }
             });
         }
-        return list;
+        return list;
+    }
+
+    /**
+     * Statement of a scroll-insensitive cursor, limited to offset + limit rows by setMaxRows.
+     */
+    private PreparedStatementCreator toScrollableStatementCreator(String sql, Map<String, ?> paramMap, int offset, long limit) {
+        MapSqlParameterSource paramSource = new MapSqlParameterSource(paramMap);
+        ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+        PreparedStatementCreatorFactory factory = new PreparedStatementCreatorFactory(NamedParameterUtils.substituteNamedParameters(parsedSql,
+            paramSource), NamedParameterUtils.buildSqlParameterList(parsedSql, paramSource));
+        factory.setResultSetType(ResultSet.TYPE_SCROLL_INSENSITIVE);
+        final PreparedStatementCreator creator = factory.newPreparedStatementCreator(NamedParameterUtils.buildValueArray(parsedSql, paramSource,
+            null));
+        final int maxRows = limit < Integer.MAX_VALUE - offset ? (int) (offset + limit) : 0;
+        return new PreparedStatementCreator() {
+            public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+                PreparedStatement ps = creator.createPreparedStatement(con);
+                if (maxRows > 0)
+                    ps.setMaxRows(maxRows);
+                return ps;
+            }
+        };
+    }
+
+    /**
+     * Stream of the rows read from a forward-only cursor with streamFetchSize.<br>
+     * The connection, statement and result set are released when the stream is closed or read to the end.
+     */
+    private <T> Stream<T> stream(String sql, Map<String, ?> paramMap, Class<T> requiredType, Table table, int pageIndex, int pageSize,
+                                 int firstResultIndex, int maxResultSize) {
+        MapSqlParameterSource paramSource = new MapSqlParameterSource(paramMap);
+        ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+        String jdbcSql = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
+        Object[] params = NamedParameterUtils.buildValueArray(parsedSql, paramSource, null);
+
+        CursorIterator<T> iterator = new CursorIterator<>(getDataSource(), toRowMapper(requiredType, table));
+        iterator.open(jdbcSql, params, streamFetchSize);
+        Stream<T> stream = StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false).onClose(iterator::close);
+
+        boolean pagination = pageIndex >= 0 && pageSize > 0;
+        boolean fragment = firstResultIndex > 0 || maxResultSize > 0;
+        if (isSupportedPaginationQuery() || (!pagination && !fragment))
+            return stream;
+
+        if (firstResultIndex < 0)
+            firstResultIndex = 0;
+        long offset = (pagination ? (long) (pageIndex > 0 ? (pageIndex - 1) : 0) * pageSize : 0) + firstResultIndex;
+        long limit = pagination ? pageSize - firstResultIndex : Long.MAX_VALUE;
+        if (maxResultSize > 0)
+            limit = Math.min(limit, maxResultSize);
+        return stream.skip(offset).limit(Math.max(limit, 0));
+    }
+
+    private <T> RowMapper<T> toRowMapper(final Class<T> requiredType, final Table table) {
+        return new RowMapper<T>() {
+            private boolean compiled;
+            private CompiledRowMapper compiledRowMapper;
+
+            @SuppressWarnings("unchecked")
+            public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+                if (!compiled) {
+                    compiledRowMapper = getCompiledRowMapper(rs, requiredType, table);
+                    compiled = true;
+                }
+                if (compiledRowMapper == null)
+                    return newInstance(rs, requiredType, table);
+                return (T) compiledRowMapper.mapRow(rs);
+            }
+        };
+    }
+
+    private static final int MAX_COMPILEDROWMAPPER_SIZE = 100;
+
+    /**
+     * Row mappers of the entity classes are compiled once per column layout and cached in the table.<br>
+     * Map, primitive and non-entity types use the reflective mapping of newInstance method.
+     */
+    CompiledRowMapper getCompiledRowMapper(ResultSet rs, Class<?> clazz, Table table) throws SQLException {
+        if (table == null || !clazz.equals(table.getClazz()) || ValueUtils.isPrimitive(clazz) || Map.class.isAssignableFrom(clazz))
+            return null;
+
+        ResultSetMetaData metadata = rs.getMetaData();
+        int columnCount = metadata.getColumnCount();
+        String[] names = new String[columnCount];
+        StringBuffer buf = new StringBuffer();
+        for (int i = 0; i < columnCount; i++) {
+            names[i] = metadata.getColumnLabel(i + 1);
+            buf.append(i == 0 ? "" : ",").append(names[i]);
+        }
+        String key = buf.toString();
+
+        Map<String, CompiledRowMapper> compiledRowMapperMap = table.getCompiledRowMapperMap();
+        CompiledRowMapper compiledRowMapper = compiledRowMapperMap.get(key);
+        if (compiledRowMapper != null)
+            return compiledRowMapper;
+
+        List<Integer> indexList = new ArrayList<>(columnCount);
+        List<Field> fieldList = new ArrayList<>(columnCount);
+        List<Field> subFieldList = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            String name = names[i];
+            Field field = getField(clazz, table, name);
+            Field subField = null;
+            if (field == null && name.contains("__")) {
+                int index = name.indexOf("__");
+                field = getField(clazz, table, name.substring(0, index));
+                if (field != null) {
+                    Class<?> subClass = field.getType();
+                    subField = getField(subClass, getTable(subClass), name.substring(index + 2));
+                    if (subField == null)
+                        field = null;
+                }
+            }
+            if (field == null || ReflectionUtils.NULL_FIELD.equals(field))
+                continue;
+            indexList.add(i + 1);
+            fieldList.add(field);
+            subFieldList.add(subField);
+        }
+
+        int[] indexes = new int[indexList.size()];
+        for (int i = 0; i < indexes.length; i++)
+            indexes[i] = indexList.get(i);
+        try {
+            compiledRowMapper = new CompiledRowMapper(clazz, indexes, fieldList.toArray(new Field[fieldList.size()]),
+                subFieldList.toArray(new Field[subFieldList.size()]));
+        } catch (DbistRuntimeException e) {
+            logger.debug("Couldn't compile row mapper of " + clazz.getName() + ", reflective mapping is used: " + e.getMessage());
+            return null;
+        }
+        if (compiledRowMapperMap.size() < MAX_COMPILEDROWMAPPER_SIZE)
+            compiledRowMapperMap.put(key, compiledRowMapper);
+        return compiledRowMapper;
     }
 
     /**
@@ -727,7 +2501,7 @@ public class DmlJdbc extends AbstractDml implements Dml {
     private static Map<Class<?>, Map<String, Field>> classSubFieldCache = new ConcurrentHashMap<>();
 
     @SuppressWarnings("unchecked")
-    private <T> T newInstance(ResultSet rs, Class<T> clazz, Table table) throws SQLException {
+    <T> T newInstance(ResultSet rs, Class<T> clazz, Table table) throws SQLException {
         if (ValueUtils.isPrimitive(clazz))
             return (T) toRequiredType(rs, 1, clazz);
 
@@ -1013,28 +2787,27 @@ public class DmlJdbc extends AbstractDml implements Dml {
                         Object value = rightOperand.get(0);
                         if (value != null) {
                             Object realValue = this.appendSingleValueCondition(buf, columnName, key, operator, filter.getEscape(), value);
-                            paramMap.put(key, realValue);
+                            putParam(paramMap, key, realValue, filter, 0, column, operator);
                         }
 
                         // case : multiple value operators
                     } else {
                         // case : has null so... (x = 'l' or x is null or...)
                         if (rightOperand.contains(null)) {
-                            i = appendHasNullMultiValueCondition(buf, columnName, lo, operator, rightOperand, paramMap, i);
+                            i = appendHasNullMultiValueCondition(buf, columnName, lo, operator, rightOperand, paramMap, i, filter, column);
 
                             // case : between
                         } else if (operator.equalsIgnoreCase("between")) {
                             String fromKey = key;
-                            paramMap.put(fromKey, rightOperand.get(0));
+                            putParam(paramMap, fromKey, rightOperand.get(0), filter, 0, column, null);
                             i = i + 1;
                             String toKey = lo + i;
-                            paramMap.put(toKey, rightOperand.get(1));
+                            putParam(paramMap, toKey, rightOperand.get(1), filter, 1, column, null);
                             appendBetweenValueCondition(buf, columnName, fromKey, toKey, operator);
 
                             // case in/not in
                         } else {
-                            paramMap.put(key, rightOperand);
-                            appendMultiValueCondition(buf, columnName, key, operator);
+                            appendMultiValueCondition(buf, columnName, key, operator, rightOperand, paramMap, filter, column);
                         }
                     }
                 }
@@ -1259,44 +3032,16 @@ public class DmlJdbc extends AbstractDml implements Dml {
      * @param value
      */
     private Object appendSingleValueCondition(StringBuffer buf, String columnName, String paramKey, String operator, Character escape, Object value) {
-        Object realValue = value;
+        Object realValue = toRealValue(operator, value);
         String realOperator = operator;
 
-        // like, not like
-        if (operator.equalsIgnoreCase("like") || operator.equalsIgnoreCase("not like")) {
-            realValue = "%" + value + "%";
-
-            // contains
-        } else if (operator.equalsIgnoreCase("contains")) {
-            realOperator = "like";
-            realValue = "%" + value + "%";
-
-            // start with
-        } else if (operator.equalsIgnoreCase("sw")) {
+        // contains, start with, end with
+        if (operator.equalsIgnoreCase("contains") || operator.equalsIgnoreCase("sw") || operator.equalsIgnoreCase("ew")) {
             realOperator = "like";
-            realValue = value + "%";
-
-            // end with
-        } else if (operator.equalsIgnoreCase("ew")) {
-            realOperator = "like";
-            realValue = "%" + value;
-
-            // does not start with
-        } else if (operator.equalsIgnoreCase("dnsw")) {
-            realOperator = "not like";
-            realValue = value + "%";
 
-            // does not end with
-        } else if (operator.equalsIgnoreCase("dnew")) {
+            // does not start with, does not end with
+        } else if (operator.equalsIgnoreCase("dnsw") || operator.equalsIgnoreCase("dnew")) {
             realOperator = "not like";
-            realValue = "%" + value;
-
-            // 위치 기반 검색 - box 내 존재하는 위치 검색 - 테이블에 lat, lng 필드가 있다고 가정한다.
-        } else if (operator.equalsIgnoreCase("in-box")) {
-
-            // 위치 기반 검색 - box 외 존재하는 위치 검색 - 테이블에 lat, lng 필드가 있다고 가정한다.
-        } else if (operator.equalsIgnoreCase("out-box")) {
-
         }
 
         buf.append(columnName).append(" ").append(realOperator).append(" :").append(paramKey);
@@ -1309,21 +3054,106 @@ public class DmlJdbc extends AbstractDml implements Dml {
     }
 
     /**
-     * Append where statement multiple value case
+     * Parameter value of the single value operator
+     *
+     * @param operator
+     * @param value
+     * @return
+     */
+    private static Object toRealValue(String operator, Object value) {
+        // like, not like, contains
+        if (operator.equalsIgnoreCase("like") || operator.equalsIgnoreCase("not like") || operator.equalsIgnoreCase("contains"))
+            return "%" + value + "%";
+        // start with, does not start with
+        if (operator.equalsIgnoreCase("sw") || operator.equalsIgnoreCase("dnsw"))
+            return value + "%";
+        // end with, does not end with
+        if (operator.equalsIgnoreCase("ew") || operator.equalsIgnoreCase("dnew"))
+            return "%" + value;
+        return value;
+    }
+
+    /**
+     * Append where statement multiple value case<br>
+     * The values are bound as an array where the database supports it (= any(:key)), so that the SQL doesn't depend on the number of the values.
+     * Otherwise they are padded to a power of two size, and split into or-ed conditions of QueryMapper.getMaxInListSize() values.
      *
      * @param buf
      * @param columnName
      * @param paramKey
      * @param operator
+     * @param rightOperand
+     * @param paramMap
+     * @param filter
+     * @param column
      */
-    private void appendMultiValueCondition(StringBuffer buf, String columnName, String paramKey, String operator) {
+    private void appendMultiValueCondition(StringBuffer buf, String columnName, String paramKey, String operator, List<?> rightOperand,
+                                           Map<String, Object> paramMap, Filter filter, Column column) {
         // case: in ('x', 'y', 'z') or not in
-        if ("=".equals(operator))
-            operator = "in";
-        else if ("<>".equals(operator))
-            operator = "not in";
+        boolean notIn = "<>".equals(operator) || "not in".equals(operator);
+        Class<?> type = column.getField().getType();
+
+        int maxSize = Math.max(queryMapper.getMaxInListSize(), 1);
+        if (rightOperand.size() <= maxSize || toArrayTypeName(type) != null) {
+            putParam(paramMap, paramKey, toMultiValueParam(rightOperand, type), filter, -1, column, "in");
+            if (toArrayTypeName(type) != null)
+                buf.append(notIn ? "not " : "").append(columnName).append(" = any(:").append(paramKey).append(")");
+            else
+                buf.append(columnName).append(notIn ? " not in (:" : " in (:").append(paramKey).append(")");
+            return;
+        }
+
+        // The number of the conditions depends on the values, so it is not cached as SqlPlan (see appendShape)
+        buf.append("(");
+        int k = 0;
+        for (int from = 0; from < rightOperand.size(); from += maxSize) {
+            String key = paramKey + "_" + k;
+            List<?> subList = rightOperand.subList(from, Math.min(from + maxSize, rightOperand.size()));
+            putParam(paramMap, key, toMultiValueParam(subList, type), filter, -1, column, null);
+            buf.append(k++ == 0 ? "" : notIn ? " and " : " or ").append(columnName).append(notIn ? " not in (:" : " in (:").append(key).append(")");
+        }
+        buf.append(")");
+    }
+
+    private String toArrayTypeName(Class<?> type) {
+        return queryMapper.toArrayTypeName(ClassUtils.resolvePrimitiveIfNecessary(type));
+    }
+
+    /**
+     * The values of an in condition as an array, or a list padded with the last value to a power of two size
+     */
+    private Object toMultiValueParam(List<?> values, Class<?> type) {
+        final String typeName = toArrayTypeName(type);
+        if (typeName != null) {
+            final Object[] array = new Object[values.size()];
+            for (int i = 0; i < array.length; i++) {
+                Object value = values.get(i);
+                if (value instanceof Date && !(value instanceof Timestamp || value instanceof java.sql.Date || value instanceof java.sql.Time))
+                    value = new Timestamp(((Date) value).getTime());
+                array[i] = toParamData(value);
+            }
+            return new AbstractSqlTypeValue() {
+                protected Object createTypeValue(Connection con, int sqlType, String _typeName) throws SQLException {
+                    return con.createArrayOf(typeName, array);
+                }
+
+                public String toString() {
+                    return Arrays.toString(array);
+                }
+            };
+        }
 
-        buf.append(columnName).append(" ").append(operator).append(" (:").append(paramKey).append(")");
+        int size = values.size();
+        int bucketSize = size <= 1 ? size : Integer.highestOneBit(size - 1) << 1;
+        bucketSize = Math.min(bucketSize, Math.max(queryMapper.getMaxInListSize(), size));
+        if (bucketSize == size)
+            return values;
+        List<Object> list = new ArrayList<>(bucketSize);
+        list.addAll(values);
+        Object last = values.get(size - 1);
+        while (list.size() < bucketSize)
+            list.add(last);
+        return list;
     }
 
     /**
@@ -1349,9 +3179,12 @@ public class DmlJdbc extends AbstractDml implements Dml {
      * @param rightOperand
      * @param paramMap
      * @param keyIndex
+     * @param filter
+     * @param column
      * @return
      */
-    private int appendHasNullMultiValueCondition(StringBuffer buf, String columnName, String leftOperand, String operator, List<?> rightOperand, Map<String, Object> paramMap, int keyIndex) {
+    private int appendHasNullMultiValueCondition(StringBuffer buf, String columnName, String leftOperand, String operator, List<?> rightOperand, Map<String, Object> paramMap, int keyIndex,
+                                                 Filter filter, Column column) {
         if ("in".equals(operator))
             operator = "=";
         else if ("not in".equals(operator))
@@ -1369,7 +3202,7 @@ public class DmlJdbc extends AbstractDml implements Dml {
             }
 
             String key = leftOperand + keyIndex++;
-            paramMap.put(key, value);
+            putParam(paramMap, key, value, filter, k - 1, column, null);
             buf.append(columnName).append(" ").append(operator).append(" :").append(key);
         }
 
@@ -1481,6 +3314,17 @@ public class DmlJdbc extends AbstractDml implements Dml {
         return query(ql, paramMap, requiredType, null, pageIndex, pageSize, firstResultIndex, maxResultSize);
     }
 
+    public <T> Stream<T> selectStreamByQl(String ql, Map<String, ?> paramMap, Class<T> requiredType) throws Exception {
+        ValueUtils.assertNotEmpty("ql", ql);
+        ValueUtils.assertNotEmpty("requiredType", requiredType);
+        paramMap = paramMap == null ? new HashMap<>() : paramMap;
+        ql = ql.trim();
+        if (getPreprocessor() != null)
+            ql = getPreprocessor().process(ql, paramMap);
+        adjustParamMap(paramMap);
+        return stream(ql, paramMap, requiredType, null, 0, 0, 0, 0);
+    }
+
     private static void adjustParamMap(Map<String, ?> paramMap) {
         if (paramMap == null || paramMap.isEmpty())
             return;
@@ -1546,34 +3390,8 @@ public class DmlJdbc extends AbstractDml implements Dml {
         return selectSizeByQl(getSqlByPath(qlPath), paramMap);
     }
 
-    private Map<String, String> sqlByPathCache;
-
-    private String getSqlByPath(final String path) throws IOException {
-        ValueUtils.assertNotNull("path", path);
-        if (sqlByPathCache == null)
-            return _getSqlByPath(path);
-        if (sqlByPathCache.containsKey(path))
-            return sqlByPathCache.get(path);
-        return SyncCtrlUtils.wrap("DmlJdbc.sqlByPathCache." + path, sqlByPathCache, path, new Closure<String, IOException>() {
-            public String execute() throws IOException {
-                if (sqlByPathCache.containsKey(path))
-                    return sqlByPathCache.get(path);
-                return _getSqlByPath(path);
-            }
-        });
-    }
-
-    private String _getSqlByPath(String path) throws IOException {
-        String _path = path;
-        if (_path.endsWith("/") || ResourceUtils.isDirectory(_path)) {
-            if (!_path.endsWith("/"))
-                _path += "/";
-            if (ResourceUtils.exists(_path + getDbType() + ".sql"))
-                path = _path + getDbType() + ".sql";
-            else if (ResourceUtils.exists(_path + "ansi.sql"))
-                path = _path + "ansi.sql";
-        }
-        return ResourceUtils.readText(path);
+    private String getSqlByPath(String path) throws IOException {
+        return sqlResourceRepository.getSql(path);
     }
 
     public int deleteList(Class<?> clazz, Object condition) throws Exception {
@@ -1583,19 +3401,24 @@ public class DmlJdbc extends AbstractDml implements Dml {
         final Table table = getTable(clazz);
         Query query = toQuery(table, condition);
 
-        StringBuffer buf = new StringBuffer("delete");
         @SuppressWarnings("unchecked")
         Map<String, Object> paramMap = new ListOrderedMap();
+        String sql;
         Lock lock = query.getLock();
         try {
             query.setLock(null);
-            appendFromWhere(table, query, buf, paramMap, table.containsLinkedTable() ? new HashMap<>() : null);
+            sql = toSql("delete", table, query, paramMap, (buf, _paramMap) -> {
+                buf.append("delete");
+                appendFromWhere(table, query, buf, _paramMap, table.containsLinkedTable() ? new HashMap<>() : null);
+            });
         } finally {
             query.setLock(lock);
 
         }
 
-        return this.namedParameterJdbcOperations.update(buf.toString(), paramMap);
+        int count = this.namedParameterJdbcOperations.update(sql, paramMap);
+        evictEntityCache(table, null);
+        return count;
     }
 
     public int executeByQl(String ql, Map<String, ?> paramMap) throws Exception {
@@ -1605,7 +3428,10 @@ public class DmlJdbc extends AbstractDml implements Dml {
         if (getPreprocessor() != null)
             ql = getPreprocessor().process(ql, paramMap);
         adjustParamMap(paramMap);
-        return this.namedParameterJdbcOperations.update(ql, paramMap);
+        int count = this.namedParameterJdbcOperations.update(ql, paramMap);
+        // The tables changed by the QL are unknown
+        evictEntityCaches();
+        return count;
     }
 
     public int executeByQlPath(String qlPath, Map<String, ?> paramMap) throws Exception {
@@ -1663,6 +3489,47 @@ public class DmlJdbc extends AbstractDml implements Dml {
         this.maxSqlByPathCacheSize = maxSqlByPathCacheSize;
     }
 
+    public SqlResourceRepository getSqlResourceRepository() {
+        return sqlResourceRepository;
+    }
+
+    public void setSqlResourceRepository(SqlResourceRepository sqlResourceRepository) {
+        this.sqlResourceRepository = sqlResourceRepository;
+    }
+
+    public Map<String, EntityCache> getEntityCacheMap() {
+        return entityCacheMap;
+    }
+
+    /**
+     * @param entityCacheMap
+     *            Entity caches by class name, which take precedence over the cache of the Table annotation
+     */
+    public void setEntityCacheMap(Map<String, EntityCache> entityCacheMap) {
+        this.entityCacheMap = entityCacheMap;
+    }
+
+    /**
+     * @param clazz
+     * @return The entity cache of the class (for hit, miss and eviction counts), or null if it isn't cached
+     */
+    public EntityCache getEntityCache(Class<?> clazz) {
+        return getTable(clazz).getEntityCache();
+    }
+
+    public int getMaxSqlPlanCacheSize() {
+        return maxSqlPlanCacheSize;
+    }
+
+    /**
+     * Max number of the query shapes of which SQL is cached (0 disables the cache).
+     *
+     * @param maxSqlPlanCacheSize
+     */
+    public void setMaxSqlPlanCacheSize(int maxSqlPlanCacheSize) {
+        this.maxSqlPlanCacheSize = maxSqlPlanCacheSize;
+    }
+
     public int getDefaultLockTimeout() {
         return defaultLockTimeout;
     }
@@ -1687,6 +3554,162 @@ public class DmlJdbc extends AbstractDml implements Dml {
         this.alwaysWithNoLock = alwaysWithNoLock;
     }
 
+    public String getWarmUpBasePackage() {
+        return warmUpBasePackage;
+    }
+
+    public void setWarmUpBasePackage(String warmUpBasePackage) {
+        this.warmUpBasePackage = warmUpBasePackage;
+    }
+
+    public int getWarmUpThreadCount() {
+        return warmUpThreadCount;
+    }
+
+    public void setWarmUpThreadCount(int warmUpThreadCount) {
+        this.warmUpThreadCount = warmUpThreadCount;
+    }
+
+    public int getPartitionThreadCount() {
+        return partitionThreadCount;
+    }
+
+    /**
+     * @param partitionThreadCount
+     *            Max number of the partitions selected at the same time, which should be less than the connection pool size
+     */
+    public void setPartitionThreadCount(int partitionThreadCount) {
+        this.partitionThreadCount = partitionThreadCount;
+    }
+
+    public synchronized ExecutorService getPartitionExecutor() {
+        if (partitionExecutor == null) {
+            partitionExecutorOwned = true;
+            partitionExecutor = Executors.newFixedThreadPool(Math.max(partitionThreadCount, 1), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "dbist-partition-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return partitionExecutor;
+    }
+
+    /**
+     * @param partitionExecutor
+     *            Executor of the partitioned scans (a fixed pool of partitionThreadCount by default)
+     */
+    public synchronized void setPartitionExecutor(ExecutorService partitionExecutor) {
+        if (this.partitionExecutor != null && partitionExecutorOwned)
+            this.partitionExecutor.shutdownNow();
+        this.partitionExecutor = partitionExecutor;
+        this.partitionExecutorOwned = false;
+    }
+
+    /**
+     * Shut down the default partition executor and the metadata snapshot executor, saving the snapshot if a save is scheduled.
+     */
+    public synchronized void destroy() {
+        if (partitionExecutor != null && partitionExecutorOwned)
+            partitionExecutor.shutdownNow();
+        partitionExecutor = null;
+        partitionExecutorOwned = false;
+        if (metadataSnapshotExecutor != null) {
+            metadataSnapshotExecutor.shutdownNow();
+            metadataSnapshotExecutor = null;
+            if (metadataSnapshotSaveScheduled.getAndSet(false))
+                metadataSnapshot.save(metadataSnapshotFile);
+        }
+    }
+
+    public int getStreamFetchSize() {
+        return streamFetchSize;
+    }
+
+    /**
+     * Fetch size of the cursor of selectStream (0 means the driver default).<br>
+     * PostgreSQL uses the cursor only in a transaction, and MySQL needs Integer.MIN_VALUE or useCursorFetch=true.
+     *
+     * @param streamFetchSize
+     */
+    public void setStreamFetchSize(int streamFetchSize) {
+        this.streamFetchSize = streamFetchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Max number of rows sent by a JDBC batch of insertBatch, updateBatch, upsertBatch and deleteBatch (0 or less means all the rows at once).
+     *
+     * @param batchSize
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public boolean isMultiRowInsert() {
+        return multiRowInsert;
+    }
+
+    /**
+     * Whether insertBatch uses multi-row insert statements (mysql, postgresql, h2 and oracle).<br>
+     * Rows per statement are limited by batchSize and the bind parameter limit of the database.
+     *
+     * @param multiRowInsert
+     */
+    public void setMultiRowInsert(boolean multiRowInsert) {
+        this.multiRowInsert = multiRowInsert;
+    }
+
+    public boolean isDirtyCheckingEnabled() {
+        return dirtyCheckingEnabled;
+    }
+
+    /**
+     * Whether the entities selected by select and selectList are snapshotted, so that update and updateBatch without fieldNames set
+     * only the columns changed since then (default false).<br>
+     * Unchanged entities are not updated at all. Entities not selected through this bean are updated with all the columns.
+     *
+     * @param dirtyCheckingEnabled
+     */
+    public void setDirtyCheckingEnabled(boolean dirtyCheckingEnabled) {
+        this.dirtyCheckingEnabled = dirtyCheckingEnabled;
+    }
+
+    public String getPageCountMode() {
+        return pageCountMode;
+    }
+
+    /**
+     * Default count mode of selectPage (Query.COUNT_SEPARATE, Query.COUNT_WINDOW or Query.COUNT_NONE).
+     *
+     * @param pageCountMode
+     */
+    public void setPageCountMode(String pageCountMode) {
+        this.pageCountMode = pageCountMode;
+    }
+
+    public String getMetadataSnapshotDir() {
+        return metadataSnapshotDir;
+    }
+
+    public void setMetadataSnapshotDir(String metadataSnapshotDir) {
+        this.metadataSnapshotDir = metadataSnapshotDir;
+    }
+
+    public int getMetadataSnapshotRevalidationDelay() {
+        return metadataSnapshotRevalidationDelay;
+    }
+
+    public void setMetadataSnapshotRevalidationDelay(int metadataSnapshotRevalidationDelay) {
+        this.metadataSnapshotRevalidationDelay = metadataSnapshotRevalidationDelay;
+    }
+
     public QueryMapper getQueryMapper() {
         return queryMapper;
     }
@@ -1780,14 +3803,12 @@ public class DmlJdbc extends AbstractDml implements Dml {
     public Table getTable(Object obj) {
         final Class<?> clazz = obj instanceof Class ? (Class<?>) obj : obj.getClass();
 
-        final boolean debug = logger.isDebugEnabled();
+        // Lock free fast path (no key string, no monitor)
+        Table cached = tableByClassCache.get(clazz);
+        if (cached != null)
+            return cached;
 
-        // if (tableByClassCache.containsKey(clazz)) {
-        // if (debug)
-        // logger.debug("get table metadata from map cache by class: " +
-        // clazz.getName());
-        // return tableByClassCache.get(clazz);
-        // }
+        final boolean debug = logger.isDebugEnabled();
 
         return SyncCtrlUtils.wrap("DmlJdbc.tableByClass." + clazz.getName(), tableByClassCache, clazz, new Closure<Table, RuntimeException>() {
             public Table execute() {
@@ -1797,35 +3818,118 @@ public class DmlJdbc extends AbstractDml implements Dml {
                 table.setClazz(clazz);
                 table.setDbType(getDbType());
                 table.setReservedWordTolerated(isReservedWordTolerated());
-
-                // Domain and Name
                 org.dbist.annotation.Table tableAnn = clazz.getAnnotation(org.dbist.annotation.Table.class);
-                if (tableAnn != null) {
-                    if (!ValueUtils.isEmpty(tableAnn.domain()))
-                        table.setDomain(tableAnn.domain().toLowerCase());
-                    if (!ValueUtils.isEmpty(tableAnn.name()))
-                        table.setName(tableAnn.name().toLowerCase());
-                    if (tableAnn.reservedWordTolerated())
-                        table.setReservedWordTolerated(true);
-                }
-
-                String simpleName = clazz.getSimpleName();
-                String[] tableNameCandidates = ValueUtils.isEmpty(table.getName()) ? new String[]{ValueUtils.toDelimited(simpleName, '_', false),
-                    ValueUtils.toDelimited(simpleName, '_', true), simpleName.toLowerCase()} : new String[]{table.getName()};
-
-                checkAndPopulateDomainAndName(table, tableNameCandidates);
-
-                // Columns
+                if (tableAnn != null && tableAnn.reservedWordTolerated())
+                    table.setReservedWordTolerated(true);
+
+                // Domain, Name, PK and column types (from the metadata snapshot or the catalog)
+                TableSnapshot tableSnapshot = getTableSnapshot(clazz);
+                table.setDomain(tableSnapshot.getDomain());
+                table.setName(tableSnapshot.getName());
+                table.setType(tableSnapshot.getType());
+                table.setPkColumnNameList(new ArrayList<>(tableSnapshot.getPkColumnNameList()));
+                populatePkFieldNames(table);
+
+                // Columns (matched in memory)
+                Map<String, ColumnEntry> columnEntryMap = toColumnEntryMap(tableSnapshot.getColumnList());
                 for (Field field : ReflectionUtils.getFieldList(clazz, false))
-                    addColumn(table, field);
+                    addColumn(table, field, columnEntryMap, tableSnapshot.getSequenceByFieldNameMap());
+                if (tableAnn != null && tableAnn.manageVersion())
+                    table.setVersionColumn(toVersionColumn(table, tableAnn.versionField()));
 
                 table.setQueryMapper(queryMapper);
+                table.setEntityCache(toEntityCache(table, tableAnn));
 
                 return table;
             }
         });
     }
 
+    private static Column toVersionColumn(Table table, String fieldName) {
+        Column column = table.getColumnByFieldName(fieldName);
+        if (column == null)
+            throw new DbistRuntimeException("Couldn't find the version field " + fieldName + " of " + table.getClazz().getName());
+        Class<?> type = column.getField().getType();
+        if (column.isPrimaryKey() || !(Number.class.isAssignableFrom(type) || int.class.equals(type) || long.class.equals(type)))
+            throw new DbistRuntimeException("Version field must be a numeric field which isn't a primary key: " + table.getClazz().getName() + "."
+                + fieldName);
+        return column;
+    }
+
+    private EntityCache toEntityCache(Table table, org.dbist.annotation.Table tableAnn) {
+        if (ValueUtils.isEmpty(table.getPkFieldNames()))
+            return null;
+        if (entityCacheMap != null && entityCacheMap.containsKey(table.getClazz().getName()))
+            return entityCacheMap.get(table.getClazz().getName());
+        if (tableAnn == null || ValueUtils.isEmpty(tableAnn.cache()))
+            return null;
+        return new EntityCache(tableAnn.cache(), tableAnn.cacheMaxSize(), tableAnn.cacheTimeToLive());
+    }
+
+    private TableSnapshot getTableSnapshot(Class<?> clazz) {
+        if (metadataSnapshot == null)
+            return readTableSnapshot(clazz);
+
+        TableSnapshot tableSnapshot = metadataSnapshot.get(clazz);
+        if (tableSnapshot != null)
+            return tableSnapshot;
+        tableSnapshot = readTableSnapshot(clazz);
+        metadataSnapshot.put(clazz.getName(), tableSnapshot);
+        scheduleMetadataSnapshotSave();
+        return tableSnapshot;
+    }
+
+    /**
+     * Read catalog information of the class from the database (columns are read at once).
+     */
+    private TableSnapshot readTableSnapshot(Class<?> clazz) {
+        Table table = new Table();
+        table.setClazz(clazz);
+
+        // Domain and Name
+        org.dbist.annotation.Table tableAnn = clazz.getAnnotation(org.dbist.annotation.Table.class);
+        if (tableAnn != null) {
+            if (!ValueUtils.isEmpty(tableAnn.domain()))
+                table.setDomain(tableAnn.domain().toLowerCase());
+            if (!ValueUtils.isEmpty(tableAnn.name()))
+                table.setName(tableAnn.name().toLowerCase());
+        }
+
+        String simpleName = clazz.getSimpleName();
+        String[] tableNameCandidates = ValueUtils.isEmpty(table.getName()) ? new String[]{ValueUtils.toDelimited(simpleName, '_', false),
+            ValueUtils.toDelimited(simpleName, '_', true), simpleName.toLowerCase()} : new String[]{table.getName()};
+
+        checkAndPopulateDomainAndName(table, tableNameCandidates);
+
+        TableSnapshot tableSnapshot = new TableSnapshot();
+        tableSnapshot.setFingerprint(MetadataSnapshot.toFingerprint(clazz));
+        tableSnapshot.setDomain(table.getDomain());
+        tableSnapshot.setName(table.getName());
+        tableSnapshot.setType(table.getType());
+        tableSnapshot.setPkColumnNameList(table.getPkColumnNameList());
+
+        // Columns
+        for (TableColumn tableColumn : getTableColumnList(table))
+            tableSnapshot.getColumnList().add(new ColumnEntry(tableColumn.getName(), tableColumn.getDataType(), tableColumn.getLength(),
+                tableColumn.isNullable()));
+
+        // Identity / Sequence
+        List<Field> fieldList = ReflectionUtils.getFieldList(clazz, false);
+        Set<String> identityColumnNameSet = getIdentityColumnNameSet(table, fieldList);
+        tableSnapshot.setIdentityColumnNameSet(identityColumnNameSet);
+        Map<String, ColumnEntry> columnEntryMap = toColumnEntryMap(tableSnapshot.getColumnList());
+        for (Field field : fieldList) {
+            org.dbist.annotation.Sequence seqAnn = field.getAnnotation(org.dbist.annotation.Sequence.class);
+            if (seqAnn == null || field.getAnnotation(Ignore.class) != null || field.getAnnotation(Relation.class) != null)
+                continue;
+            ColumnEntry columnEntry = toColumnEntry(table, field, columnEntryMap);
+            Sequence seq = toSequence(table, columnEntry.getName(), seqAnn, identityColumnNameSet);
+            tableSnapshot.getSequenceByFieldNameMap().put(field.getName(), new SequenceEntry(seq));
+        }
+
+        return tableSnapshot;
+    }
+
     private static final String MSG_QUERYNOTFOUND = "Couldn't find ${queryName} query of dbType: ${dbType}. this type maybe unsupported yet.";
 
     //	private static final
@@ -1896,20 +4000,26 @@ public class DmlJdbc extends AbstractDml implements Dml {
         }
 
         table.setPkColumnNameList(pkNameList);
-        if (ValueUtils.isEmpty(table.getPkColumnNameList())) {
-            List<String> list = new ArrayList<>();
-            for (Field field : ReflectionUtils.getFieldList(table.getClazz(), false)) {
-                if (field.getAnnotation(PrimaryKey.class) == null)
-                    continue;
-                list.add(field.getName());
-            }
-            if (!list.isEmpty())
-                table.setPkFieldNames(list.toArray(new String[list.size()]));
-        }
 
         return table;
     }
 
+    /**
+     * Use @PrimaryKey fields if the table has no primary key.
+     */
+    private static void populatePkFieldNames(Table table) {
+        if (!ValueUtils.isEmpty(table.getPkColumnNameList()))
+            return;
+        List<String> list = new ArrayList<>();
+        for (Field field : ReflectionUtils.getFieldList(table.getClazz(), false)) {
+            if (field.getAnnotation(PrimaryKey.class) == null)
+                continue;
+            list.add(field.getName());
+        }
+        if (!list.isEmpty())
+            table.setPkFieldNames(list.toArray(new String[list.size()]));
+    }
+
     private static String toFirstDomainName(String domainName) {
         int dotIndex = domainName.indexOf('.');
         return dotIndex < 0 ? domainName : domainName.substring(0, dotIndex);
@@ -1930,9 +4040,59 @@ public class DmlJdbc extends AbstractDml implements Dml {
         return jdbcOperations.query(sql, new Object[]{tableName}, this.getTableColumnRowMapper());
     }
 
+    private static Map<String, ColumnEntry> toColumnEntryMap(List<ColumnEntry> columnEntryList) {
+        Map<String, ColumnEntry> columnEntryMap = new HashMap<>(columnEntryList.size());
+        for (ColumnEntry columnEntry : columnEntryList)
+            columnEntryMap.put(columnEntry.getName(), columnEntry);
+        return columnEntryMap;
+    }
+
+    /**
+     * Identity column names of the table. It is queried only if the class has any @Sequence field.
+     */
+    private Set<String> getIdentityColumnNameSet(Table table, List<Field> fieldList) {
+        String sql = getQueryIdentityColumnNames();
+        if (ValueUtils.isEmpty(sql))
+            return Collections.emptySet();
+
+        boolean sequenced = false;
+        for (Field field : fieldList) {
+            if (field.getAnnotation(org.dbist.annotation.Sequence.class) == null)
+                continue;
+            sequenced = true;
+            break;
+        }
+        if (!sequenced)
+            return Collections.emptySet();
+
+        sql = StringUtils.replace(sql, "${domain}", toFirstDomainName(table.getDomain()));
+        return new HashSet<>(jdbcOperations.queryForList(sql, String.class, table.getName()));
+    }
+
+    private Map<String, Set<String>> sequenceNameSetByDomainCache = new ConcurrentHashMap<>();
+
+    /**
+     * Sequence names of the domain. It is cached by domain and refreshed once if the name is not found.
+     */
+    private boolean containsSequence(String domainName, String name) {
+        String sql = getQuerySequenceNames();
+        if (ValueUtils.isEmpty(sql)) {
+            sql = StringUtils.replace(getQueryCountSequence(), "${domain}", toFirstDomainName(domainName));
+            return jdbcOperations.queryForObject(sql, Integer.class, name) > 0;
+        }
+
+        Set<String> nameSet = sequenceNameSetByDomainCache.get(domainName);
+        if (nameSet != null && nameSet.contains(name))
+            return true;
+        sql = StringUtils.replace(sql, "${domain}", toFirstDomainName(domainName));
+        nameSet = new HashSet<>(jdbcOperations.queryForList(sql, String.class));
+        sequenceNameSetByDomainCache.put(domainName, nameSet);
+        return nameSet.contains(name);
+    }
+
     private static final String MSG_COLUMNNOTFOUND = "Couldn't find column[${column}] of table[${table}].";
 
-    private void addColumn(Table table, Field field) {
+    private void addColumn(Table table, Field field, Map<String, ColumnEntry> columnEntryMap, Map<String, SequenceEntry> sequenceByFieldNameMap) {
         Ignore ignoreAnn = field.getAnnotation(Ignore.class);
         if (ignoreAnn != null)
             return;
@@ -1968,109 +4128,102 @@ public class DmlJdbc extends AbstractDml implements Dml {
             return;
         }
 
-        String tableName = table.getName();
-
         // Column
         {
-            String sql = "view".equals(table.getType()) ? getQueryViewColumn() : getQueryColumn();
-            if (sql == null)
-                throw new IllegalArgumentException(ValueUtils.populate(MSG_QUERYNOTFOUND,
-                    ValueUtils.toMap("queryName: table column", "dbType:" + getDbType())));
-
-            sql = StringUtils.replace(sql, "${domain}", toFirstDomainName(table.getDomain()));
             org.dbist.annotation.Column columnAnn = field.getAnnotation(org.dbist.annotation.Column.class);
-            TableColumn tabColumn = null;
-
             if (columnAnn != null) {
-                if (!ValueUtils.isEmpty(columnAnn.name())) {
-                    try {
-                        tabColumn = jdbcOperations.queryForObject(sql, this.getTableColumnRowMapper(), tableName, columnAnn.name().toLowerCase());
-                    } catch (EmptyResultDataAccessException e) {
-                        throw new DbistRuntimeException(ValueUtils.populate(MSG_COLUMNNOTFOUND,
-                            ValueUtils.toMap("column:" + columnAnn.name(), "table:" + table.getDomain() + "." + tableName)));
-                    }
-                }
                 column.setType(ValueUtils.toNull(columnAnn.type().value()));
                 if (!ValueUtils.isEmpty(columnAnn.generator()))
                     table.getValueGeneratorByFieldMap().put(field, getValueGenerator(columnAnn.generator()));
             }
-            if (tabColumn == null) {
-                List<String> columnNameCandidates = new ArrayList<>(3);
-                String candidate1 = ValueUtils.toDelimited(field.getName(), '_').toLowerCase();
-                columnNameCandidates.add(candidate1);
-                String candidate2 = ValueUtils.toDelimited(field.getName(), '_', true);
-                if (!columnNameCandidates.contains(candidate2))
-                    columnNameCandidates.add(candidate2);
-                String candidate3 = field.getName().toLowerCase();
-                if (!columnNameCandidates.contains(candidate3))
-                    columnNameCandidates.add(candidate3);
-                Set<String> checkedSet = new HashSet<>();
-                for (String columnName : columnNameCandidates) {
-                    if (checkedSet.contains(columnName))
-                        continue;
-                    try {
-                        tabColumn = jdbcOperations.queryForObject(sql, this.getTableColumnRowMapper(), tableName, columnName);
-                    } catch (EmptyResultDataAccessException e) {
-                        checkedSet.add(columnName);
-                        continue;
-                    }
-                    break;
-                }
-                if (tabColumn == null)
-                    throw new DbistRuntimeException(ValueUtils.populate(MSG_COLUMNNOTFOUND,
-                        ValueUtils.toMap("column:" + mapOr(columnNameCandidates), "table:" + table.getDomain() + "." + tableName)));
-            }
 
-            column.setName(tabColumn.getName());
-            column.setPrimaryKey(table.getPkColumnNameList().contains(tabColumn.getName()));
-            column.setDataType(tabColumn.getDataType().toLowerCase());
-            column.setLength(tabColumn.getLength());
-            column.setNullable(tabColumn.isNullable());
+            ColumnEntry columnEntry = toColumnEntry(table, field, columnEntryMap);
+            column.setName(columnEntry.getName());
+            column.setPrimaryKey(table.getPkColumnNameList().contains(columnEntry.getName()));
+            column.setDataType(columnEntry.getDataType().toLowerCase());
+            column.setLength(columnEntry.getLength());
+            column.setNullable(columnEntry.getNullable());
         }
 
         // Identity / Sequence
-        org.dbist.annotation.Sequence seqAnn = field.getAnnotation(org.dbist.annotation.Sequence.class);
-        if (seqAnn != null) {
-            Sequence seq = new Sequence();
-            column.setSequence(seq);
-
-            {
-                String sql = getQueryCountIdentity();
-                if (!ValueUtils.isEmpty(sql)) {
-                    sql = StringUtils.replace(sql, "${domain}", toFirstDomainName(table.getDomain()));
-                    if (jdbcOperations.queryForObject(sql, Integer.class, table.getName(), column.getName()) > 0)
-                        seq.setAutoIncrement(true);
-                }
-            }
+        SequenceEntry seqEntry = sequenceByFieldNameMap.get(field.getName());
+        if (seqEntry != null)
+            column.setSequence(seqEntry.toSequence());
+    }
+
+    /**
+     * Find the table column of the field by @Column name or the column name candidates of the field name.
+     */
+    private static ColumnEntry toColumnEntry(Table table, Field field, Map<String, ColumnEntry> columnEntryMap) {
+        String tableName = table.getName();
+        org.dbist.annotation.Column columnAnn = field.getAnnotation(org.dbist.annotation.Column.class);
+        if (columnAnn != null && !ValueUtils.isEmpty(columnAnn.name())) {
+            ColumnEntry columnEntry = columnEntryMap.get(columnAnn.name().toLowerCase());
+            if (columnEntry == null)
+                throw new DbistRuntimeException(ValueUtils.populate(MSG_COLUMNNOTFOUND,
+                    ValueUtils.toMap("column:" + columnAnn.name(), "table:" + table.getDomain() + "." + tableName)));
+            return columnEntry;
+        }
+
+        List<String> columnNameCandidates = new ArrayList<>(3);
+        String candidate1 = ValueUtils.toDelimited(field.getName(), '_').toLowerCase();
+        columnNameCandidates.add(candidate1);
+        String candidate2 = ValueUtils.toDelimited(field.getName(), '_', true);
+        if (!columnNameCandidates.contains(candidate2))
+            columnNameCandidates.add(candidate2);
+        String candidate3 = field.getName().toLowerCase();
+        if (!columnNameCandidates.contains(candidate3))
+            columnNameCandidates.add(candidate3);
+        for (String columnName : columnNameCandidates) {
+            ColumnEntry columnEntry = columnEntryMap.get(columnName);
+            if (columnEntry != null)
+                return columnEntry;
+        }
+        throw new DbistRuntimeException(ValueUtils.populate(MSG_COLUMNNOTFOUND,
+            ValueUtils.toMap("column:" + mapOr(columnNameCandidates), "table:" + table.getDomain() + "." + tableName)));
+    }
+
+    private Sequence toSequence(Table table, String columnName, org.dbist.annotation.Sequence seqAnn, Set<String> identityColumnNameSet) {
+        Sequence seq = new Sequence();
 
-            if (!seq.isAutoIncrement() && !ValueUtils.isEmpty(seqAnn.name())) {
-                String sql = getQueryCountSequence();
-                if (ValueUtils.isEmpty(sql)) {
+        if (!ValueUtils.isEmpty(getQueryIdentityColumnNames())) {
+            seq.setAutoIncrement(identityColumnNameSet.contains(columnName));
+        } else {
+            String sql = getQueryCountIdentity();
+            if (!ValueUtils.isEmpty(sql)) {
+                sql = StringUtils.replace(sql, "${domain}", toFirstDomainName(table.getDomain()));
+                if (jdbcOperations.queryForObject(sql, Integer.class, table.getName(), columnName) > 0)
                     seq.setAutoIncrement(true);
-                } else {
-                    List<String> domainNameList = ValueUtils.isEmpty(seqAnn.domain()) ? this.domainList : ValueUtils.toList(seqAnn.domain());
-                    String name = seqAnn.name().toLowerCase();
-
-                    boolean populated = false;
-                    for (String domainName : domainNameList) {
-                        domainName = domainName.toLowerCase();
-                        String _sql = StringUtils.replace(sql, "${domain}", toFirstDomainName(domainName));
-                        if (jdbcOperations.queryForObject(_sql, Integer.class, name) > 0) {
-                            seq.setDomain(domainName);
-                            seq.setName(name);
-                            populated = true;
-                            break;
-                        }
-                    }
+            }
+        }
 
-                    if (!populated) {
-                        String errMsg = "Couldn't find sequence[${sequence}] from this(these) domain(s)[${domain}]";
-                        throw new IllegalArgumentException(ValueUtils.populate(errMsg,
-                            ValueUtils.toMap("domain:" + mapOr(domainNameList), "sequence:" + name)));
+        if (!seq.isAutoIncrement() && !ValueUtils.isEmpty(seqAnn.name())) {
+            String sql = getQueryCountSequence();
+            if (ValueUtils.isEmpty(sql)) {
+                seq.setAutoIncrement(true);
+            } else {
+                List<String> domainNameList = ValueUtils.isEmpty(seqAnn.domain()) ? this.domainList : ValueUtils.toList(seqAnn.domain());
+                String name = seqAnn.name().toLowerCase();
+
+                boolean populated = false;
+                for (String domainName : domainNameList) {
+                    domainName = domainName.toLowerCase();
+                    if (containsSequence(domainName, name)) {
+                        seq.setDomain(domainName);
+                        seq.setName(name);
+                        populated = true;
+                        break;
                     }
                 }
+
+                if (!populated) {
+                    String errMsg = "Couldn't find sequence[${sequence}] from this(these) domain(s)[${domain}]";
+                    throw new IllegalArgumentException(ValueUtils.populate(errMsg,
+                        ValueUtils.toMap("domain:" + mapOr(domainNameList), "sequence:" + name)));
+                }
             }
         }
+        return seq;
     }
 
     private RowMapper<TableColumn> getTableColumnRowMapper() {
@@ -2108,14 +4261,6 @@ public class DmlJdbc extends AbstractDml implements Dml {
         return queryMapper.getQueryViewColumns();
     }
 
-    private String getQueryColumn() {
-        return queryMapper.getQueryColumn();
-    }
-
-    private String getQueryViewColumn() {
-        return queryMapper.getQueryViewColumn();
-    }
-
     private String getQueryCountIdentity() {
         return queryMapper.getQueryCountIdentity();
     }
@@ -2124,6 +4269,14 @@ public class DmlJdbc extends AbstractDml implements Dml {
         return queryMapper.getQueryCountSequence();
     }
 
+    private String getQueryIdentityColumnNames() {
+        return queryMapper.getQueryIdentityColumnNames();
+    }
+
+    private String getQuerySequenceNames() {
+        return queryMapper.getQuerySequenceNames();
+    }
+
     static class TableColumnRowMapper implements RowMapper<TableColumn> {
         public TableColumn mapRow(ResultSet rs, int rowNum) throws SQLException {
             Long length = rs.getLong("length");
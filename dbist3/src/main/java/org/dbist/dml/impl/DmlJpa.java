@@ -17,6 +17,7 @@ package org.dbist.dml.impl;
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.dbist.dml.AbstractDml;
 import org.dbist.dml.Dml;
@@ -105,6 +106,11 @@ public class DmlJpa extends AbstractDml implements Dml {
         return null;
     }
 
+    public <T> Stream<T> selectStream(Class<T> clazz, Object condition) throws Exception {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
     public <T> List<T> selectListByQl(String ql, Map<String, ?> paramMap, Class<T> requiredType, int pageIndex, int pageSize, int firstResultIndex,
                                       int maxResultSize) throws Exception {
         // TODO Auto-generated method stub
@@ -116,6 +122,11 @@ public class DmlJpa extends AbstractDml implements Dml {
         return 0;
     }
 
+    public <T> Stream<T> selectStreamByQl(String ql, Map<String, ?> paramMap, Class<T> requiredType) throws Exception {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
     public <T> List<T> selectListByQlPath(String qlPath, Map<String, ?> paramMap, Class<T> requiredType, int pageIndex, int pageSize,
                                           int firstResultIndex, int maxResultSize) throws Exception {
         // TODO Auto-generated method stub
@@ -17,8 +17,10 @@ package org.dbist.dml.jdbc;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import org.dbist.dml.Lock;
 import org.dbist.metadata.Sequence;
@@ -28,6 +30,10 @@ import org.dbist.metadata.Sequence;
  * @since 2013. 9. 7. (version 2.0.3)
  */
 public abstract class AbstractQueryMapper implements QueryMapper {
+    /**
+     * Named parameter (:name) of the statements, of which group 1 is the name
+     */
+    public static final Pattern PATTERN_PARAM = Pattern.compile(":([a-zA-Z_]\\w*)");
 
     private String reservedWordEscapingRule = "uppercase";
 
@@ -63,6 +69,115 @@ public abstract class AbstractQueryMapper implements QueryMapper {
         return sequence.getDomain() + "." + sequence.getName() + ".nextval";
     }
 
+    public boolean isSupportedUpsertQuery() {
+        return true;
+    }
+
+    public boolean isSupportedRowValueComparison() {
+        return false;
+    }
+
+    public boolean isSupportedWindowFunction() {
+        return false;
+    }
+
+    /**
+     * 1000, the limit of oracle
+     */
+    public int getMaxInListSize() {
+        return 1000;
+    }
+
+    /**
+     * Under the limit of 2100 parameters of sqlserver
+     */
+    public int getMaxBindParameterCount() {
+        return 2000;
+    }
+
+    public String toMultiRowInsert(String insertSql, int rowCount) {
+        return null;
+    }
+
+    public String toArrayTypeName(Class<?> elementType) {
+        return null;
+    }
+
+    public BulkLoader getBulkLoader() {
+        return null;
+    }
+
+    /**
+     * insert into t(a, b) values(:a__0, :b__0), (:a__1, :b__1), ...
+     */
+    protected static String toMultiRowValues(String insertSql, int rowCount) {
+        int index = insertSql.indexOf(" values(");
+        if (index < 0)
+            return null;
+        String values = insertSql.substring(index + " values".length());
+        StringBuffer buf = new StringBuffer(insertSql.length() + values.length() * rowCount).append(insertSql, 0, index).append(" values");
+        for (int i = 0; i < rowCount; i++)
+            buf.append(i == 0 ? "" : ", ").append(toRowParams(values, i));
+        return buf.toString();
+    }
+
+    protected static String toRowParams(String str, int row) {
+        return PATTERN_PARAM.matcher(str).replaceAll(":$1__" + row);
+    }
+
+    /**
+     * Standard merge statement (db2 style)
+     */
+    public String toUpsert(String tableName, List<String> columnNames, List<String> fieldNames, List<String> keyColumnNames) {
+        StringBuffer buf = new StringBuffer("merge into ").append(tableName).append(" mrgtbl_ using (values(");
+        appendParams(buf, fieldNames).append(")) mrgsrc_(");
+        appendNames(buf, columnNames).append(")");
+        appendMergeClauses(buf, columnNames, keyColumnNames);
+        return buf.toString();
+    }
+
+    protected StringBuffer appendInsert(StringBuffer buf, String tableName, List<String> columnNames, List<String> fieldNames) {
+        buf.append("insert into ").append(tableName).append("(");
+        appendNames(buf, columnNames).append(") values(");
+        appendParams(buf, fieldNames).append(")");
+        return buf;
+    }
+
+    protected StringBuffer appendMergeClauses(StringBuffer buf, List<String> columnNames, List<String> keyColumnNames) {
+        buf.append(" on (");
+        int i = 0;
+        for (String columnName : keyColumnNames)
+            buf.append(i++ == 0 ? "" : " and ").append("mrgtbl_.").append(columnName).append(" = mrgsrc_.").append(columnName);
+        buf.append(")");
+        i = 0;
+        for (String columnName : columnNames) {
+            if (keyColumnNames.contains(columnName))
+                continue;
+            buf.append(i++ == 0 ? " when matched then update set " : ", ").append(columnName).append(" = mrgsrc_.").append(columnName);
+        }
+        buf.append(" when not matched then insert (");
+        appendNames(buf, columnNames).append(") values (");
+        i = 0;
+        for (String columnName : columnNames)
+            buf.append(i++ == 0 ? "" : ", ").append("mrgsrc_.").append(columnName);
+        buf.append(")");
+        return buf;
+    }
+
+    protected static StringBuffer appendNames(StringBuffer buf, List<String> names) {
+        int i = 0;
+        for (String name : names)
+            buf.append(i++ == 0 ? "" : ", ").append(name);
+        return buf;
+    }
+
+    protected static StringBuffer appendParams(StringBuffer buf, List<String> fieldNames) {
+        int i = 0;
+        for (String fieldName : fieldNames)
+            buf.append(i++ == 0 ? ":" : ", :").append(fieldName);
+        return buf;
+    }
+
     public String toEscapement(char escape) {
         return "escape '" + escape + "'";
     }
@@ -1875,4 +1990,12 @@ public abstract class AbstractQueryMapper implements QueryMapper {
         return getQueryColumn();
     }
 
+    public String getQueryIdentityColumnNames() {
+        return "";
+    }
+
+    public String getQuerySequenceNames() {
+        return "";
+    }
+
 }
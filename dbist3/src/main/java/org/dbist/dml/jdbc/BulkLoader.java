@@ -0,0 +1,173 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.jdbc;
+
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.dbist.exception.DbistRuntimeException;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Native bulk load protocol of a database (e.g. copy from stdin), which reads the rows as text from an input stream.<br>
+ * The rows are encoded while the driver reads the stream, so they are never held all together.
+ */
+public abstract class BulkLoader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * @param tableName
+     *            The escaped table name with the domain
+     * @param columnNames
+     *            The escaped column names in the order of the row values
+     * @return The bulk load statement
+     */
+    public abstract String toSql(String tableName, List<String> columnNames);
+
+    /**
+     * Append a non-null value to a row of the input
+     */
+    protected abstract void appendValue(StringBuffer buf, Object value);
+
+    /**
+     * Append the value which means null to a row of the input
+     */
+    protected abstract void appendNull(StringBuffer buf);
+
+    /**
+     * Execute the statement with the input by the driver API
+     *
+     * @return The loaded row count
+     */
+    protected abstract long execute(Connection con, String sql, InputStream in) throws SQLException;
+
+    /**
+     * Whether values of the type can be written as text (binary types are not supported)
+     */
+    public boolean isSupportedType(Class<?> type) {
+        return !type.isArray() && !java.sql.Blob.class.isAssignableFrom(type) && !java.sql.Clob.class.isAssignableFrom(type);
+    }
+
+    /**
+     * @param con
+     * @param sql
+     *            The statement by toSql
+     * @param rowIterator
+     *            The values of each row in the order of the columns of the statement
+     * @return The loaded row count
+     * @throws SQLException
+     */
+    public long load(Connection con, String sql, Iterator<Object[]> rowIterator) throws SQLException {
+        return execute(con, sql, new RowInputStream(rowIterator));
+    }
+
+    protected static String toText(Object value) {
+        if (value instanceof Timestamp || value instanceof java.sql.Date || value instanceof java.sql.Time)
+            return value.toString();
+        if (value instanceof Date)
+            return new Timestamp(((Date) value).getTime()).toString();
+        if (value instanceof BigDecimal)
+            return ((BigDecimal) value).toPlainString();
+        return value.toString();
+    }
+
+    /**
+     * The driver class, or null if it is not on the classpath
+     */
+    protected static Class<?> toClass(String className) {
+        try {
+            return ClassUtils.forName(className, BulkLoader.class.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Call the method of the driver class (not of the implementation class, which may not be accessible)
+     */
+    protected static Object invoke(Class<?> clazz, Object target, String methodName, Class<?>[] parameterTypes, Object... args) throws SQLException {
+        try {
+            Method method = clazz.getMethod(methodName, parameterTypes);
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException)
+                throw (SQLException) e.getCause();
+            throw new DbistRuntimeException(e.getCause());
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new DbistRuntimeException(e);
+        }
+    }
+
+    private class RowInputStream extends InputStream {
+        private final Iterator<Object[]> rowIterator;
+        private final StringBuffer buf = new StringBuffer(BUFFER_SIZE);
+        private byte[] bytes = new byte[0];
+        private int index;
+
+        RowInputStream(Iterator<Object[]> rowIterator) {
+            this.rowIterator = rowIterator;
+        }
+
+        public int read() {
+            if (!fill())
+                return -1;
+            return bytes[index++] & 0xFF;
+        }
+
+        public int read(byte[] b, int off, int len) {
+            if (len == 0)
+                return 0;
+            if (!fill())
+                return -1;
+            int size = Math.min(len, bytes.length - index);
+            System.arraycopy(bytes, index, b, off, size);
+            index += size;
+            return size;
+        }
+
+        private boolean fill() {
+            if (index < bytes.length)
+                return true;
+            buf.setLength(0);
+            while (buf.length() < BUFFER_SIZE && rowIterator.hasNext()) {
+                int i = 0;
+                for (Object value : rowIterator.next()) {
+                    if (i++ != 0)
+                        buf.append(',');
+                    if (value == null)
+                        appendNull(buf);
+                    else
+                        appendValue(buf, value);
+                }
+                buf.append('\n');
+            }
+            if (buf.length() == 0)
+                return false;
+            bytes = buf.toString().getBytes(StandardCharsets.UTF_8);
+            index = 0;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.jdbc;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.dbist.exception.DbistRuntimeException;
+import org.springframework.jdbc.support.JdbcUtils;
+
+/**
+ * load data local infile from an input stream set to the statement of MySQL Connector/J.<br>
+ * The connection needs allowLoadLocalInfile=true.
+ */
+public class BulkLoaderMysql extends BulkLoader {
+
+    public String toSql(String tableName, List<String> columnNames) {
+        StringBuffer buf = new StringBuffer("load data local infile 'stream' into table ").append(tableName);
+        buf.append(" character set utf8mb4 fields terminated by ',' optionally enclosed by '\"' escaped by '\\\\' lines terminated by '\\n' (");
+        int i = 0;
+        for (String columnName : columnNames)
+            buf.append(i++ == 0 ? "" : ", ").append(columnName);
+        return buf.append(")").toString();
+    }
+
+    protected void appendValue(StringBuffer buf, Object value) {
+        if (value instanceof Boolean) {
+            buf.append((Boolean) value ? '1' : '0');
+            return;
+        }
+        if (value instanceof Number) {
+            buf.append(toText(value));
+            return;
+        }
+        String str = toText(value);
+        buf.append('"');
+        for (int i = 0; i < str.length(); i++) {
+            char ch = str.charAt(i);
+            switch (ch) {
+                case '\\':
+                case '"':
+                    buf.append('\\').append(ch);
+                    break;
+                case '\n':
+                    buf.append("\\n");
+                    break;
+                case '\r':
+                    buf.append("\\r");
+                    break;
+                case '\0':
+                    buf.append("\\0");
+                    break;
+                default:
+                    buf.append(ch);
+            }
+        }
+        buf.append('"');
+    }
+
+    protected void appendNull(StringBuffer buf) {
+        buf.append("\\N");
+    }
+
+    protected long execute(Connection con, String sql, InputStream in) throws SQLException {
+        Statement stmt = con.createStatement();
+        try {
+            // Connector/J 8.x or 5.x
+            Class<?> statementClass = toClass("com.mysql.cj.jdbc.JdbcStatement");
+            if (statementClass == null)
+                statementClass = toClass("com.mysql.jdbc.Statement");
+            if (statementClass == null || !stmt.isWrapperFor(statementClass))
+                throw new DbistRuntimeException("Couldn't find MySQL JDBC statement to load data: " + stmt.getClass().getName());
+            invoke(statementClass, stmt.unwrap(statementClass), "setLocalInfileInputStream", new Class<?>[]{InputStream.class}, in);
+            return stmt.executeUpdate(sql);
+        } finally {
+            JdbcUtils.closeStatement(stmt);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.jdbc;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.dbist.exception.DbistRuntimeException;
+
+/**
+ * copy ... from stdin in csv format by the CopyManager of the PostgreSQL JDBC driver.
+ */
+public class BulkLoaderPostgresql extends BulkLoader {
+
+    public String toSql(String tableName, List<String> columnNames) {
+        StringBuffer buf = new StringBuffer("copy ").append(tableName).append(" (");
+        int i = 0;
+        for (String columnName : columnNames)
+            buf.append(i++ == 0 ? "" : ", ").append(columnName);
+        return buf.append(") from stdin with (format csv)").toString();
+    }
+
+    /**
+     * Strings are always quoted, since an unquoted empty value means null
+     */
+    protected void appendValue(StringBuffer buf, Object value) {
+        if (value instanceof Number || value instanceof Boolean) {
+            buf.append(toText(value));
+            return;
+        }
+        String str = toText(value);
+        buf.append('"');
+        for (int i = 0; i < str.length(); i++) {
+            char ch = str.charAt(i);
+            if (ch == '"')
+                buf.append('"');
+            buf.append(ch);
+        }
+        buf.append('"');
+    }
+
+    protected void appendNull(StringBuffer buf) {
+    }
+
+    protected long execute(Connection con, String sql, InputStream in) throws SQLException {
+        Class<?> pgConnectionClass = toClass("org.postgresql.PGConnection");
+        if (pgConnectionClass == null || !con.isWrapperFor(pgConnectionClass))
+            throw new DbistRuntimeException("Couldn't find PostgreSQL JDBC connection to copy: " + con.getClass().getName());
+        Object copyManager = invoke(pgConnectionClass, con.unwrap(pgConnectionClass), "getCopyAPI", new Class<?>[0]);
+        return ((Number) invoke(toClass("org.postgresql.copy.CopyManager"), copyManager, "copyIn", new Class<?>[]{String.class, InputStream.class},
+            sql, in)).longValue();
+    }
+}
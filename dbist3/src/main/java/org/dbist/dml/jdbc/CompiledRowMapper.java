@@ -0,0 +1,274 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.jdbc;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Date;
+
+import org.dbist.exception.DbistRuntimeException;
+
+/**
+ * Row mapper of an entity class compiled for a fixed result set column layout.<br>
+ * Column indexes, typed getters, setters and constructors are resolved once,
+ * so that mapping a row doesn't need any metadata or field lookup.
+ */
+public class CompiledRowMapper {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final MethodHandle constructor;
+    private final Binder[] binders;
+
+    /**
+     * @param clazz
+     *            The entity class
+     * @param indexes
+     *            The result set column indexes (1 based)
+     * @param fields
+     *            The field of each index
+     * @param subFields
+     *            The field of the relation object of each index, or null
+     */
+    public CompiledRowMapper(Class<?> clazz, int[] indexes, Field[] fields, Field[] subFields) {
+        try {
+            this.constructor = toConstructor(clazz);
+            this.binders = new Binder[indexes.length];
+            for (int i = 0; i < indexes.length; i++) {
+                Binder binder = toBinder(indexes[i], subFields[i] == null ? fields[i] : subFields[i]);
+                binders[i] = subFields[i] == null ? binder : new RelationBinder(fields[i], binder);
+            }
+        } catch (IllegalAccessException | NoSuchMethodException e) {
+            throw new DbistRuntimeException(e);
+        }
+    }
+
+    public Object mapRow(ResultSet rs) throws SQLException {
+        Object data;
+        try {
+            data = constructor.invokeExact();
+        } catch (Throwable e) {
+            throw new DbistRuntimeException(e);
+        }
+        for (Binder binder : binders)
+            binder.bind(rs, data);
+        return data;
+    }
+
+    private static MethodHandle toConstructor(Class<?> clazz) throws NoSuchMethodException, IllegalAccessException {
+        Constructor<?> constructor = clazz.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        return LOOKUP.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+    }
+
+    private static MethodHandle toSetter(Field field, Class<?> valueType) throws IllegalAccessException {
+        field.setAccessible(true);
+        return LOOKUP.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, valueType));
+    }
+
+    private static Binder toBinder(int index, Field field) throws IllegalAccessException {
+        Class<?> type = field.getType();
+        if (type.equals(int.class))
+            return new IntBinder(index, toSetter(field, int.class));
+        if (type.equals(long.class))
+            return new LongBinder(index, toSetter(field, long.class));
+        if (type.equals(double.class))
+            return new DoubleBinder(index, toSetter(field, double.class));
+        if (type.equals(float.class))
+            return new FloatBinder(index, toSetter(field, float.class));
+        if (type.equals(boolean.class))
+            return new BooleanBinder(index, toSetter(field, boolean.class));
+        if (type.equals(byte.class))
+            return new ByteBinder(index, toSetter(field, byte.class));
+        return new ObjectBinder(index, toSetter(field, Object.class), toValueReader(type));
+    }
+
+    /**
+     * Same conversion rule as the reflective mapping of DmlJdbc
+     */
+    private static ValueReader toValueReader(Class<?> type) {
+        if (type.equals(String.class))
+            return ResultSet::getString;
+        if (type.equals(Character.class) || type.equals(char.class))
+            return (rs, index) -> {
+                String str = rs.getString(index);
+                return str == null || str.length() == 0 ? null : str.charAt(0);
+            };
+        if (type.equals(BigDecimal.class))
+            return ResultSet::getBigDecimal;
+        if (type.equals(Date.class))
+            return ResultSet::getTimestamp;
+        if (type.equals(Double.class))
+            return ResultSet::getDouble;
+        if (type.equals(Float.class))
+            return ResultSet::getFloat;
+        if (type.equals(Long.class))
+            return ResultSet::getLong;
+        if (type.equals(Integer.class))
+            return ResultSet::getInt;
+        if (type.equals(Boolean.class))
+            return ResultSet::getBoolean;
+        if (type.equals(Byte[].class) || type.equals(byte[].class))
+            return ResultSet::getBytes;
+        if (type.equals(Byte.class))
+            return ResultSet::getByte;
+        return ResultSet::getObject;
+    }
+
+    @FunctionalInterface
+    private interface ValueReader {
+        Object read(ResultSet rs, int index) throws SQLException;
+    }
+
+    private static abstract class Binder {
+        protected final int index;
+        protected final MethodHandle setter;
+
+        Binder(int index, MethodHandle setter) {
+            this.index = index;
+            this.setter = setter;
+        }
+
+        /**
+         * Values which are not assignable to the field are ignored like the reflective mapping.
+         */
+        void bind(ResultSet rs, Object data) throws SQLException {
+            try {
+                set(rs, data);
+            } catch (SQLException e) {
+                throw e;
+            } catch (ClassCastException | NullPointerException e) {
+                // ignore
+            } catch (Throwable e) {
+                throw new DbistRuntimeException(e);
+            }
+        }
+
+        abstract void set(ResultSet rs, Object data) throws Throwable;
+    }
+
+    private static class IntBinder extends Binder {
+        IntBinder(int index, MethodHandle setter) {
+            super(index, setter);
+        }
+
+        void set(ResultSet rs, Object data) throws Throwable {
+            setter.invokeExact(data, rs.getInt(index));
+        }
+    }
+
+    private static class LongBinder extends Binder {
+        LongBinder(int index, MethodHandle setter) {
+            super(index, setter);
+        }
+
+        void set(ResultSet rs, Object data) throws Throwable {
+            setter.invokeExact(data, rs.getLong(index));
+        }
+    }
+
+    private static class DoubleBinder extends Binder {
+        DoubleBinder(int index, MethodHandle setter) {
+            super(index, setter);
+        }
+
+        void set(ResultSet rs, Object data) throws Throwable {
+            setter.invokeExact(data, rs.getDouble(index));
+        }
+    }
+
+    private static class FloatBinder extends Binder {
+        FloatBinder(int index, MethodHandle setter) {
+            super(index, setter);
+        }
+
+        void set(ResultSet rs, Object data) throws Throwable {
+            setter.invokeExact(data, rs.getFloat(index));
+        }
+    }
+
+    private static class BooleanBinder extends Binder {
+        BooleanBinder(int index, MethodHandle setter) {
+            super(index, setter);
+        }
+
+        void set(ResultSet rs, Object data) throws Throwable {
+            setter.invokeExact(data, rs.getBoolean(index));
+        }
+    }
+
+    private static class ByteBinder extends Binder {
+        ByteBinder(int index, MethodHandle setter) {
+            super(index, setter);
+        }
+
+        void set(ResultSet rs, Object data) throws Throwable {
+            setter.invokeExact(data, rs.getByte(index));
+        }
+    }
+
+    private static class ObjectBinder extends Binder {
+        private final ValueReader reader;
+
+        ObjectBinder(int index, MethodHandle setter, ValueReader reader) {
+            super(index, setter);
+            this.reader = reader;
+        }
+
+        void set(ResultSet rs, Object data) throws Throwable {
+            setter.invokeExact(data, reader.read(rs, index));
+        }
+    }
+
+    /**
+     * Binds the value to the field of the relation object, creating the relation object if it is null.
+     */
+    private static class RelationBinder extends Binder {
+        private final MethodHandle getter;
+        private final MethodHandle constructor;
+        private final Binder binder;
+
+        RelationBinder(Field field, Binder binder) throws IllegalAccessException, NoSuchMethodException {
+            super(binder.index, toSetter(field, Object.class));
+            this.getter = LOOKUP.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+            this.constructor = toConstructor(field.getType());
+            this.binder = binder;
+        }
+
+        void bind(ResultSet rs, Object data) throws SQLException {
+            Object subData;
+            try {
+                subData = getter.invokeExact(data);
+                if (subData == null) {
+                    subData = constructor.invokeExact();
+                    setter.invokeExact(data, subData);
+                }
+            } catch (Throwable e) {
+                throw new DbistRuntimeException(e);
+            }
+            binder.bind(rs, subData);
+        }
+
+        void set(ResultSet rs, Object data) throws Throwable {
+            bind(rs, data);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+
+/**
+ * Iterator of the rows of a forward-only, read-only cursor.<br>
+ * The connection (or the one of the current transaction), statement and result set are held until it is closed or read to the end.
+ */
+public class CursorIterator<T> implements Iterator<T>, AutoCloseable {
+    private final DataSource dataSource;
+    private final RowMapper<T> rowMapper;
+    private String sql;
+    private Connection con;
+    private PreparedStatement ps;
+    private ResultSet rs;
+    private int rowNum;
+    private boolean fetched;
+    private boolean hasNext;
+    private boolean closed;
+
+    public CursorIterator(DataSource dataSource, RowMapper<T> rowMapper) {
+        this.dataSource = dataSource;
+        this.rowMapper = rowMapper;
+    }
+
+    /**
+     * Execute the query
+     *
+     * @param sql
+     *            The SQL with ? placeholders
+     * @param params
+     *            The parameter values
+     * @param fetchSize
+     *            The fetch size of the statement (0 means the driver default)
+     */
+    public void open(String sql, Object[] params, int fetchSize) {
+        this.sql = sql;
+        con = DataSourceUtils.getConnection(dataSource);
+        try {
+            ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            if (fetchSize != 0)
+                ps.setFetchSize(fetchSize);
+            new ArgumentPreparedStatementSetter(params).setValues(ps);
+            rs = ps.executeQuery();
+        } catch (SQLException e) {
+            close();
+            throw translate(e);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public boolean hasNext() {
+        if (closed)
+            return false;
+        if (fetched)
+            return hasNext;
+        try {
+            hasNext = rs.next();
+        } catch (SQLException e) {
+            close();
+            throw translate(e);
+        }
+        fetched = true;
+        if (!hasNext)
+            close();
+        return hasNext;
+    }
+
+    public T next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        fetched = false;
+        try {
+            return rowMapper.mapRow(rs, rowNum++);
+        } catch (SQLException e) {
+            close();
+            throw translate(e);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        JdbcUtils.closeResultSet(rs);
+        JdbcUtils.closeStatement(ps);
+        DataSourceUtils.releaseConnection(con, dataSource);
+    }
+
+    private DataAccessException translate(SQLException e) {
+        DataAccessException dae = new SQLErrorCodeSQLExceptionTranslator(dataSource).translate("CursorIterator", sql, e);
+        return dae == null ? new UncategorizedSQLException("CursorIterator", sql, e) : dae;
+    }
+}
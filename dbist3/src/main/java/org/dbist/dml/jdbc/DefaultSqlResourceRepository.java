@@ -0,0 +1,306 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.jdbc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.collections.map.LRUMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.StreamUtils;
+
+import net.sf.common.util.ResourceUtils;
+import net.sf.common.util.ValueUtils;
+
+/**
+ * SqlResourceRepository which preloads the &lt;dbType&gt;.sql and ansi.sql files under the rootList at startup.<br>
+ * The preloaded SQL map is immutable and replaced on change, so lookups don't lock.
+ * Paths out of the rootList are read by ResourceUtils on the first lookup and cached by an LRU map of maxSize.<br>
+ * With watch, changes of the preloaded files in the file system are reloaded by a WatchService (e.g. in development).
+ */
+public class DefaultSqlResourceRepository implements SqlResourceRepository {
+    private static final Logger logger = LoggerFactory.getLogger(DefaultSqlResourceRepository.class);
+    private static final String ANSI_SQL = "ansi.sql";
+
+    private String dbType;
+    private List<String> rootList;
+    private boolean watch;
+    private int maxSize = 1000;
+
+    private volatile Map<String, String> sqlMap = Collections.emptyMap();
+    private volatile Map<String, String> overflowMap;
+    private int preloadedSize;
+    // Counted up to preloadedSize + maxSize paths
+    private final Map<String, LongAdder> lookupCountMap = new ConcurrentHashMap<String, LongAdder>();
+    private final Map<Path, String> keyByDirMap = new ConcurrentHashMap<Path, String>();
+    private WatchService watchService;
+    private Thread watchThread;
+
+    public void init(String dbType) throws IOException {
+        this.dbType = dbType;
+        overflowMap = newOverflowMap();
+        if (ValueUtils.isEmpty(rootList))
+            return;
+
+        long start = System.currentTimeMillis();
+        Map<String, String> map = new HashMap<String, String>();
+        for (String root : rootList)
+            preload(map, root);
+        sqlMap = Collections.unmodifiableMap(map);
+        preloadedSize = map.size();
+        logger.info("Preloaded " + map.size() + " SQL resources in " + (System.currentTimeMillis() - start) + "ms");
+
+        if (watch && !keyByDirMap.isEmpty())
+            startWatch();
+    }
+
+    private void preload(Map<String, String> map, String root) throws IOException {
+        String _root = trimSlash(root);
+        String location;
+        if (_root.startsWith("classpath*:"))
+            location = _root;
+        else if (_root.startsWith("classpath:"))
+            location = "classpath*:" + _root.substring("classpath:".length());
+        else
+            location = _root.startsWith("file:") ? _root : "file:" + _root;
+
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        for (Resource rootResource : resolver.getResources(location)) {
+            if (!rootResource.exists())
+                continue;
+            String rootUrl = trimSlash(rootResource.getURL().toString()) + "/";
+            // <dbType>.sql is preferred to ansi.sql of the same directory
+            Map<String, Resource> resourceByKeyMap = new HashMap<String, Resource>();
+            for (Resource resource : resolver.getResources(rootUrl + "**/*.sql")) {
+                String url = resource.getURL().toString();
+                String fileName = resource.getFilename();
+                if (!url.startsWith(rootUrl) || !(fileName.equals(dbType + ".sql") || fileName.equals(ANSI_SQL)))
+                    continue;
+                String relative = url.substring(rootUrl.length(), url.length() - fileName.length());
+                String key = relative.isEmpty() ? _root : _root + "/" + trimSlash(relative);
+                map.put(key + "/" + fileName, read(resource));
+                if (!resourceByKeyMap.containsKey(key) || !fileName.equals(ANSI_SQL))
+                    resourceByKeyMap.put(key, resource);
+            }
+            for (Map.Entry<String, Resource> entry : resourceByKeyMap.entrySet()) {
+                map.put(entry.getKey(), map.get(entry.getKey() + "/" + entry.getValue().getFilename()));
+                if (watch && "file".equals(entry.getValue().getURL().getProtocol()))
+                    keyByDirMap.put(entry.getValue().getFile().getParentFile().toPath(), entry.getKey());
+            }
+        }
+    }
+
+    public String getSql(String path) throws IOException {
+        ValueUtils.assertNotNull("path", path);
+        String key = trimSlash(path);
+        LongAdder lookupCount = lookupCountMap.get(key);
+        if (lookupCount == null && lookupCountMap.size() < preloadedSize + maxSize)
+            lookupCount = lookupCountMap.computeIfAbsent(key, k -> new LongAdder());
+        if (lookupCount != null)
+            lookupCount.increment();
+        String sql = sqlMap.get(key);
+        if (sql != null)
+            return sql;
+
+        Map<String, String> overflowMap = this.overflowMap;
+        sql = overflowMap == null ? null : overflowMap.get(key);
+        if (sql != null)
+            return sql;
+        sql = load(path);
+        // Not cached with watch, so that the changes of the paths out of the rootList are read as well
+        if (!watch && overflowMap != null && sql != null)
+            overflowMap.put(key, sql);
+        return sql;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String> newOverflowMap() {
+        return maxSize > 0 ? Collections.synchronizedMap(new LRUMap(maxSize)) : null;
+    }
+
+    private String load(String path) throws IOException {
+        // ResourceUtils.isDirectory is false for the directories in the classpath, so the files are looked up either way
+        String _path = path.endsWith("/") ? path : path + "/";
+        if (ResourceUtils.exists(_path + dbType + ".sql"))
+            path = _path + dbType + ".sql";
+        else if (ResourceUtils.exists(_path + ANSI_SQL))
+            path = _path + ANSI_SQL;
+        return ResourceUtils.readText(path);
+    }
+
+    private synchronized void put(String key, String sql) {
+        Map<String, String> map = new HashMap<String, String>(sqlMap);
+        if (sql == null)
+            map.remove(key);
+        else
+            map.put(key, sql);
+        sqlMap = Collections.unmodifiableMap(map);
+    }
+
+    private static String read(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String trimSlash(String path) {
+        return path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+
+    private void startWatch() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        for (Path dir : keyByDirMap.keySet())
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        watchThread = new Thread(this::watch, "dbist-sql-watch");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        logger.info("Watching " + keyByDirMap.size() + " SQL resource directories");
+    }
+
+    private void watch() {
+        while (true) {
+            WatchKey watchKey;
+            try {
+                watchKey = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = (Path) watchKey.watchable();
+            boolean changed = false;
+            for (WatchEvent<?> event : watchKey.pollEvents()) {
+                Object context = event.context();
+                if (context instanceof Path) {
+                    String fileName = context.toString();
+                    changed |= fileName.equals(dbType + ".sql") || fileName.equals(ANSI_SQL);
+                }
+            }
+            if (changed)
+                reload(dir);
+            if (!watchKey.reset())
+                keyByDirMap.remove(dir);
+        }
+    }
+
+    private void reload(Path dir) {
+        String key = keyByDirMap.get(dir);
+        if (key == null)
+            return;
+        try {
+            String sql = null;
+            for (String fileName : new String[] {ANSI_SQL, dbType + ".sql"}) {
+                File file = dir.resolve(fileName).toFile();
+                String text = file.isFile() ? new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8) : null;
+                put(key + "/" + fileName, text);
+                if (text != null)
+                    sql = text;
+            }
+            put(key, sql);
+            logger.info("Reloaded SQL resource: " + key);
+        } catch (IOException e) {
+            logger.warn("Couldn't reload SQL resource: " + key + " (" + e.getMessage() + ")");
+        }
+    }
+
+    public Map<String, Long> getLookupCountMap() {
+        Map<String, Long> map = new HashMap<String, Long>();
+        for (Map.Entry<String, LongAdder> entry : lookupCountMap.entrySet())
+            map.put(entry.getKey(), entry.getValue().sum());
+        return map;
+    }
+
+    public void clear() {
+        lookupCountMap.clear();
+        overflowMap = newOverflowMap();
+        if (ValueUtils.isEmpty(rootList)) {
+            synchronized (this) {
+                sqlMap = Collections.emptyMap();
+                preloadedSize = 0;
+            }
+            return;
+        }
+        try {
+            Map<String, String> map = new HashMap<String, String>();
+            for (String root : rootList)
+                preload(map, root);
+            synchronized (this) {
+                sqlMap = Collections.unmodifiableMap(map);
+                preloadedSize = map.size();
+            }
+        } catch (IOException e) {
+            logger.warn("Couldn't preload SQL resources (" + e.getMessage() + ")");
+        }
+    }
+
+    public void close() {
+        if (watchService == null)
+            return;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("Couldn't close the SQL resource watcher (" + e.getMessage() + ")");
+        }
+        watchThread.interrupt();
+        watchService = null;
+    }
+
+    public String getDbType() {
+        return dbType;
+    }
+
+    public List<String> getRootList() {
+        return rootList;
+    }
+
+    public void setRootList(List<String> rootList) {
+        this.rootList = rootList;
+    }
+
+    public boolean isWatch() {
+        return watch;
+    }
+
+    public void setWatch(boolean watch) {
+        this.watch = watch;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.jdbc;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Snapshots of the column values of selected entities, kept beside the entities for dirty checking.<br>
+ * Entities are held weakly and by identity, so the snapshot of an entity is dropped once the entity is garbage collected and
+ * entities overriding equals and hashCode don't share a snapshot.
+ */
+public class EntitySnapshotMap {
+    private final Map<Key, Object[]> map = new ConcurrentHashMap<Key, Object[]>();
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+    /**
+     * @param entity
+     * @return The snapshot of the entity, or null if the entity isn't tracked
+     */
+    public Object[] get(Object entity) {
+        expunge();
+        return map.get(new Key(entity, null));
+    }
+
+    public void put(Object entity, Object[] snapshot) {
+        expunge();
+        map.put(new Key(entity, queue), snapshot);
+    }
+
+    public void remove(Object entity) {
+        map.remove(new Key(entity, null));
+    }
+
+    public int size() {
+        expunge();
+        return map.size();
+    }
+
+    public void clear() {
+        map.clear();
+    }
+
+    private void expunge() {
+        Reference<?> reference;
+        while ((reference = queue.poll()) != null)
+            map.remove(reference);
+    }
+
+    private static class Key extends WeakReference<Object> {
+        private final int hash;
+
+        Key(Object entity, ReferenceQueue<Object> queue) {
+            super(entity, queue);
+            hash = System.identityHashCode(entity);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object obj) {
+            if (obj == this)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+            Object entity = get();
+            return entity != null && entity == ((Key) obj).get();
+        }
+    }
+}
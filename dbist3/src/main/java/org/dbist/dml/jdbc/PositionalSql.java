@@ -0,0 +1,162 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.jdbc;
+
+import java.lang.reflect.Field;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.dbist.exception.DbistRuntimeException;
+import org.dbist.metadata.Column;
+import org.dbist.metadata.Table;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+
+/**
+ * Positional (?) form of a named parameter statement of a table, with the field of each parameter.<br>
+ * The parameter values are read from the entities and bound to the statement directly, without any parameter map.
+ */
+public class PositionalSql {
+    private final String sql;
+    private final Field[] fields;
+
+    private PositionalSql(String sql, Field[] fields) {
+        this.sql = sql;
+        this.fields = fields;
+    }
+
+    /**
+     * @param namedSql
+     *            The statement whose parameters are field names of the table (e.g. Table.getInsertSql)
+     * @param table
+     * @return
+     */
+    public static PositionalSql compile(String namedSql, Table table) {
+        ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(namedSql);
+        // Parsed the same way as NamedParameterJdbcTemplate, resolving each parameter name to its field
+        MapSqlParameterSource fieldSource = new MapSqlParameterSource();
+        for (Column column : table.getColumnList())
+            fieldSource.addValue(column.getField().getName(), column.getField());
+        Object[] values;
+        try {
+            values = NamedParameterUtils.buildValueArray(parsedSql, fieldSource, null);
+        } catch (InvalidDataAccessApiUsageException e) {
+            throw new DbistRuntimeException("Couldn't find field of parameter in " + table.getClazz().getName() + ": " + namedSql, e);
+        }
+        Field[] fields = new Field[values.length];
+        for (int i = 0; i < values.length; i++)
+            fields[i] = (Field) values[i];
+        return new PositionalSql(NamedParameterUtils.substituteNamedParameters(parsedSql, null), fields);
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public Field[] getFields() {
+        return fields;
+    }
+
+    public Object[] toValues(Object data) {
+        Object[] values = new Object[fields.length];
+        try {
+            for (int i = 0; i < fields.length; i++)
+                values[i] = toValue(fields[i].get(data));
+        } catch (IllegalAccessException e) {
+            throw new DbistRuntimeException(e);
+        }
+        return values;
+    }
+
+    private static Object toValue(Object value) {
+        if (value instanceof Character)
+            return value.toString();
+        return value;
+    }
+
+    private void setValues(PreparedStatement ps, Object data) throws SQLException {
+        try {
+            for (int i = 0; i < fields.length; i++)
+                StatementCreatorUtils.setParameterValue(ps, i + 1, SqlTypeValue.TYPE_UNKNOWN, toValue(fields[i].get(data)));
+        } catch (IllegalAccessException e) {
+            throw new DbistRuntimeException(e);
+        }
+    }
+
+    public PreparedStatementSetter toSetter(Object data) {
+        return new RowSetter(data);
+    }
+
+    public BatchPreparedStatementSetter toBatchSetter(List<?> list) {
+        return new BatchSetter(list);
+    }
+
+    /**
+     * Statement setter which can show its parameter values (e.g. to be logged)
+     */
+    public interface Setter {
+        /**
+         * @return The values of a row, or an array of the values of each row of a batch
+         */
+        Object[] getValues();
+    }
+
+    private class RowSetter implements PreparedStatementSetter, Setter {
+        private final Object data;
+
+        RowSetter(Object data) {
+            this.data = data;
+        }
+
+        public void setValues(PreparedStatement ps) throws SQLException {
+            PositionalSql.this.setValues(ps, data);
+        }
+
+        public Object[] getValues() {
+            return toValues(data);
+        }
+    }
+
+    private class BatchSetter implements BatchPreparedStatementSetter, Setter {
+        private final List<?> list;
+
+        BatchSetter(List<?> list) {
+            this.list = list;
+        }
+
+        public void setValues(PreparedStatement ps, int i) throws SQLException {
+            PositionalSql.this.setValues(ps, list.get(i));
+        }
+
+        public int getBatchSize() {
+            return list.size();
+        }
+
+        public Object[] getValues() {
+            Object[] values = new Object[list.size()];
+            for (int i = 0; i < values.length; i++)
+                values[i] = toValues(list.get(i));
+            return values;
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.dbist.dml.jdbc;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -34,6 +35,74 @@ public interface QueryMapper {
 
     String applyPagination(String sql, Map<String, ?> paramMap, int pageIndex, int pageSize, int firstResultIndex, int maxResultSize);
 
+    boolean isSupportedUpsertQuery();
+
+    /**
+     * Whether row value comparison like (a, b) &gt; (?, ?) is supported (used by keyset pagination).
+     *
+     * @return
+     */
+    boolean isSupportedRowValueComparison();
+
+    /**
+     * Whether window functions like count(*) over() are supported (used to count the total size in the page query).
+     *
+     * @return
+     */
+    boolean isSupportedWindowFunction();
+
+    /**
+     * Max number of values bound to an in condition (used to chunk the fetch queries).
+     *
+     * @return
+     */
+    int getMaxInListSize();
+
+    /**
+     * Max number of parameters bound to a statement (used to size the multi-row insert statements).
+     *
+     * @return
+     */
+    int getMaxBindParameterCount();
+
+    /**
+     * SQL type name of the array elements, to bind the values of an in condition as a single array parameter (= any(:values)).
+     *
+     * @param elementType
+     *            The field type (not primitive)
+     * @return null if the arrays of the type are not supported
+     */
+    String toArrayTypeName(Class<?> elementType);
+
+    /**
+     * Build an insert statement of rowCount rows from a single row insert statement like Table.getInsertSql.<br>
+     * The parameter :name of the n-th row (0 based) is renamed to :name__n.
+     *
+     * @param insertSql
+     * @param rowCount
+     * @return null if multi-row insert is not supported
+     */
+    String toMultiRowInsert(String insertSql, int rowCount);
+
+    /**
+     * Native bulk load protocol of the database.
+     *
+     * @return null if not supported
+     */
+    BulkLoader getBulkLoader();
+
+    /**
+     * Build a single insert-or-update statement.<br>
+     * columnNames and keyColumnNames must be already escaped, fieldNames are the parameter names in the same order as columnNames.
+     *
+     * @param tableName
+     * @param columnNames
+     * @param fieldNames
+     * @param keyColumnNames
+     * @return
+     */
+    String toUpsert(String tableName, List<String> columnNames, List<String> fieldNames, List<String> keyColumnNames);
+
     void appendEmptyValueCondition(StringBuffer buf, String columnName, String operator);
 
     String toReservedWordEscapedName(String name);
@@ -84,6 +153,22 @@ public interface QueryMapper {
 
     String getQueryCountSequence();
 
+    /**
+     * Query of all identity column names of a table. (${domain} and table name parameter)<br>
+     * Empty means to use getQueryCountIdentity() query by each column.
+     *
+     * @return
+     */
+    String getQueryIdentityColumnNames();
+
+    /**
+     * Query of all sequence names of a domain. (${domain})<br>
+     * Empty means to use getQueryCountSequence() query by each sequence.
+     *
+     * @return
+     */
+    String getQuerySequenceNames();
+
     Set<String> getReservedWords();
 
     char getReservedWordEscapingBraceOpen();
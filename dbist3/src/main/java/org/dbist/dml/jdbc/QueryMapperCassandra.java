@@ -15,6 +15,7 @@
  */
 package org.dbist.dml.jdbc;
 
+import java.util.List;
 import java.util.Map;
 
 import org.dbist.DbistConstants;
@@ -30,8 +31,11 @@ public class QueryMapperCassandra extends AbstractQueryMapper {
         return DbistConstants.CASSANDRA;
     }
 
+    /**
+     * CQL has no offset, so only limit is applied and the rows before the offset are skipped by the client.
+     */
     public boolean isSupportedPaginationQuery() {
-        return true;
+        return false;
     }
 
     public boolean isSupportedLockTimeout() {
@@ -75,12 +79,8 @@ public class QueryMapperCassandra extends AbstractQueryMapper {
             limit = Long.MAX_VALUE;
         }
         buf.append(sql);
-        if (offset > 0 && limit > 0) {
-            _paramMap.put("__offset", offset);
-            _paramMap.put("__limit", limit);
-            buf.append(" limit :__limit offset :__offset");
-        } else if (limit > 0) {
-            _paramMap.put("__limit", limit);
+        if (limit > 0 && limit < Integer.MAX_VALUE - offset) {
+            _paramMap.put("__limit", offset + limit);
             buf.append(" limit :__limit");
         }
 
@@ -89,6 +89,13 @@ public class QueryMapperCassandra extends AbstractQueryMapper {
         return buf.toString();
     }
 
+    /**
+     * Cassandra insert is always an upsert.
+     */
+    public String toUpsert(String tableName, List<String> columnNames, List<String> fieldNames, List<String> keyColumnNames) {
+        return appendInsert(new StringBuffer(), tableName, columnNames, fieldNames).toString();
+    }
+
     /**
      * Append Empty Value Condition Where Statement
      *
@@ -175,4 +182,4 @@ public class QueryMapperCassandra extends AbstractQueryMapper {
         // TODO Auto-generated method stub
         return null;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -35,6 +35,10 @@ public class QueryMapperDb2 extends AbstractQueryMapper {
         return true;
     }
 
+    public boolean isSupportedWindowFunction() {
+        return true;
+    }
+
     public String applyPagination(String sql, Map<String, ?> paramMap, int pageIndex, int pageSize, int firstResultIndex, int maxResultSize) {
         boolean pagination = pageIndex >= 0 && pageSize > 0;
         boolean fragment = firstResultIndex > 0 || maxResultSize > 0;
@@ -57,7 +61,7 @@ public class QueryMapperDb2 extends AbstractQueryMapper {
         }
 
         StringBuffer buf = new StringBuffer();
-        int pageFromIndex = pagination ? (pageIndex - 1) * pageSize : 0;
+        int pageFromIndex = pagination ? (pageIndex > 0 ? (pageIndex - 1) : 0) * pageSize : 0;
         int offset = pageFromIndex + firstResultIndex;
         long limit = 0;
         if (pageSize > 0) {
@@ -143,6 +147,14 @@ public class QueryMapperDb2 extends AbstractQueryMapper {
         return "select count(*) from sysibm.syssequences where lcase(seqschema) = '${domain}' and lcase(seqname) = ?";
     }
 
+    public String getQueryIdentityColumnNames() {
+        return "select lcase(name) name from sysibm.syscolumns where lcase(tbcreator) = '${domain}' and lcase(tbname) = ? and identity = 'Y'";
+    }
+
+    public String getQuerySequenceNames() {
+        return "select lcase(seqname) name from sysibm.syssequences where lcase(seqschema) = '${domain}'";
+    }
+
     @Override
     public String procedureParameters(String name) {
         // TODO Auto-generated method stub
@@ -160,4 +172,4 @@ public class QueryMapperDb2 extends AbstractQueryMapper {
         // TODO Auto-generated method stub
         return null;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -12,7 +12,12 @@
  */
 package org.dbist.dml.jdbc;
 
+import java.math.BigDecimal;
+import java.sql.Time;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import org.dbist.DbistConstants;
 import org.dbist.dml.Lock;
@@ -35,6 +40,52 @@ public class QueryMapperH2 extends AbstractQueryMapper {
         return false;
     }
 
+    public boolean isSupportedRowValueComparison() {
+        return true;
+    }
+
+    public boolean isSupportedWindowFunction() {
+        return true;
+    }
+
+    public int getMaxInListSize() {
+        return 10000;
+    }
+
+    public int getMaxBindParameterCount() {
+        return 65535;
+    }
+
+    public String toMultiRowInsert(String insertSql, int rowCount) {
+        return toMultiRowValues(insertSql, rowCount);
+    }
+
+    public String toArrayTypeName(Class<?> elementType) {
+        if (elementType == String.class || elementType == Character.class)
+            return "VARCHAR";
+        if (elementType == Long.class)
+            return "BIGINT";
+        if (elementType == Integer.class)
+            return "INTEGER";
+        if (elementType == Short.class)
+            return "SMALLINT";
+        if (elementType == BigDecimal.class)
+            return "NUMERIC";
+        if (elementType == Double.class)
+            return "DOUBLE";
+        if (elementType == Float.class)
+            return "REAL";
+        if (elementType == Boolean.class)
+            return "BOOLEAN";
+        if (elementType == UUID.class)
+            return "UUID";
+        if (elementType == java.sql.Date.class)
+            return "DATE";
+        if (Date.class.isAssignableFrom(elementType) && elementType != Time.class)
+            return "TIMESTAMP";
+        return null;
+    }
+
     public String applyPagination(String sql, Map<String, ?> paramMap, int pageIndex, int pageSize, int firstResultIndex, int maxResultSize) {
         boolean pagination = pageIndex >= 0 && pageSize > 0;
         boolean fragment = firstResultIndex > 0 || maxResultSize > 0;
@@ -59,7 +110,7 @@ public class QueryMapperH2 extends AbstractQueryMapper {
         }
 
         StringBuffer buf = new StringBuffer();
-        int pageFromIndex = pagination ? (pageIndex - 1) * pageSize : 0;
+        int pageFromIndex = pagination ? (pageIndex > 0 ? (pageIndex - 1) : 0) * pageSize : 0;
         int offset = pageFromIndex + firstResultIndex;
         long limit = 0;
         if (pageSize > 0) {
@@ -69,7 +120,8 @@ public class QueryMapperH2 extends AbstractQueryMapper {
         } else if (maxResultSize > 0) {
             limit = maxResultSize;
         } else if (limit == 0) {
-            limit = Long.MAX_VALUE;
+            // Limit of H2 is an int
+            limit = Integer.MAX_VALUE;
         }
         buf.append(sql);
         if (offset > 0 && limit > 0) {
@@ -86,6 +138,14 @@ public class QueryMapperH2 extends AbstractQueryMapper {
         return buf.toString();
     }
 
+    public String toUpsert(String tableName, List<String> columnNames, List<String> fieldNames, List<String> keyColumnNames) {
+        StringBuffer buf = new StringBuffer("merge into ").append(tableName).append("(");
+        appendNames(buf, columnNames).append(") key(");
+        appendNames(buf, keyColumnNames).append(") values(");
+        appendParams(buf, fieldNames).append(")");
+        return buf.toString();
+    }
+
     /**
      * Append Empty Value Condition Where Statement
      *
@@ -168,4 +228,4 @@ public class QueryMapperH2 extends AbstractQueryMapper {
         // TODO Auto-generated method stub
         return null;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
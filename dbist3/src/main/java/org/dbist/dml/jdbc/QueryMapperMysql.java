@@ -12,6 +12,7 @@
  */
 package org.dbist.dml.jdbc;
 
+import java.util.List;
 import java.util.Map;
 
 import org.dbist.DbistConstants;
@@ -22,6 +23,8 @@ import org.dbist.dml.Lock;
  * @since 2013. 9. 7. (version 2.0.3)
  */
 public class QueryMapperMysql extends AbstractQueryMapper {
+    private BulkLoader bulkLoader = new BulkLoaderMysql();
+    private boolean supportedWindowFunction;
 
     public String getDbType() {
         return DbistConstants.MYSQL;
@@ -35,6 +38,37 @@ public class QueryMapperMysql extends AbstractQueryMapper {
         return false;
     }
 
+    public boolean isSupportedRowValueComparison() {
+        return true;
+    }
+
+    /**
+     * Window functions are supported since MySQL 8.0, so it is false unless set by the server version.
+     */
+    public boolean isSupportedWindowFunction() {
+        return supportedWindowFunction;
+    }
+
+    public void setSupportedWindowFunction(boolean supportedWindowFunction) {
+        this.supportedWindowFunction = supportedWindowFunction;
+    }
+
+    public int getMaxInListSize() {
+        return 10000;
+    }
+
+    public int getMaxBindParameterCount() {
+        return 65535;
+    }
+
+    public String toMultiRowInsert(String insertSql, int rowCount) {
+        return toMultiRowValues(insertSql, rowCount);
+    }
+
+    public BulkLoader getBulkLoader() {
+        return bulkLoader;
+    }
+
     public String applyPagination(String sql, Map<String, ?> paramMap, int pageIndex, int pageSize, int firstResultIndex, int maxResultSize) {
         boolean pagination = pageIndex >= 0 && pageSize > 0;
         boolean fragment = firstResultIndex > 0 || maxResultSize > 0;
@@ -86,6 +120,20 @@ public class QueryMapperMysql extends AbstractQueryMapper {
         return buf.toString();
     }
 
+    public String toUpsert(String tableName, List<String> columnNames, List<String> fieldNames, List<String> keyColumnNames) {
+        StringBuffer buf = appendInsert(new StringBuffer(), tableName, columnNames, fieldNames);
+        buf.append(" on duplicate key update ");
+        int i = 0;
+        for (String columnName : columnNames) {
+            if (keyColumnNames.contains(columnName))
+                continue;
+            buf.append(i++ == 0 ? "" : ", ").append(columnName).append(" = values(").append(columnName).append(")");
+        }
+        if (i == 0)
+            buf.append(keyColumnNames.get(0)).append(" = ").append(keyColumnNames.get(0));
+        return buf.toString();
+    }
+
     /**
      * Append Empty Value Condition Where Statement
      *
@@ -174,4 +222,4 @@ public class QueryMapperMysql extends AbstractQueryMapper {
         // TODO Auto-generated method stub
         return null;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
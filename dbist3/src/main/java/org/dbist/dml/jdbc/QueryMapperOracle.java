@@ -12,6 +12,7 @@
  */
 package org.dbist.dml.jdbc;
 
+import java.util.List;
 import java.util.Map;
 import java.util.StringJoiner;
 
@@ -36,6 +37,31 @@ public class QueryMapperOracle extends AbstractQueryMapper {
         return true;
     }
 
+    public boolean isSupportedWindowFunction() {
+        return true;
+    }
+
+    public int getMaxBindParameterCount() {
+        return 65535;
+    }
+
+    /**
+     * insert all into t(a, b) values(:a__0, :b__0) into t(a, b) values(:a__1, :b__1) ... select 1 from dual<br>
+     * Not supported with sequences, since nextval is evaluated only once for all the rows.
+     */
+    public String toMultiRowInsert(String insertSql, int rowCount) {
+        int index = insertSql.indexOf(" values(");
+        if (index < 0 || !insertSql.startsWith("insert into ") || insertSql.toLowerCase().contains(".nextval"))
+            return null;
+        String into = insertSql.substring("insert ".length(), index);
+        String values = insertSql.substring(index);
+        StringBuffer buf = new StringBuffer("insert all");
+        for (int i = 0; i < rowCount; i++)
+            buf.append(" ").append(into).append(toRowParams(values, i));
+        buf.append(" select 1 from dual");
+        return buf.toString();
+    }
+
     public String applyPagination(String sql, Map<String, ?> paramMap, int pageIndex, int pageSize, int firstResultIndex, int maxResultSize) {
         boolean pagination = pageIndex >= 0 && pageSize > 0;
         boolean fragment = firstResultIndex > 0 || maxResultSize > 0;
@@ -90,6 +116,15 @@ public class QueryMapperOracle extends AbstractQueryMapper {
         return buf.toString();
     }
 
+    public String toUpsert(String tableName, List<String> columnNames, List<String> fieldNames, List<String> keyColumnNames) {
+        StringBuffer buf = new StringBuffer("merge into ").append(tableName).append(" mrgtbl_ using (select ");
+        for (int i = 0; i < columnNames.size(); i++)
+            buf.append(i == 0 ? ":" : ", :").append(fieldNames.get(i)).append(" ").append(columnNames.get(i));
+        buf.append(" from dual) mrgsrc_");
+        appendMergeClauses(buf, columnNames, keyColumnNames);
+        return buf.toString();
+    }
+
     /**
      * Append Empty Value Condition Where Statement
      *
@@ -157,6 +192,10 @@ public class QueryMapperOracle extends AbstractQueryMapper {
         return "select count(*) from all_sequences where lower(sequence_owner) = '${domain}' and lower(sequence_name) = ?";
     }
 
+    public String getQuerySequenceNames() {
+        return "select lower(sequence_name) name from all_sequences where lower(sequence_owner) = '${domain}'";
+    }
+
     @Override
     public String procedureParameters(String name) {
         StringJoiner sql = new StringJoiner("\n");
@@ -199,4 +238,4 @@ public class QueryMapperOracle extends AbstractQueryMapper {
         // TODO Auto-generated method stub
         return null;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -12,8 +12,13 @@
  */
 package org.dbist.dml.jdbc;
 
+import java.math.BigDecimal;
+import java.sql.Time;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.StringJoiner;
+import java.util.UUID;
 
 import org.dbist.DbistConstants;
 import org.dbist.dml.Lock;
@@ -24,6 +29,7 @@ import org.dbist.metadata.Sequence;
  * @since 2013. 9. 7. (version 2.0.3)
  */
 public class QueryMapperPostgresql extends AbstractQueryMapper {
+    private BulkLoader bulkLoader = new BulkLoaderPostgresql();
 
     public String getDbType() {
         return DbistConstants.POSTGRESQL;
@@ -37,6 +43,56 @@ public class QueryMapperPostgresql extends AbstractQueryMapper {
         return false;
     }
 
+    public boolean isSupportedRowValueComparison() {
+        return true;
+    }
+
+    public boolean isSupportedWindowFunction() {
+        return true;
+    }
+
+    public int getMaxInListSize() {
+        return 10000;
+    }
+
+    public int getMaxBindParameterCount() {
+        return 32767;
+    }
+
+    public String toMultiRowInsert(String insertSql, int rowCount) {
+        return toMultiRowValues(insertSql, rowCount);
+    }
+
+    public String toArrayTypeName(Class<?> elementType) {
+        if (elementType == String.class || elementType == Character.class)
+            return "varchar";
+        if (elementType == Long.class)
+            return "int8";
+        if (elementType == Integer.class)
+            return "int4";
+        if (elementType == Short.class)
+            return "int2";
+        if (elementType == BigDecimal.class)
+            return "numeric";
+        if (elementType == Double.class)
+            return "float8";
+        if (elementType == Float.class)
+            return "float4";
+        if (elementType == Boolean.class)
+            return "bool";
+        if (elementType == UUID.class)
+            return "uuid";
+        if (elementType == java.sql.Date.class)
+            return "date";
+        if (Date.class.isAssignableFrom(elementType) && elementType != Time.class)
+            return "timestamp";
+        return null;
+    }
+
+    public BulkLoader getBulkLoader() {
+        return bulkLoader;
+    }
+
     public String applyPagination(String sql, Map<String, ?> paramMap, int pageIndex, int pageSize, int firstResultIndex, int maxResultSize) {
         boolean pagination = pageIndex >= 0 && pageSize > 0;
         boolean fragment = firstResultIndex > 0 || maxResultSize > 0;
@@ -88,6 +144,21 @@ public class QueryMapperPostgresql extends AbstractQueryMapper {
         return buf.toString();
     }
 
+    public String toUpsert(String tableName, List<String> columnNames, List<String> fieldNames, List<String> keyColumnNames) {
+        StringBuffer buf = appendInsert(new StringBuffer(), tableName, columnNames, fieldNames);
+        buf.append(" on conflict (");
+        appendNames(buf, keyColumnNames).append(")");
+        int i = 0;
+        for (String columnName : columnNames) {
+            if (keyColumnNames.contains(columnName))
+                continue;
+            buf.append(i++ == 0 ? " do update set " : ", ").append(columnName).append(" = excluded.").append(columnName);
+        }
+        if (i == 0)
+            buf.append(" do nothing");
+        return buf.toString();
+    }
+
     /**
      * Append Empty Value Condition Where Statement
      *
@@ -194,4 +265,4 @@ public class QueryMapperPostgresql extends AbstractQueryMapper {
         // TODO Auto-generated method stub
         return null;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
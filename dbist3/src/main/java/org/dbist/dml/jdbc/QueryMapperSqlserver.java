@@ -15,6 +15,7 @@
  */
 package org.dbist.dml.jdbc;
 
+import java.util.List;
 import java.util.Map;
 
 import org.dbist.DbistConstants;
@@ -38,6 +39,17 @@ public class QueryMapperSqlserver extends AbstractQueryMapper {
         return false;
     }
 
+    public boolean isSupportedWindowFunction() {
+        return true;
+    }
+
+    /**
+     * Under the limit of 2100 parameters per statement
+     */
+    public int getMaxInListSize() {
+        return 2000;
+    }
+
     public String applyPagination(String sql, Map<String, ?> paramMap, int pageIndex, int pageSize, int firstResultIndex, int maxResultSize) {
         boolean pagination = pageIndex >= 0 && pageSize > 0;
         boolean fragment = firstResultIndex > 0 || maxResultSize > 0;
@@ -77,12 +89,57 @@ public class QueryMapperSqlserver extends AbstractQueryMapper {
         if (limit > 0) {
             _paramMap.put("__offset", offset);
             _paramMap.put("__limit", limit);
+            // OFFSET ... FETCH requires order by clause
+            if (!containsOrderBy(sql))
+                sql = sql + " order by (select null)";
             sql = sql + " OFFSET :__offset ROWS FETCH NEXT :__limit ROWS ONLY";
         }
 
         return sql;
     }
 
+    /**
+     * Whether the sql has order by clause out of any parentheses and quotes.
+     *
+     * @param sql
+     * @return
+     */
+    private static boolean containsOrderBy(String sql) {
+        String lowerSql = sql.toLowerCase();
+        int depth = 0;
+        char quote = 0;
+        for (int i = 0; i < lowerSql.length(); i++) {
+            char c = lowerSql.charAt(i);
+            if (quote != 0) {
+                if (c == quote)
+                    quote = 0;
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (depth == 0 && c == 'o' && lowerSql.startsWith("order", i) && (i == 0 || !Character.isLetterOrDigit(lowerSql.charAt(i - 1)))) {
+                int j = i + 5;
+                while (j < lowerSql.length() && Character.isWhitespace(lowerSql.charAt(j)))
+                    j++;
+                if (j > i + 5 && lowerSql.startsWith("by", j))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    public String toUpsert(String tableName, List<String> columnNames, List<String> fieldNames, List<String> keyColumnNames) {
+        StringBuffer buf = new StringBuffer("merge into ").append(tableName).append(" with (holdlock) as mrgtbl_ using (select ");
+        for (int i = 0; i < columnNames.size(); i++)
+            buf.append(i == 0 ? ":" : ", :").append(fieldNames.get(i)).append(" as ").append(columnNames.get(i));
+        buf.append(") as mrgsrc_");
+        appendMergeClauses(buf, columnNames, keyColumnNames);
+        // merge statement must be terminated by a semicolon
+        return buf.append(";").toString();
+    }
+
     /**
      * Append Empty Value Condition Where Statement
      *
@@ -181,4 +238,4 @@ public class QueryMapperSqlserver extends AbstractQueryMapper {
         // TODO Auto-generated method stub
         return null;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.jdbc;
+
+import java.util.List;
+
+import org.dbist.metadata.Column;
+import org.dbist.metadata.Table;
+
+/**
+ * SQL generated for a query shape, and the bindings to populate the parameters of another query of the same shape.<br>
+ * The plan is valid only for the table metadata it was generated from.
+ */
+public class SqlPlan {
+    private final String sql;
+    private final Table table;
+    private final List<Binding> bindingList;
+
+    public SqlPlan(String sql, Table table, List<Binding> bindingList) {
+        this.sql = sql;
+        this.table = table;
+        this.bindingList = bindingList;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public Table getTable() {
+        return table;
+    }
+
+    public List<Binding> getBindingList() {
+        return bindingList;
+    }
+
+    /**
+     * A parameter of the SQL and where its value comes from.
+     */
+    public static class Binding {
+        private final String key;
+        private final int filterIndex;
+        private final int valueIndex;
+        private final Column column;
+        private final String operator;
+
+        /**
+         * @param key
+         *            The parameter name
+         * @param filterIndex
+         *            The index of the filter in the depth-first order of the query, or -1 for a seek value
+         * @param valueIndex
+         *            The index of the right operand (or seek value), or -1 for the whole right operand
+         * @param column
+         *            The column of the filter
+         * @param operator
+         *            The operator the value is converted by (like, contains, sw..., or in for the whole right operand), or null
+         */
+        public Binding(String key, int filterIndex, int valueIndex, Column column, String operator) {
+            this.key = key;
+            this.filterIndex = filterIndex;
+            this.valueIndex = valueIndex;
+            this.column = column;
+            this.operator = operator;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public int getFilterIndex() {
+            return filterIndex;
+        }
+
+        public int getValueIndex() {
+            return valueIndex;
+        }
+
+        public Column getColumn() {
+            return column;
+        }
+
+        public String getOperator() {
+            return operator;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.jdbc;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Repository of the SQL resources executed by the *ByQlPath methods of DmlJdbc.<br>
+ * A path is a SQL file, or a directory which has &lt;dbType&gt;.sql and/or ansi.sql files.
+ */
+public interface SqlResourceRepository {
+    /**
+     * Called once by the Dml after its dbType is resolved.
+     *
+     * @param dbType
+     */
+    void init(String dbType) throws IOException;
+
+    /**
+     * @param path
+     *            The path of a SQL file or a directory of &lt;dbType&gt;.sql and ansi.sql
+     * @return The SQL text
+     */
+    String getSql(String path) throws IOException;
+
+    /**
+     * @return Lookup count by path
+     */
+    Map<String, Long> getLookupCountMap();
+
+    void clear();
+
+    /**
+     * Release the resources like file watchers.
+     */
+    void close();
+}
@@ -0,0 +1,27 @@
+/**
+ * Copyright 2011-2012 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.exception;
+
+/**
+ * Thrown when an update or delete of a versioned table (@Table manageVersion) affects no row, because the row was changed or
+ * deleted by another transaction since it was read.
+ */
+@SuppressWarnings("serial")
+public class OptimisticLockException extends DataNotFoundException {
+    public OptimisticLockException(String message) {
+        super(message);
+    }
+}
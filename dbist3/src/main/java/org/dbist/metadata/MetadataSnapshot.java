@@ -0,0 +1,211 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.metadata;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.dbist.exception.DbistRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.sf.common.util.ReflectionUtils;
+
+/**
+ * Table catalog information of a datasource and domain(s), saved to a local file to skip the catalog queries at startup.<br>
+ * Each entry is valid only while the fingerprint of its entity class is not changed.
+ */
+public class MetadataSnapshot implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final Logger logger = LoggerFactory.getLogger(MetadataSnapshot.class);
+    private static final String VERSION = "1";
+
+    private String key;
+    private Map<String, TableSnapshot> tableSnapshotMap = new ConcurrentHashMap<String, TableSnapshot>();
+
+    public MetadataSnapshot(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * The snapshot of the class, or null if it is not saved or the class is changed since it was saved.
+     *
+     * @param clazz
+     * @return
+     */
+    public TableSnapshot get(Class<?> clazz) {
+        TableSnapshot tableSnapshot = tableSnapshotMap.get(clazz.getName());
+        if (tableSnapshot == null || !toFingerprint(clazz).equals(tableSnapshot.getFingerprint()))
+            return null;
+        return tableSnapshot;
+    }
+
+    public TableSnapshot get(String className) {
+        return tableSnapshotMap.get(className);
+    }
+
+    public void put(String className, TableSnapshot tableSnapshot) {
+        tableSnapshotMap.put(className, tableSnapshot);
+    }
+
+    public void remove(String className) {
+        tableSnapshotMap.remove(className);
+    }
+
+    public List<String> getClassNameList() {
+        return new ArrayList<String>(tableSnapshotMap.keySet());
+    }
+
+    public int size() {
+        return tableSnapshotMap.size();
+    }
+
+    public void clear() {
+        tableSnapshotMap.clear();
+    }
+
+    /**
+     * Key of the snapshot file (datasource url, domain(s) and dbType).
+     *
+     * @param dbType
+     * @param url
+     * @param domainList
+     * @return
+     */
+    public static String toKey(String dbType, String url, List<String> domainList) {
+        return digest(VERSION + "|" + dbType + "|" + url + "|" + domainList);
+    }
+
+    /**
+     * Fingerprint of the mapping structure of the class (@Table, fields, field types and annotations).
+     *
+     * @param clazz
+     * @return
+     */
+    public static String toFingerprint(Class<?> clazz) {
+        StringBuffer buf = new StringBuffer(clazz.getName());
+        appendAnnotations(buf, clazz.getAnnotations());
+        for (Field field : ReflectionUtils.getFieldList(clazz, false)) {
+            buf.append('|').append(field.getName()).append(':').append(field.getType().getName());
+            appendAnnotations(buf, field.getAnnotations());
+        }
+        return digest(buf.toString());
+    }
+
+    private static void appendAnnotations(StringBuffer buf, Annotation[] annotations) {
+        for (Annotation annotation : annotations)
+            buf.append(annotation);
+    }
+
+    private static String digest(String str) {
+        try {
+            byte[] bytes = MessageDigest.getInstance("SHA-1").digest(str.getBytes(StandardCharsets.UTF_8));
+            StringBuffer buf = new StringBuffer(bytes.length * 2);
+            for (byte b : bytes)
+                buf.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return buf.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new DbistRuntimeException(e);
+        }
+    }
+
+    /**
+     * Load the snapshot file. Returns an empty snapshot if the file doesn't exist, is broken or is of another key.
+     *
+     * @param file
+     * @param key
+     * @return
+     */
+    public static MetadataSnapshot load(File file, String key) {
+        if (file.exists()) {
+            try (ObjectInputStream in = new SnapshotInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                MetadataSnapshot snapshot = (MetadataSnapshot) in.readObject();
+                if (key.equals(snapshot.getKey()))
+                    return snapshot;
+                logger.info("Ignored metadata snapshot of another datasource: " + file);
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                logger.warn("Ignored broken metadata snapshot: " + file + " (" + e.getMessage() + ")");
+            }
+        }
+        return new MetadataSnapshot(key);
+    }
+
+    /**
+     * Save to a temporary file and replace the file with it, so that readers never see a half written file.
+     *
+     * @param file
+     */
+    public synchronized void save(File file) {
+        File dir = file.getAbsoluteFile().getParentFile();
+        try {
+            if (!dir.exists())
+                dir.mkdirs();
+            File tmpFile = File.createTempFile(file.getName(), ".tmp", dir);
+            try {
+                try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                    out.writeObject(this);
+                }
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                tmpFile.delete();
+            }
+        } catch (IOException e) {
+            logger.warn("Couldn't save metadata snapshot: " + file + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Deserializes only the snapshot classes and the JDK classes they consist of.
+     */
+    private static class SnapshotInputStream extends ObjectInputStream {
+        SnapshotInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            String name = desc.getName().replaceFirst("^\\[+L", "");
+            if (!name.startsWith(MetadataSnapshot.class.getName()) && !name.startsWith(TableSnapshot.class.getName())
+                && !name.startsWith("java.lang.") && !name.startsWith("java.util."))
+                throw new InvalidClassException(name, "Unexpected class in metadata snapshot");
+            return super.resolveClass(desc);
+        }
+    }
+}
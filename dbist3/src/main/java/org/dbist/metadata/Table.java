@@ -20,7 +20,12 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.dbist.cache.EntityCache;
+import org.dbist.dml.jdbc.CompiledRowMapper;
+import org.dbist.dml.jdbc.EntitySnapshotMap;
+import org.dbist.dml.jdbc.PositionalSql;
 import org.dbist.dml.jdbc.QueryMapper;
 import org.dbist.exception.DbistRuntimeException;
 import org.dbist.util.ValueGenerator;
@@ -57,7 +62,13 @@ public class Table {
     private String insertSql;
     private String updateSql;
     private String deleteSql;
+    private String upsertSql;
     private Map<Field, ValueGenerator> valueGeneratorByFieldMap = new HashMap<Field, ValueGenerator>();
+    private Map<String, CompiledRowMapper> compiledRowMapperMap = new ConcurrentHashMap<String, CompiledRowMapper>();
+    private Map<String, PositionalSql> positionalSqlMap = new ConcurrentHashMap<String, PositionalSql>();
+    private EntityCache entityCache;
+    private EntitySnapshotMap entitySnapshotMap = new EntitySnapshotMap();
+    private Column versionColumn;
 
     public String getDbType() {
         return dbType;
@@ -373,7 +384,7 @@ public class Table {
                 int i = 0;
                 int j = 0;
                 for (Column column : getColumnList()) {
-                    if (column.getRelation() != null)
+                    if (column.getRelation() != null || column == versionColumn)
                         continue;
                     if (column.isPrimaryKey()) {
                         whereBuf.append(j++ == 0 ? " where " : " and ");
@@ -383,6 +394,7 @@ public class Table {
                     buf.append(i++ == 0 ? "" : ", ");
                     appendName(buf, column.getName()).append(" = :").append(column.getField().getName());
                 }
+                appendVersion(buf, i, whereBuf);
                 updateSql = buf.append(whereBuf).toString();
             }
             return updateSql;
@@ -399,15 +411,90 @@ public class Table {
                 throw new DbistRuntimeException("Invalid fieldName: " + getClazz().getName() + "." + fieldName);
             if (column.isPrimaryKey())
                 throw new DbistRuntimeException("Updating primary key is not supported. " + getDomain() + "." + getName() + getPkColumnNameList());
+            if (column == versionColumn)
+                continue;
             buf.append(i++ == 0 ? "" : ", ");
             appendName(buf, toColumnName(fieldName)).append(" = :").append(fieldName);
         }
         StringBuffer whereBuf = new StringBuffer();
         for (String columnName : getPkColumnNameList())
             whereBuf.append(j++ == 0 ? " where " : " and ").append(columnName).append(" = ").append(":").append(toFieldName(columnName));
+        appendVersion(buf, i, whereBuf);
         return buf.append(whereBuf).toString();
     }
 
+    /**
+     * Increase the version and check the version read before, if the table manages version.<br>
+     * A null version column (rows written before the table managed version) counts as 0, as it is read.
+     */
+    private void appendVersion(StringBuffer buf, int setCount, StringBuffer whereBuf) {
+        if (versionColumn == null)
+            return;
+        buf.append(setCount == 0 ? "" : ", ");
+        appendName(buf, versionColumn.getName()).append(" = ");
+        appendCoalescedVersion(buf).append(" + 1");
+        appendVersionPredicate(whereBuf);
+    }
+
+    private void appendVersionPredicate(StringBuffer whereBuf) {
+        appendCoalescedVersion(whereBuf.append(" and ")).append(" = :").append(versionColumn.getField().getName());
+    }
+
+    private StringBuffer appendCoalescedVersion(StringBuffer buf) {
+        return appendName(buf.append("coalesce("), versionColumn.getName()).append(", 0)");
+    }
+
+    public String getUpsertSql(String... fieldNames) {
+        // Upsert all fields
+        if (ValueUtils.isEmpty(fieldNames)) {
+            if (upsertSql != null)
+                return upsertSql;
+            synchronized (this) {
+                if (upsertSql != null)
+                    return upsertSql;
+                List<Column> columnList = new ArrayList<Column>();
+                for (Column column : getColumnList()) {
+                    if (column.getRelation() != null)
+                        continue;
+                    columnList.add(column);
+                }
+                upsertSql = toUpsertSql(columnList);
+            }
+            return upsertSql;
+        }
+
+        // Upsert some fields
+        List<Column> columnList = new ArrayList<Column>();
+        List<String> pkFieldNameList = ValueUtils.toList(getPkFieldNames());
+        for (String fieldName : pkFieldNameList)
+            columnList.add(getColumnByFieldName(fieldName));
+        for (String fieldName : fieldNames) {
+            if (pkFieldNameList.contains(fieldName))
+                continue;
+            Column column = getColumnByFieldName(fieldName);
+            if (column == null)
+                throw new DbistRuntimeException("Invalid fieldName: " + getClazz().getName() + "." + fieldName);
+            if (column.getRelation() != null)
+                continue;
+            columnList.add(column);
+        }
+        return toUpsertSql(columnList);
+    }
+
+    private String toUpsertSql(List<Column> columnList) {
+        List<String> columnNameList = new ArrayList<String>(columnList.size());
+        List<String> fieldNameList = new ArrayList<String>(columnList.size());
+        for (Column column : columnList) {
+            columnNameList.add(appendName(new StringBuffer(), column.getName()).toString());
+            fieldNameList.add(column.getField().getName());
+        }
+        List<String> keyColumnNameList = new ArrayList<String>();
+        for (String columnName : getPkColumnNameList())
+            keyColumnNameList.add(appendName(new StringBuffer(), columnName).toString());
+        String tableName = appendName(new StringBuffer().append(getDomain()).append("."), getName()).toString();
+        return queryMapper.toUpsert(tableName, columnNameList, fieldNameList, keyColumnNameList);
+    }
+
     public String getDeleteSql() {
         if (deleteSql != null)
             return deleteSql;
@@ -419,6 +506,8 @@ public class Table {
             int i = 0;
             for (String columnName : getPkColumnNameList())
                 buf.append(i++ == 0 ? " where " : " and ").append(columnName).append(" = :").append(getColumn(columnName).getField().getName());
+            if (versionColumn != null)
+                appendVersionPredicate(buf);
             deleteSql = buf.toString();
         }
         return deleteSql;
@@ -431,4 +520,58 @@ public class Table {
     public void setValueGeneratorByFieldMap(Map<Field, ValueGenerator> valueGeneratorByFieldMap) {
         this.valueGeneratorByFieldMap = valueGeneratorByFieldMap;
     }
+
+    /**
+     * Compiled row mappers by the column label layout of the result set
+     */
+    public Map<String, CompiledRowMapper> getCompiledRowMapperMap() {
+        return compiledRowMapperMap;
+    }
+
+    private static final int MAX_POSITIONALSQL_SIZE = 100;
+
+    /**
+     * Positional form of the insert, update, upsert or delete statement of this table, compiled once by the named statement.<br>
+     * Statements beyond MAX_POSITIONALSQL_SIZE (e.g. of many fieldNames combinations) are compiled each time, not cached.
+     *
+     * @param namedSql
+     * @return
+     */
+    public PositionalSql getPositionalSql(String namedSql) {
+        PositionalSql positionalSql = positionalSqlMap.get(namedSql);
+        if (positionalSql != null)
+            return positionalSql;
+        if (positionalSqlMap.size() >= MAX_POSITIONALSQL_SIZE)
+            return PositionalSql.compile(namedSql, this);
+        return positionalSqlMap.computeIfAbsent(namedSql, sql -> PositionalSql.compile(sql, this));
+    }
+
+    /**
+     * Entity cache by primary key, or null if the table isn't cached
+     */
+    public EntityCache getEntityCache() {
+        return entityCache;
+    }
+
+    public void setEntityCache(EntityCache entityCache) {
+        this.entityCache = entityCache;
+    }
+
+    /**
+     * Snapshots of the selected entities for dirty checking, in the order of the column list
+     */
+    public EntitySnapshotMap getEntitySnapshotMap() {
+        return entitySnapshotMap;
+    }
+
+    /**
+     * Version column of optimistic locking (@Table manageVersion), or null if the table doesn't manage version
+     */
+    public Column getVersionColumn() {
+        return versionColumn;
+    }
+
+    public void setVersionColumn(Column versionColumn) {
+        this.versionColumn = versionColumn;
+    }
 }
@@ -0,0 +1,210 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.metadata;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Catalog information of a table resolved for an entity class.<br>
+ * Domain, name, primary key, column types and sequences are what the database catalog is queried for,
+ * so a Table can be built from this without any catalog query.
+ */
+public class TableSnapshot implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String fingerprint;
+    private String domain;
+    private String name;
+    private String type;
+    private List<String> pkColumnNameList = new ArrayList<String>();
+    private List<ColumnEntry> columnList = new ArrayList<ColumnEntry>();
+    private Set<String> identityColumnNameSet = new HashSet<String>();
+    private Map<String, SequenceEntry> sequenceByFieldNameMap = new HashMap<String, SequenceEntry>();
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public String getDomain() {
+        return domain;
+    }
+
+    public void setDomain(String domain) {
+        this.domain = domain;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public List<String> getPkColumnNameList() {
+        return pkColumnNameList;
+    }
+
+    public void setPkColumnNameList(List<String> pkColumnNameList) {
+        this.pkColumnNameList = pkColumnNameList;
+    }
+
+    public List<ColumnEntry> getColumnList() {
+        return columnList;
+    }
+
+    public void setColumnList(List<ColumnEntry> columnList) {
+        this.columnList = columnList;
+    }
+
+    public Set<String> getIdentityColumnNameSet() {
+        return identityColumnNameSet;
+    }
+
+    public void setIdentityColumnNameSet(Set<String> identityColumnNameSet) {
+        this.identityColumnNameSet = identityColumnNameSet;
+    }
+
+    public Map<String, SequenceEntry> getSequenceByFieldNameMap() {
+        return sequenceByFieldNameMap;
+    }
+
+    public void setSequenceByFieldNameMap(Map<String, SequenceEntry> sequenceByFieldNameMap) {
+        this.sequenceByFieldNameMap = sequenceByFieldNameMap;
+    }
+
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof TableSnapshot))
+            return false;
+        TableSnapshot other = (TableSnapshot) obj;
+        return Objects.equals(fingerprint, other.fingerprint) && Objects.equals(domain, other.domain) && Objects.equals(name, other.name)
+            && Objects.equals(type, other.type) && Objects.equals(pkColumnNameList, other.pkColumnNameList)
+            && Objects.equals(columnList, other.columnList) && Objects.equals(identityColumnNameSet, other.identityColumnNameSet)
+            && Objects.equals(sequenceByFieldNameMap, other.sequenceByFieldNameMap);
+    }
+
+    public int hashCode() {
+        return Objects.hash(fingerprint, domain, name, type);
+    }
+
+    public static class ColumnEntry implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String name;
+        private String dataType;
+        private Integer length;
+        private String nullable;
+
+        public ColumnEntry() {
+        }
+
+        public ColumnEntry(String name, String dataType, Integer length, String nullable) {
+            this.name = name;
+            this.dataType = dataType;
+            this.length = length;
+            this.nullable = nullable;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDataType() {
+            return dataType;
+        }
+
+        public Integer getLength() {
+            return length;
+        }
+
+        public String getNullable() {
+            return nullable;
+        }
+
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof ColumnEntry))
+                return false;
+            ColumnEntry other = (ColumnEntry) obj;
+            return Objects.equals(name, other.name) && Objects.equals(dataType, other.dataType) && Objects.equals(length, other.length)
+                && Objects.equals(nullable, other.nullable);
+        }
+
+        public int hashCode() {
+            return Objects.hash(name, dataType, length, nullable);
+        }
+    }
+
+    public static class SequenceEntry implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String domain;
+        private String name;
+        private boolean autoIncrement;
+
+        public SequenceEntry() {
+        }
+
+        public SequenceEntry(Sequence sequence) {
+            this.domain = sequence.getDomain();
+            this.name = sequence.getName();
+            this.autoIncrement = sequence.isAutoIncrement();
+        }
+
+        public Sequence toSequence() {
+            Sequence sequence = new Sequence();
+            sequence.setDomain(domain);
+            sequence.setName(name);
+            sequence.setAutoIncrement(autoIncrement);
+            return sequence;
+        }
+
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof SequenceEntry))
+                return false;
+            SequenceEntry other = (SequenceEntry) obj;
+            return Objects.equals(domain, other.domain) && Objects.equals(name, other.name) && autoIncrement == other.autoIncrement;
+        }
+
+        public int hashCode() {
+            return Objects.hash(domain, name, autoIncrement);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records the statements to a Micrometer registry as the timer "dbist.sql", the summary "dbist.sql.rows" and the counter "dbist.sql.errors",
+ * tagged by the normalized SQL.<br>
+ * Micrometer is an optional dependency, which is needed only when this sink is used.
+ */
+public class MicrometerSqlMetricsSink implements SqlMetricsSink {
+    private final MeterRegistry registry;
+    private int maxStatementCount = 500;
+    private boolean percentileHistogram = true;
+    private final Map<String, Meters> metersMap = new ConcurrentHashMap<>();
+
+    public MicrometerSqlMetricsSink(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void record(String sql, long elapsedNanos, long rowCount, Throwable error) {
+        // Keyed by the normalized SQL, so that the statements of the same shape share the meters and the cardinality bound
+        String statement = SqlMetrics.normalize(sql);
+        Meters meters = metersMap.get(statement);
+        if (meters == null) {
+            meters = metersMap.size() < maxStatementCount ? metersMap.computeIfAbsent(statement, Meters::new)
+                : metersMap.computeIfAbsent(SqlMetrics.OTHERS, Meters::new);
+        }
+        meters.timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (rowCount >= 0)
+            meters.rows.record(rowCount);
+        if (error != null)
+            meters.errors.increment();
+    }
+
+    private class Meters {
+        private final Timer timer;
+        private final DistributionSummary rows;
+        private final Counter errors;
+
+        Meters(String statement) {
+            timer = Timer.builder("dbist.sql").tag("statement", statement).publishPercentileHistogram(percentileHistogram).register(registry);
+            rows = DistributionSummary.builder("dbist.sql.rows").tag("statement", statement).register(registry);
+            errors = Counter.builder("dbist.sql.errors").tag("statement", statement).register(registry);
+        }
+    }
+
+    public int getMaxStatementCount() {
+        return maxStatementCount;
+    }
+
+    /**
+     * Max number of the statements tagged separately, which bounds the cardinality of the tag.
+     *
+     * @param maxStatementCount
+     */
+    public void setMaxStatementCount(int maxStatementCount) {
+        this.maxStatementCount = maxStatementCount;
+    }
+
+    public boolean isPercentileHistogram() {
+        return percentileHistogram;
+    }
+
+    public void setPercentileHistogram(boolean percentileHistogram) {
+        this.percentileHistogram = percentileHistogram;
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.dbist.exception.DbistRuntimeException;
+
+/**
+ * Statistics of the SQL statements normalized by normalize method, which can be registered as a JMX MBean.<br>
+ * Statements beyond maxStatementCount are recorded together as "(others)".
+ */
+public class SqlMetrics implements SqlMetricsSink, SqlMetricsMBean {
+    public static final String OTHERS = "(others)";
+
+    private int maxStatementCount = 500;
+    private final Map<String, SqlStatistics> statisticsMap = new ConcurrentHashMap<>();
+    private final Map<String, String> normalizedSqlCache = new ConcurrentHashMap<>();
+    private ObjectName objectName;
+
+    public void record(String sql, long elapsedNanos, long rowCount, Throwable error) {
+        String normalizedSql = normalizedSqlCache.get(sql);
+        if (normalizedSql == null) {
+            normalizedSql = normalize(sql);
+            if (normalizedSqlCache.size() < maxStatementCount * 2)
+                normalizedSqlCache.put(sql, normalizedSql);
+        }
+        SqlStatistics statistics = statisticsMap.get(normalizedSql);
+        if (statistics == null) {
+            if (statisticsMap.size() >= maxStatementCount)
+                normalizedSql = OTHERS;
+            statistics = statisticsMap.computeIfAbsent(normalizedSql, SqlStatistics::new);
+        }
+        statistics.record(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), rowCount, error != null);
+    }
+
+    /**
+     * @param sql
+     *            The SQL as it is executed or normalized
+     * @return The statistics of the statement, or null if it is not executed
+     */
+    public SqlStatistics getStatistics(String sql) {
+        return statisticsMap.get(normalize(sql));
+    }
+
+    /**
+     * @return The statistics of the statements in descending order of the total elapsed time
+     */
+    public List<SqlStatistics> getStatisticsList() {
+        List<SqlStatistics> list = new ArrayList<>(statisticsMap.values());
+        Collections.sort(list, Comparator.comparingLong((SqlStatistics statistics) -> statistics.getHistogram().getTotal()).reversed());
+        return list;
+    }
+
+    public int getStatementCount() {
+        return statisticsMap.size();
+    }
+
+    public long getExecutionCount() {
+        long count = 0;
+        for (SqlStatistics statistics : statisticsMap.values())
+            count += statistics.getExecutionCount();
+        return count;
+    }
+
+    public long getErrorCount() {
+        long count = 0;
+        for (SqlStatistics statistics : statisticsMap.values())
+            count += statistics.getErrorCount();
+        return count;
+    }
+
+    public String[] getSummary() {
+        List<SqlStatistics> list = getStatisticsList();
+        String[] summary = new String[list.size()];
+        for (int i = 0; i < summary.length; i++)
+            summary[i] = list.get(i).toString();
+        return summary;
+    }
+
+    public void reset() {
+        statisticsMap.clear();
+        normalizedSqlCache.clear();
+    }
+
+    /**
+     * Register to the platform MBean server, e.g. "org.dbist:type=SqlMetrics".
+     *
+     * @param name
+     */
+    public synchronized void registerMBean(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            unregisterMBean();
+            objectName = new ObjectName(name);
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            objectName = null;
+            throw new DbistRuntimeException(e);
+        }
+    }
+
+    public synchronized void unregisterMBean() {
+        if (objectName == null)
+            return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new DbistRuntimeException(e);
+        } finally {
+            objectName = null;
+        }
+    }
+
+    /**
+     * SQL with the literals replaced by ? and the whitespaces collapsed, so that the statements of the same shape are recorded together.
+     *
+     * @param sql
+     * @return
+     */
+    public static String normalize(String sql) {
+        if (sql == null)
+            return null;
+        int length = sql.length();
+        StringBuffer buf = new StringBuffer(length);
+        boolean space = false;
+        for (int i = 0; i < length; i++) {
+            char ch = sql.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                space = buf.length() > 0;
+                continue;
+            }
+            if (space) {
+                buf.append(' ');
+                space = false;
+            }
+            // String literal
+            if (ch == '\'') {
+                for (i++; i < length; i++) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < length && sql.charAt(i + 1) == '\'')
+                            i++;
+                        else
+                            break;
+                    }
+                }
+                buf.append('?');
+            }
+            // Quoted identifier
+            else if (ch == '"') {
+                int end = sql.indexOf('"', i + 1);
+                end = end < 0 ? length - 1 : end;
+                buf.append(sql, i, end + 1);
+                i = end;
+            }
+            // Numeric literal (not a part of a name or a parameter)
+            else if (Character.isDigit(ch) && (buf.length() == 0 || !isNamePart(buf.charAt(buf.length() - 1)))) {
+                while (i + 1 < length && (Character.isDigit(sql.charAt(i + 1)) || sql.charAt(i + 1) == '.'))
+                    i++;
+                buf.append('?');
+            } else {
+                buf.append(ch);
+            }
+        }
+        return buf.toString();
+    }
+
+    private static boolean isNamePart(char ch) {
+        return Character.isLetterOrDigit(ch) || ch == '_' || ch == '$' || ch == '.' || ch == ':' || ch == '?';
+    }
+
+    public int getMaxStatementCount() {
+        return maxStatementCount;
+    }
+
+    public void setMaxStatementCount(int maxStatementCount) {
+        this.maxStatementCount = maxStatementCount;
+    }
+}
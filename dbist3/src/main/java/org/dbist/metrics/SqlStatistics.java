@@ -0,0 +1,75 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram, row count and error count of a normalized SQL statement.
+ */
+public class SqlStatistics {
+    private final String sql;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder rowCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+
+    public SqlStatistics(String sql) {
+        this.sql = sql;
+    }
+
+    public void record(long elapsedMicros, long rowCount, boolean error) {
+        histogram.record(elapsedMicros);
+        if (rowCount > 0)
+            this.rowCount.add(rowCount);
+        if (error)
+            errorCount.increment();
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    public long getExecutionCount() {
+        return histogram.getCount();
+    }
+
+    public long getRowCount() {
+        return rowCount.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public String toString() {
+        StringBuffer buf = new StringBuffer();
+        buf.append("count: ").append(getExecutionCount()).append(", errors: ").append(getErrorCount()).append(", rows: ").append(getRowCount());
+        buf.append(", mean: ").append(toMillis((long) histogram.getMean()));
+        buf.append("ms, p50: ").append(toMillis(histogram.getValueAtPercentile(50)));
+        buf.append("ms, p95: ").append(toMillis(histogram.getValueAtPercentile(95)));
+        buf.append("ms, p99: ").append(toMillis(histogram.getValueAtPercentile(99)));
+        buf.append("ms, max: ").append(toMillis(histogram.getMax())).append("ms, sql: ").append(sql);
+        return buf.toString();
+    }
+
+    private static String toMillis(long micros) {
+        return micros / 1000 + "." + String.format("%03d", micros % 1000);
+    }
+}
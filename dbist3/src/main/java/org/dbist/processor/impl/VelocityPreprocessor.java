@@ -15,11 +15,19 @@
  */
 package org.dbist.processor.impl;
 
+import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
+import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
+import org.apache.velocity.exception.ParseErrorException;
+import org.apache.velocity.runtime.RuntimeInstance;
+import org.apache.velocity.runtime.parser.ParseException;
 import org.dbist.processor.Preprocessor;
 
 /**
@@ -27,22 +35,123 @@ import org.dbist.processor.Preprocessor;
  * @since 2012. 2. 5. (version 0.0.1)
  */
 public class VelocityPreprocessor implements Preprocessor {
-    private VelocityEngine engine;
+    private volatile RuntimeInstance runtimeInstance;
+    private int maxTemplateCacheSize = 1000;
+    private volatile Map<String, Template> templateCache;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder bypassCount = new LongAdder();
+    private final ReentrantLock initLock = new ReentrantLock();
 
     public String process(String value, Map<String, ?> contextMap) throws Exception {
-        if (engine == null) {
-            synchronized (this) {
-                if (engine == null) {
-                    engine = new VelocityEngine();
-                    engine.init();
-                }
-            }
+        // Nothing to process without directives or references
+        if (value == null || (value.indexOf('#') < 0 && value.indexOf('$') < 0)) {
+            bypassCount.increment();
+            return value;
         }
 
         StringWriter writer = new StringWriter();
         VelocityContext context = new VelocityContext(contextMap);
-        engine.evaluate(context, writer, value, value);
+        getTemplate(value).merge(context, writer);
         return writer.toString();
     }
 
+    /**
+     * Parsed template of the value, which is cached by the value.
+     */
+    private Template getTemplate(String value) throws Exception {
+        // A lock instead of a monitor, since the initialization reads resources and would pin the carrier of a virtual thread
+        if (runtimeInstance == null) {
+            initLock.lock();
+            try {
+                if (runtimeInstance == null) {
+                    RuntimeInstance _runtimeInstance = new RuntimeInstance();
+                    _runtimeInstance.init();
+                    if (maxTemplateCacheSize > 0)
+                        templateCache = Collections.synchronizedMap(new TemplateCache(maxTemplateCacheSize));
+                    runtimeInstance = _runtimeInstance;
+                }
+            } finally {
+                initLock.unlock();
+            }
+        }
+
+        Template template = templateCache == null ? null : templateCache.get(value);
+        if (template != null) {
+            hitCount.increment();
+            return template;
+        }
+        missCount.increment();
+
+        template = new Template();
+        template.setName(value);
+        template.setRuntimeServices(runtimeInstance);
+        try {
+            template.setData(runtimeInstance.parse(new StringReader(value), value));
+        } catch (ParseException e) {
+            // Same as VelocityEngine.evaluate
+            throw new ParseErrorException(e, value);
+        }
+        template.initDocument();
+        if (templateCache != null)
+            templateCache.put(value, template);
+        return template;
+    }
+
+    /**
+     * Templates in access order, of which the least recently used one is removed beyond the max size.
+     */
+    @SuppressWarnings("serial")
+    private static class TemplateCache extends LinkedHashMap<String, Template> {
+        private final int maxSize;
+
+        TemplateCache(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Template> eldest) {
+            return size() > maxSize;
+        }
+    }
+
+    public int getMaxTemplateCacheSize() {
+        return maxTemplateCacheSize;
+    }
+
+    /**
+     * Max number of the parsed templates to cache (0 disables the cache). It must be set before the first process.
+     *
+     * @param maxTemplateCacheSize
+     */
+    public void setMaxTemplateCacheSize(int maxTemplateCacheSize) {
+        this.maxTemplateCacheSize = maxTemplateCacheSize;
+    }
+
+    /**
+     * @return The number of the values processed by a cached template
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return The number of the values parsed
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return The number of the values returned as they are because they have no # or $
+     */
+    public long getBypassCount() {
+        return bypassCount.sum();
+    }
+
+    public void clear() {
+        if (templateCache != null)
+            templateCache.clear();
+    }
 }
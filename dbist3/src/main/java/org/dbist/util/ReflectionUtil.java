@@ -7,9 +7,23 @@ import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.commons.lang.ClassUtils;
 import org.dbist.annotation.PrimaryKey;
+import org.dbist.annotation.Table;
+import org.dbist.exception.DbistRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.util.StringUtils;
+
+import net.sf.common.util.ValueUtils;
 
 public class ReflectionUtil {
+    private static final Logger logger = LoggerFactory.getLogger(ReflectionUtil.class);
+
     /**
      * ID Field 가져오기 실행
      * @param clazz
@@ -27,4 +41,42 @@ public class ReflectionUtil {
 
         return list.size() > 0 ? list : null;
     }
+
+    /**
+     * basePackage(콤마로 구분) 하위의 @Table 엔티티 클래스 검색
+     * @param basePackage
+     * @param includeRef isRef 엔티티 포함 여부
+     * @return
+     */
+    public static List<Class<?>> scanEntity(String basePackage, boolean includeRef) {
+        List<Class<?>> classList = new ArrayList<>();
+
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(Table.class));
+
+        String[] basePackages = StringUtils.tokenizeToStringArray(basePackage, ",");
+        if (ValueUtils.isEmpty(basePackages)) {
+            throw new DbistRuntimeException("Base Package is Empty.");
+        }
+
+        for (String path : basePackages) {
+            for (BeanDefinition bd : scanner.findCandidateComponents(path)) {
+                try {
+                    Class<?> clazz = ClassUtils.getClass(bd.getBeanClassName());
+                    Table tableAnn = AnnotationUtils.findAnnotation(clazz, Table.class);
+
+                    if (tableAnn == null) {
+                        continue;
+                    }
+
+                    if (includeRef || !tableAnn.isRef()) {
+                        classList.add(clazz);
+                    }
+                } catch (Exception e) {
+                    logger.debug(e.getMessage() + "[" + bd.getBeanClassName() + "]", e);
+                }
+            }
+        }
+        return classList;
+    }
 }
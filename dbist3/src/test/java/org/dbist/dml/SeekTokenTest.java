@@ -0,0 +1,61 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.dbist.exception.DbistRuntimeException;
+import org.junit.Test;
+
+public class SeekTokenTest {
+
+    @Test
+    public void roundTrip() {
+        Timestamp timestamp = new Timestamp(1500000000123L);
+        timestamp.setNanos(123456789);
+        List<?> values = Arrays.asList(42L, "a:b:", timestamp, new BigDecimal("1.50"), new java.sql.Date(1500000000000L), 7);
+        List<Class<?>> types = Arrays.<Class<?>> asList(Long.class, String.class, Timestamp.class, BigDecimal.class, java.sql.Date.class,
+            int.class);
+        assertEquals(values, SeekToken.decode(SeekToken.encode(values), types));
+    }
+
+    @Test
+    public void urlSafe() {
+        String token = SeekToken.encode(Collections.singletonList("??>>~~"));
+        assertEquals(token, token.replaceAll("[^A-Za-z0-9_-]", ""));
+    }
+
+    @Test(expected = DbistRuntimeException.class)
+    public void nullValue() {
+        SeekToken.encode(Arrays.asList(1L, null));
+    }
+
+    @Test(expected = DbistRuntimeException.class)
+    public void fewerValues() {
+        SeekToken.decode(SeekToken.encode(Collections.singletonList(1L)), Arrays.<Class<?>> asList(Long.class, Long.class));
+    }
+
+    @Test(expected = DbistRuntimeException.class)
+    public void invalidToken() {
+        SeekToken.decode("not a token", Collections.<Class<?>> singletonList(Long.class));
+    }
+}
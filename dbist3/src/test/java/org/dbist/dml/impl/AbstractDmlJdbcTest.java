@@ -0,0 +1,54 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.impl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Before;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * DmlJdbc on an in-memory H2 database, which is created for each test.
+ */
+public abstract class AbstractDmlJdbcTest {
+    private static final AtomicInteger DATABASE_SEQ = new AtomicInteger();
+
+    protected JdbcDataSource dataSource;
+    protected JdbcTemplate jdbcTemplate;
+    protected DmlJdbc dml;
+
+    @Before
+    public void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:dbist" + DATABASE_SEQ.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        createTables();
+
+        dml = new DmlJdbc();
+        dml.setDomain("public");
+        dml.setDataSource(dataSource);
+        dml.setJdbcOperations(jdbcTemplate);
+        dml.setNamedParameterJdbcOperations(new NamedParameterJdbcTemplate(dataSource));
+        dml.afterPropertiesSet();
+    }
+
+    /**
+     * Create the tables of the test before the DmlJdbc reads the metadata.
+     */
+    protected abstract void createTables();
+}
@@ -0,0 +1,214 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.dbist.annotation.PrimaryKey;
+import org.dbist.annotation.Sequence;
+import org.dbist.annotation.Table;
+import org.dbist.dml.jdbc.BulkLoader;
+import org.dbist.dml.jdbc.BulkLoaderPostgresql;
+import org.dbist.dml.jdbc.QueryMapperH2;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * bulkLoad by the BulkLoader of the QueryMapper, or by insertBatch for the tables it doesn't support.
+ */
+public class DmlJdbcBulkLoadTest extends AbstractDmlJdbcTest {
+
+    @Table(name = "item")
+    public static class Item {
+        @PrimaryKey
+        private Long id;
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+        public void setId(Long id) {
+            this.id = id;
+        }
+        public String getName() {
+            return name;
+        }
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    @Table(name = "ticket")
+    public static class Ticket {
+        @PrimaryKey
+        @Sequence(name = "seq_ticket")
+        private Long id;
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+        public void setId(Long id) {
+            this.id = id;
+        }
+        public String getName() {
+            return name;
+        }
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    @Table(name = "doc")
+    public static class Doc {
+        @PrimaryKey
+        private Long id;
+        private byte[] content;
+
+        public Long getId() {
+            return id;
+        }
+        public void setId(Long id) {
+            this.id = id;
+        }
+        public byte[] getContent() {
+            return content;
+        }
+        public void setContent(byte[] content) {
+            this.content = content;
+        }
+    }
+
+    /**
+     * Records the statement and the stream instead of sending them to a PostgreSQL connection
+     */
+    private static class RecordingBulkLoader extends BulkLoaderPostgresql {
+        private final List<String> sqlList = new ArrayList<>();
+        private final List<String> textList = new ArrayList<>();
+
+        protected long execute(Connection con, String sql, InputStream in) throws SQLException {
+            sqlList.add(sql);
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] bytes = new byte[1000];
+                int size;
+                while ((size = in.read(bytes, 0, bytes.length)) != -1)
+                    out.write(bytes, 0, size);
+                textList.add(new String(out.toByteArray(), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new SQLException(e);
+            }
+            return 0;
+        }
+    }
+
+    private final RecordingBulkLoader bulkLoader = new RecordingBulkLoader();
+
+    @Override
+    protected void createTables() {
+        jdbcTemplate.execute("create table item(id bigint primary key, name varchar(50))");
+        jdbcTemplate.execute("create sequence seq_ticket");
+        jdbcTemplate.execute("create table ticket(id bigint primary key, name varchar(50))");
+        jdbcTemplate.execute("create table doc(id bigint primary key, content varbinary(100))");
+    }
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        dml = new DmlJdbc();
+        dml.setDomain("public");
+        dml.setDataSource(dataSource);
+        dml.setJdbcOperations(jdbcTemplate);
+        dml.setNamedParameterJdbcOperations(new NamedParameterJdbcTemplate(dataSource));
+        dml.setQueryMapper(new QueryMapperH2() {
+            public BulkLoader getBulkLoader() {
+                return bulkLoader;
+            }
+
+            // Named sequences, which are treated as auto increment columns otherwise
+            public String getQueryCountSequence() {
+                return "select count(*) from information_schema.sequences where lower(sequence_schema) = '${domain}' and lower(sequence_name) = ?";
+            }
+        });
+        dml.afterPropertiesSet();
+    }
+
+    private static Item newItem(long id, String name) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        return item;
+    }
+
+    @Test
+    public void bulkLoad() throws Exception {
+        dml.bulkLoad(Arrays.asList(newItem(1, "a\"b"), newItem(2, null), newItem(3, "")));
+        assertEquals(1, bulkLoader.sqlList.size());
+        assertEquals("copy public.item (id, name) from stdin with (format csv)", bulkLoader.sqlList.get(0));
+        assertEquals("1,\"a\"\"b\"\n2,\n3,\"\"\n", bulkLoader.textList.get(0));
+        // Not inserted by insertBatch
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from item", Integer.class).intValue());
+
+        dml.bulkLoad(Arrays.asList(newItem(4, "d"), newItem(5, "e")).stream(), 1);
+        assertEquals("4,\"d\"\n5,\"e\"\n", bulkLoader.textList.get(1));
+    }
+
+    @Test
+    public void sequenceFallback() throws Exception {
+        List<Ticket> list = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Ticket ticket = new Ticket();
+            ticket.setName("ticket" + i);
+            list.add(ticket);
+        }
+        dml.bulkLoad(list);
+        assertEquals(0, bulkLoader.sqlList.size());
+        assertEquals(3, jdbcTemplate.queryForObject("select count(distinct id) from ticket", Integer.class).intValue());
+
+        Ticket ticket = new Ticket();
+        ticket.setName("ticket3");
+        dml.bulkLoad(Arrays.asList(ticket).stream(), 10);
+        assertEquals(0, bulkLoader.sqlList.size());
+        assertEquals(4, jdbcTemplate.queryForObject("select count(distinct id) from ticket", Integer.class).intValue());
+    }
+
+    @Test
+    public void binaryFallback() throws Exception {
+        Doc doc1 = new Doc();
+        doc1.setId(1L);
+        doc1.setContent(new byte[]{1, 2, 3});
+        Doc doc2 = new Doc();
+        doc2.setId(2L);
+        dml.bulkLoad(Arrays.asList(doc1, doc2));
+        assertEquals(0, bulkLoader.sqlList.size());
+        assertArrayEquals(new byte[]{1, 2, 3}, jdbcTemplate.queryForObject("select content from doc where id = 1", byte[].class));
+        assertNull(jdbcTemplate.queryForObject("select content from doc where id = 2", byte[].class));
+    }
+}
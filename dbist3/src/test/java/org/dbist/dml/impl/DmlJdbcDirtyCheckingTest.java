@@ -0,0 +1,233 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.dbist.annotation.PrimaryKey;
+import org.dbist.annotation.Table;
+import org.dbist.dml.Query;
+import org.junit.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+
+/**
+ * Dirty checking (DmlJdbc.dirtyCheckingEnabled), which updates only the fields changed from the snapshot taken when selected.
+ */
+public class DmlJdbcDirtyCheckingTest extends AbstractDmlJdbcTest {
+    private final List<String> sqlList = new ArrayList<String>();
+
+    @Table(name = "item")
+    public static class Item {
+        @PrimaryKey
+        private Long id;
+        private String name;
+        private BigDecimal amount;
+        private Date createdAt;
+
+        public Long getId() {
+            return id;
+        }
+        public void setId(Long id) {
+            this.id = id;
+        }
+        public String getName() {
+            return name;
+        }
+        public void setName(String name) {
+            this.name = name;
+        }
+        public BigDecimal getAmount() {
+            return amount;
+        }
+        public void setAmount(BigDecimal amount) {
+            this.amount = amount;
+        }
+        public Date getCreatedAt() {
+            return createdAt;
+        }
+        public void setCreatedAt(Date createdAt) {
+            this.createdAt = createdAt;
+        }
+    }
+
+    @Override
+    protected void createTables() {
+        jdbcTemplate.execute("create table item(id bigint primary key, name varchar(50), amount decimal(10, 2), created_at timestamp)");
+        for (int i = 1; i <= 4; i++) {
+            jdbcTemplate.update("insert into item(id, name, amount, created_at) values (?, ?, ?, ?)", i, "item" + i, new BigDecimal(i + ".50"),
+                new Timestamp(1600000000000L + i * 1000L));
+        }
+    }
+
+    /**
+     * Enable dirty checking, and record the update statements (batches suffixed by their sizes)
+     */
+    private void setUpDirtyChecking() {
+        dml.setDirtyCheckingEnabled(true);
+        dml.setJdbcOperations(new JdbcTemplate(dataSource) {
+            @Override
+            public int update(String sql, PreparedStatementSetter pss) throws DataAccessException {
+                sqlList.add(sql);
+                return super.update(sql, pss);
+            }
+
+            @Override
+            public int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) throws DataAccessException {
+                sqlList.add(sql + " x" + pss.getBatchSize());
+                return super.batchUpdate(sql, pss);
+            }
+        });
+    }
+
+    private String selectName(long id) {
+        return jdbcTemplate.queryForObject("select name from item where id = ?", String.class, id);
+    }
+
+    @Test
+    public void unchangedEntity() throws Exception {
+        setUpDirtyChecking();
+        Item item = dml.select(Item.class, 1L);
+        dml.update(item);
+        item.setName(new String("item1"));
+        item.setCreatedAt(new Date(item.getCreatedAt().getTime()));
+        dml.update(item);
+        assertTrue(sqlList.toString(), sqlList.isEmpty());
+
+        // Not selected, so all the fields
+        Item other = new Item();
+        other.setId(2L);
+        other.setName("other");
+        dml.update(other);
+        assertEquals(1, sqlList.size());
+        assertTrue(sqlList.get(0), sqlList.get(0).contains("amount") && sqlList.get(0).contains("created_at"));
+    }
+
+    @Test
+    public void partialChange() throws Exception {
+        setUpDirtyChecking();
+        Item item = dml.select(Item.class, 1L);
+        item.setName("changed");
+        dml.update(item);
+        assertEquals(1, sqlList.size());
+        String sql = sqlList.get(0);
+        assertTrue(sql, sql.contains("name") && !sql.contains("amount") && !sql.contains("created_at"));
+        assertEquals("changed", selectName(1));
+        assertEquals(new BigDecimal("1.50"), jdbcTemplate.queryForObject("select amount from item where id = 1", BigDecimal.class));
+    }
+
+    @Test
+    public void dateMutatedInPlace() throws Exception {
+        setUpDirtyChecking();
+        Item item = dml.select(Item.class, 1L);
+        item.getCreatedAt().setTime(1700000000000L);
+        dml.update(item);
+        assertEquals(1, sqlList.size());
+        String sql = sqlList.get(0);
+        assertTrue(sql, sql.contains("created_at") && !sql.contains("name"));
+        assertEquals(1700000000000L, jdbcTemplate.queryForObject("select created_at from item where id = 1", Timestamp.class).getTime());
+    }
+
+    @Test
+    public void bigDecimalScale() throws Exception {
+        setUpDirtyChecking();
+        Item item = dml.select(Item.class, 1L);
+        item.setAmount(new BigDecimal("1.5"));
+        dml.update(item);
+        item.setAmount(new BigDecimal("1.500"));
+        dml.update(item);
+        assertTrue(sqlList.toString(), sqlList.isEmpty());
+
+        item.setAmount(new BigDecimal("1.51"));
+        dml.update(item);
+        assertEquals(1, sqlList.size());
+        assertTrue(sqlList.get(0), sqlList.get(0).contains("amount"));
+    }
+
+    @Test
+    public void batchOfDifferentChanges() throws Exception {
+        setUpDirtyChecking();
+        List<Item> list = dml.selectList(Item.class, new Query());
+        list.get(0).setName("a");
+        list.get(1).setAmount(new BigDecimal("9.99"));
+        list.get(2).setName("c");
+        Item other = new Item();
+        other.setId(5L);
+        other.setName("other");
+        jdbcTemplate.update("insert into item(id) values (5)");
+        List<Item> updatedList = new ArrayList<Item>(list);
+        updatedList.add(other);
+        dml.updateBatch(updatedList);
+
+        // Grouped by the changed fields: name of 1 and 3, amount of 2, and all the fields of the unselected one. 4 isn't changed.
+        assertEquals(sqlList.toString(), 3, sqlList.size());
+        assertTrue(sqlList.get(0), sqlList.get(0).contains("name") && !sqlList.get(0).contains("amount") && sqlList.get(0).endsWith(" x2"));
+        assertTrue(sqlList.get(1), sqlList.get(1).contains("amount") && !sqlList.get(1).contains("name") && sqlList.get(1).endsWith(" x1"));
+        assertTrue(sqlList.get(2), sqlList.get(2).contains("name") && sqlList.get(2).contains("amount") && sqlList.get(2).endsWith(" x1"));
+        assertEquals(Arrays.asList("a", "item2", "c", "item4", "other"),
+            jdbcTemplate.queryForList("select name from item order by id", String.class));
+        assertEquals(new BigDecimal("9.99"), jdbcTemplate.queryForObject("select amount from item where id = 2", BigDecimal.class));
+
+        sqlList.clear();
+        dml.updateBatch(list);
+        assertTrue(sqlList.toString(), sqlList.isEmpty());
+    }
+
+    @Test
+    public void snapshotRefreshedAfterUpdate() throws Exception {
+        setUpDirtyChecking();
+        Item item = dml.select(Item.class, 1L);
+        item.setName("changed");
+        dml.update(item);
+        dml.update(item);
+        assertEquals(1, sqlList.size());
+
+        // Changed back to the value selected first
+        item.setName("item1");
+        dml.update(item);
+        assertEquals(2, sqlList.size());
+        assertEquals("item1", selectName(1));
+
+        // Only the written fields are refreshed by the update of some fields
+        sqlList.clear();
+        item.setName("name");
+        item.setAmount(new BigDecimal("7"));
+        dml.update(item, "name");
+        dml.update(item);
+        assertEquals(2, sqlList.size());
+        String sql = sqlList.get(1);
+        assertTrue(sql, sql.contains("amount") && !sql.contains("name"));
+
+        // and by the batches
+        sqlList.clear();
+        item.getCreatedAt().setTime(0);
+        dml.updateBatch(Arrays.asList(item));
+        dml.updateBatch(Arrays.asList(item));
+        assertEquals(1, sqlList.size());
+        assertFalse(sqlList.get(0), sqlList.get(0).contains("name"));
+    }
+}
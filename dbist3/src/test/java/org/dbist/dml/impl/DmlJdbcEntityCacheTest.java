@@ -0,0 +1,272 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.dbist.annotation.PrimaryKey;
+import org.dbist.annotation.Relation;
+import org.dbist.annotation.Table;
+import org.dbist.cache.EntityCache;
+import org.junit.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Entity cache of the tables declaring a cache policy (@Table cache).
+ */
+public class DmlJdbcEntityCacheTest extends AbstractDmlJdbcTest {
+
+    @Table(name = "item", cache = EntityCache.EVICTION_LRU)
+    public static class Item {
+        @PrimaryKey
+        private Long id;
+        private String name;
+        private Date updatedAt;
+
+        public Long getId() {
+            return id;
+        }
+        public void setId(Long id) {
+            this.id = id;
+        }
+        public String getName() {
+            return name;
+        }
+        public void setName(String name) {
+            this.name = name;
+        }
+        public Date getUpdatedAt() {
+            return updatedAt;
+        }
+        public void setUpdatedAt(Date updatedAt) {
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    @Table(name = "item", isRef = true, cache = EntityCache.EVICTION_TTL, cacheTimeToLive = 300)
+    public static class ItemRef {
+        @PrimaryKey
+        private Long id;
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+        public void setId(Long id) {
+            this.id = id;
+        }
+        public String getName() {
+            return name;
+        }
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    @Table(name = "orders", cache = EntityCache.EVICTION_LRU)
+    public static class Order {
+        @PrimaryKey
+        private Long id;
+        private Long itemId;
+        @Relation(field = "itemId")
+        private ItemRef item;
+
+        public Long getId() {
+            return id;
+        }
+        public void setId(Long id) {
+            this.id = id;
+        }
+        public Long getItemId() {
+            return itemId;
+        }
+        public void setItemId(Long itemId) {
+            this.itemId = itemId;
+        }
+        public ItemRef getItem() {
+            return item;
+        }
+        public void setItem(ItemRef item) {
+            this.item = item;
+        }
+    }
+
+    private final List<String> sqlList = new ArrayList<>();
+    private Runnable beforeQuery;
+
+    @Override
+    protected void createTables() {
+        jdbcTemplate.execute("create table item(id bigint primary key, name varchar(50), updated_at timestamp)");
+        jdbcTemplate.execute("create table orders(id bigint primary key, item_id bigint)");
+        for (long id = 1; id <= 3; id++) {
+            jdbcTemplate.update("insert into item(id, name, updated_at) values (?, ?, ?)", id, "item" + id, new Date(0));
+            jdbcTemplate.update("insert into orders(id, item_id) values (?, ?)", id, id);
+        }
+    }
+
+    private void recordSql() {
+        dml.setNamedParameterJdbcOperations(new NamedParameterJdbcTemplate(dataSource) {
+            @Override
+            public <T> List<T> query(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper) throws DataAccessException {
+                sqlList.add(sql);
+                if (beforeQuery != null)
+                    beforeQuery.run();
+                return super.query(sql, paramMap, rowMapper);
+            }
+        });
+    }
+
+    @Test
+    public void selectHitsCache() throws Exception {
+        recordSql();
+        Item item = dml.select(Item.class, 1L);
+        assertEquals(1, sqlList.size());
+
+        Item cached = dml.select(Item.class, 1);
+        assertEquals(1, sqlList.size());
+        assertNotSame(item, cached);
+        assertEquals("item1", cached.getName());
+        EntityCache cache = dml.getEntityCache(Item.class);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // The cached entity is a copy, which is not changed by the callers.
+        cached.setName("changed");
+        cached.getUpdatedAt().setTime(1000);
+        item.getUpdatedAt().setTime(2000);
+        Item copy = dml.select(Item.class, 1L);
+        assertEquals("item1", copy.getName());
+        assertEquals(0, copy.getUpdatedAt().getTime());
+        assertEquals(1, sqlList.size());
+    }
+
+    @Test
+    public void updateEvictsCache() throws Exception {
+        Item item = dml.select(Item.class, 1L);
+        item.setName("updated");
+        dml.update(item);
+        assertEquals("updated", dml.select(Item.class, 1L).getName());
+    }
+
+    @Test
+    public void deleteEvictsCache() throws Exception {
+        Item item = dml.select(Item.class, 1L);
+        dml.delete(item);
+        assertNull(dml.select(Item.class, 1L));
+    }
+
+    @Test
+    public void batchEvictsCache() throws Exception {
+        List<Item> list = Arrays.asList(dml.select(Item.class, 1L), dml.select(Item.class, 2L));
+        for (Item item : list)
+            item.setName(item.getName() + "b");
+        dml.updateBatch(list);
+        assertEquals("item1b", dml.select(Item.class, 1L).getName());
+        assertEquals("item2b", dml.select(Item.class, 2L).getName());
+
+        dml.deleteBatch(list);
+        assertNull(dml.select(Item.class, 1L));
+        assertNull(dml.select(Item.class, 2L));
+        assertEquals("item3", dml.select(Item.class, 3L).getName());
+    }
+
+    @Test
+    public void writeEvictsCacheOfSameTable() throws Exception {
+        assertEquals("item1", dml.select(ItemRef.class, 1L).getName());
+        assertEquals("item2", dml.select(ItemRef.class, 2L).getName());
+        Item item = dml.select(Item.class, 1L);
+        item.setName("updated");
+        dml.update(item);
+        assertEquals(1, dml.getEntityCache(ItemRef.class).size());
+        assertEquals("updated", dml.select(ItemRef.class, 1L).getName());
+    }
+
+    @Test
+    public void writeEvictsCacheOfLinkingTable() throws Exception {
+        Order order = dml.select(Order.class, 1L);
+        assertEquals("item1", order.getItem().getName());
+
+        // The linked entity is copied too.
+        order.getItem().setName("changed");
+        assertEquals("item1", dml.select(Order.class, 1L).getItem().getName());
+
+        Item item = dml.select(Item.class, 1L);
+        item.setName("updated");
+        dml.update(item);
+        assertEquals("updated", dml.select(Order.class, 1L).getItem().getName());
+    }
+
+    @Test
+    public void transactionBypassesCacheAfterWrite() throws Exception {
+        dml.select(Item.class, 1L);
+        recordSql();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        try {
+            transactionTemplate.execute(new TransactionCallback<Object>() {
+                public Object doInTransaction(TransactionStatus status) {
+                    try {
+                        assertEquals("item1", dml.select(Item.class, 1L).getName());
+                        assertEquals(0, sqlList.size());
+
+                        jdbcTemplate.update("update item set name = 'tx' where id = 1");
+                        dml.update(dml.select(Item.class, 2L));
+                        sqlList.clear();
+                        assertEquals("tx", dml.select(Item.class, 1L).getName());
+                        assertEquals(1, sqlList.size());
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    throw new UnsupportedOperationException("rollback");
+                }
+            });
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        assertEquals("item1", dml.select(Item.class, 1L).getName());
+    }
+
+    @Test
+    public void putIsDroppedIfEvictedWhileSelecting() throws Exception {
+        final EntityCache cache = dml.getEntityCache(Item.class);
+        recordSql();
+        beforeQuery = new Runnable() {
+            public void run() {
+                cache.clear();
+            }
+        };
+        dml.select(Item.class, 1L);
+        assertEquals(0, cache.size());
+
+        beforeQuery = null;
+        dml.select(Item.class, 1L);
+        assertEquals(1, cache.size());
+    }
+}
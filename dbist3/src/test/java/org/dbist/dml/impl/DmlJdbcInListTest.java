@@ -0,0 +1,166 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.dbist.annotation.PrimaryKey;
+import org.dbist.annotation.Table;
+import org.dbist.dml.Query;
+import org.dbist.dml.jdbc.QueryMapperH2;
+import org.junit.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * In conditions bound as an array, or as a list padded to a power of two size and split by QueryMapper.getMaxInListSize().
+ */
+public class DmlJdbcInListTest extends AbstractDmlJdbcTest {
+    private String sql;
+    private Map<String, ?> paramMap;
+
+    @Table(name = "item")
+    public static class Item {
+        @PrimaryKey
+        private Long id;
+
+        public Long getId() {
+            return id;
+        }
+        public void setId(Long id) {
+            this.id = id;
+        }
+    }
+
+    @Override
+    protected void createTables() {
+        jdbcTemplate.execute("create table item(id bigint primary key)");
+        for (int i = 1; i <= 30; i++)
+            jdbcTemplate.update("insert into item(id) values (?)", i);
+    }
+
+    private void recordSql() {
+        dml.setNamedParameterJdbcOperations(new NamedParameterJdbcTemplate(dataSource) {
+            @Override
+            public <T> List<T> query(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper) throws DataAccessException {
+                DmlJdbcInListTest.this.sql = sql;
+                DmlJdbcInListTest.this.paramMap = paramMap;
+                return super.query(sql, paramMap, rowMapper);
+            }
+        });
+    }
+
+    /**
+     * Query mapper which doesn't bind arrays, of maxInListSize values
+     */
+    private void disableArrayBinding(final int maxInListSize) {
+        dml.setQueryMapper(new QueryMapperH2() {
+            public String toArrayTypeName(Class<?> elementType) {
+                return null;
+            }
+
+            public int getMaxInListSize() {
+                return maxInListSize;
+            }
+        });
+    }
+
+    private List<Long> selectIds(String operator, List<Long> values) throws Exception {
+        Query query = new Query();
+        query.addFilter("id", operator, values);
+        query.addOrder("id", true);
+        List<Long> idList = new ArrayList<Long>();
+        for (Item item : dml.selectList(Item.class, query))
+            idList.add(item.getId());
+        return idList;
+    }
+
+    private static List<Long> toIds(long from, long to) {
+        List<Long> idList = new ArrayList<Long>();
+        for (long id = from; id <= to; id++)
+            idList.add(id);
+        return idList;
+    }
+
+    /**
+     * Sizes of the list parameters
+     */
+    private List<Integer> toListSizes() {
+        List<Integer> sizeList = new ArrayList<Integer>();
+        for (Object value : paramMap.values()) {
+            if (value instanceof List)
+                sizeList.add(((List<?>) value).size());
+        }
+        return sizeList;
+    }
+
+    @Test
+    public void arrayBinding() throws Exception {
+        recordSql();
+        assertEquals(toIds(1, 4), selectIds("in", toIds(1, 4)));
+        assertTrue(sql, sql.contains("id = any(:"));
+        String sql4 = sql;
+        assertEquals(toIds(1, 5), selectIds("in", toIds(1, 5)));
+        assertEquals(sql4, sql);
+
+        // Over getMaxInListSize, still one array
+        assertEquals(toIds(1, 30), selectIds("in", toIds(1, 20000)));
+        assertEquals(sql4, sql);
+        assertEquals(toIds(26, 30), selectIds("not in", toIds(1, 25)));
+        assertTrue(sql, sql.contains("not id = any(:"));
+    }
+
+    @Test
+    public void padding() throws Exception {
+        disableArrayBinding(8);
+        recordSql();
+        // 2^n values
+        assertEquals(toIds(1, 4), selectIds("in", toIds(1, 4)));
+        assertEquals(1, toListSizes().size());
+        assertEquals(4, toListSizes().get(0).intValue());
+
+        // 2^n + 1 values are padded with the last value to 2^(n + 1)
+        assertEquals(toIds(1, 5), selectIds("in", toIds(1, 5)));
+        assertEquals(8, toListSizes().get(0).intValue());
+        assertEquals(toIds(1, 8), selectIds("in", toIds(1, 8)));
+        assertEquals(8, toListSizes().get(0).intValue());
+    }
+
+    @Test
+    public void overMaxInListSize() throws Exception {
+        disableArrayBinding(8);
+        recordSql();
+        // Split into or-ed conditions of maxInListSize values
+        assertEquals(toIds(1, 9), selectIds("in", toIds(1, 9)));
+        assertTrue(sql, sql.contains(" or "));
+        List<Integer> sizeList = toListSizes();
+        assertEquals(2, sizeList.size());
+        assertTrue(sizeList.toString(), sizeList.contains(8) && sizeList.contains(1));
+
+        assertEquals(toIds(1, 30), selectIds("in", toIds(1, 30)));
+        assertEquals(4, toListSizes().size());
+
+        // and-ed for not in
+        assertEquals(toIds(21, 30), selectIds("not in", toIds(1, 20)));
+        assertTrue(sql, sql.contains(" and "));
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dbist.annotation.PrimaryKey;
+import org.dbist.annotation.Relation;
+import org.dbist.metadata.Column;
+import org.dbist.metadata.Table;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * Table metadata built from the metadata snapshot, and evicted by the revalidation when the catalog is changed.
+ */
+public class DmlJdbcMetadataSnapshotTest extends AbstractDmlJdbcTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @org.dbist.annotation.Table(name = "item")
+    public static class Item {
+        @PrimaryKey
+        private Long id;
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+        public void setId(Long id) {
+            this.id = id;
+        }
+        public String getName() {
+            return name;
+        }
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    @org.dbist.annotation.Table(name = "orders")
+    public static class Order {
+        @PrimaryKey
+        private Long id;
+        private Long itemId;
+        @Relation(field = "itemId")
+        private Item item;
+
+        public Long getId() {
+            return id;
+        }
+        public void setId(Long id) {
+            this.id = id;
+        }
+        public Long getItemId() {
+            return itemId;
+        }
+        public void setItemId(Long itemId) {
+            this.itemId = itemId;
+        }
+        public Item getItem() {
+            return item;
+        }
+        public void setItem(Item item) {
+            this.item = item;
+        }
+    }
+
+    @org.dbist.annotation.Table(name = "other")
+    public static class Other {
+        @PrimaryKey
+        private Long id;
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+        public void setId(Long id) {
+            this.id = id;
+        }
+        public String getName() {
+            return name;
+        }
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    private final List<DmlJdbc> dmlList = new ArrayList<>();
+
+    @Override
+    protected void createTables() {
+        jdbcTemplate.execute("create table item(id bigint primary key, name varchar(50))");
+        jdbcTemplate.execute("create table orders(id bigint primary key, item_id bigint)");
+        jdbcTemplate.execute("create table other(id bigint primary key, name varchar(50))");
+        jdbcTemplate.update("insert into item(id, name) values (1, 'item1')");
+        jdbcTemplate.update("insert into orders(id, item_id) values (1, 1)");
+        jdbcTemplate.update("insert into other(id, name) values (1, 'other1')");
+    }
+
+    @After
+    public void tearDown() {
+        for (DmlJdbc snapshotDml : dmlList)
+            snapshotDml.destroy();
+    }
+
+    private DmlJdbc newSnapshotDml() throws Exception {
+        DmlJdbc snapshotDml = new DmlJdbc();
+        snapshotDml.setDomain("public");
+        snapshotDml.setDataSource(dataSource);
+        snapshotDml.setJdbcOperations(jdbcTemplate);
+        snapshotDml.setNamedParameterJdbcOperations(new NamedParameterJdbcTemplate(dataSource));
+        snapshotDml.setMetadataSnapshotDir(folder.getRoot().getAbsolutePath());
+        snapshotDml.setMetadataSnapshotRevalidationDelay(-1);
+        snapshotDml.afterPropertiesSet();
+        dmlList.add(snapshotDml);
+        return snapshotDml;
+    }
+
+    private void saveSnapshot() throws Exception {
+        DmlJdbc snapshotDml = newSnapshotDml();
+        snapshotDml.getTable(Item.class);
+        snapshotDml.getTable(Order.class);
+        snapshotDml.getTable(Other.class);
+        // Saves the snapshot scheduled to be saved
+        snapshotDml.destroy();
+        dmlList.remove(snapshotDml);
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    private static Table getLinkedTable(Table table) {
+        for (Column column : table.getColumnList()) {
+            if (column.getRelation() != null)
+                return column.getTable();
+        }
+        return null;
+    }
+
+    @Test
+    public void loaded() throws Exception {
+        saveSnapshot();
+
+        DmlJdbc snapshotDml = newSnapshotDml();
+        Table itemTable = snapshotDml.getTable(Item.class);
+        assertEquals("item", itemTable.getName());
+        assertEquals("id", itemTable.getPkColumnNameList().get(0));
+        Order order = snapshotDml.select(Order.class, 1L);
+        assertEquals("item1", order.getItem().getName());
+
+        // Nothing is changed
+        snapshotDml.revalidateMetadataSnapshot();
+        assertSame(itemTable, snapshotDml.getTable(Item.class));
+    }
+
+    @Test
+    public void revalidate() throws Exception {
+        saveSnapshot();
+
+        DmlJdbc snapshotDml = newSnapshotDml();
+        Table itemTable = snapshotDml.getTable(Item.class);
+        Table orderTable = snapshotDml.getTable(Order.class);
+        Table otherTable = snapshotDml.getTable(Other.class);
+        assertEquals(Integer.valueOf(50), itemTable.getColumn("name").getLength());
+
+        jdbcTemplate.execute("alter table item alter column name varchar(100)");
+        // Still the snapshot until revalidated
+        assertSame(itemTable, snapshotDml.getTable(Item.class));
+
+        snapshotDml.revalidateMetadataSnapshot();
+        Table revalidatedItemTable = snapshotDml.getTable(Item.class);
+        assertNotSame(itemTable, revalidatedItemTable);
+        assertEquals(Integer.valueOf(100), revalidatedItemTable.getColumn("name").getLength());
+        // Order links Item by @Relation
+        Table revalidatedOrderTable = snapshotDml.getTable(Order.class);
+        assertNotSame(orderTable, revalidatedOrderTable);
+        assertSame(revalidatedItemTable, getLinkedTable(revalidatedOrderTable));
+        assertSame(otherTable, snapshotDml.getTable(Other.class));
+
+        // The revalidated snapshot is saved
+        snapshotDml.destroy();
+        dmlList.remove(snapshotDml);
+        DmlJdbc reloadedDml = newSnapshotDml();
+        assertEquals(Integer.valueOf(100), reloadedDml.getTable(Item.class).getColumn("name").getLength());
+        reloadedDml.revalidateMetadataSnapshot();
+        Table reloadedItemTable = reloadedDml.getTable(Item.class);
+        reloadedDml.revalidateMetadataSnapshot();
+        assertSame(reloadedItemTable, reloadedDml.getTable(Item.class));
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.dbist.annotation.PrimaryKey;
+import org.dbist.annotation.Table;
+import org.dbist.dml.Query;
+import org.dbist.dml.jdbc.QueryMapperH2;
+import org.junit.Test;
+
+/**
+ * Pagination of selectList by the pagination query, and by the scrollable cursor where the query mapper doesn't support it.
+ */
+public class DmlJdbcPaginationTest extends AbstractDmlJdbcTest {
+
+    @Table(name = "item")
+    public static class Item {
+        @PrimaryKey
+        private Long id;
+
+        public Long getId() {
+            return id;
+        }
+        public void setId(Long id) {
+            this.id = id;
+        }
+    }
+
+    @Override
+    protected void createTables() {
+        jdbcTemplate.execute("create table item(id bigint primary key)");
+        for (int i = 1; i <= 25; i++)
+            jdbcTemplate.update("insert into item(id) values (?)", i);
+    }
+
+    private List<Long> selectIds(int pageIndex, int pageSize, int firstResultIndex, int maxResultSize) throws Exception {
+        Query query = new Query(pageIndex, pageSize, firstResultIndex, maxResultSize);
+        query.addOrder("id", true);
+        List<Long> idList = new ArrayList<Long>();
+        for (Item item : dml.selectList(Item.class, query))
+            idList.add(item.getId());
+        return idList;
+    }
+
+    private static List<Long> toIds(long from, long to) {
+        List<Long> idList = new ArrayList<Long>();
+        for (long id = from; id <= to; id++)
+            idList.add(id);
+        return idList;
+    }
+
+    private void assertPages() throws Exception {
+        assertEquals(toIds(1, 10), selectIds(0, 10, 0, 0));
+        assertEquals(toIds(1, 10), selectIds(1, 10, 0, 0));
+        assertEquals(toIds(11, 20), selectIds(2, 10, 0, 0));
+        assertEquals(toIds(21, 25), selectIds(3, 10, 0, 0));
+        assertEquals(toIds(16, 20), selectIds(2, 10, 5, 0));
+        // maxResultSize larger than the page
+        assertEquals(toIds(11, 20), selectIds(2, 10, 0, 25));
+        assertEquals(toIds(11, 14), selectIds(2, 10, 0, 4));
+        // Without page
+        assertEquals(toIds(6, 8), selectIds(0, 0, 5, 3));
+        assertEquals(toIds(24, 25), selectIds(0, 0, 23, 0));
+        assertEquals(toIds(1, 0), selectIds(4, 10, 0, 0));
+    }
+
+    @Test
+    public void paginationQuery() throws Exception {
+        assertPages();
+    }
+
+    @Test
+    public void scrollableCursor() throws Exception {
+        dml.setQueryMapper(new QueryMapperH2() {
+            public boolean isSupportedPaginationQuery() {
+                return false;
+            }
+
+            public String applyPagination(String sql, Map<String, ?> paramMap, int pageIndex, int pageSize, int firstResultIndex,
+                                          int maxResultSize) {
+                return sql;
+            }
+        });
+        assertPages();
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.dbist.annotation.PrimaryKey;
+import org.dbist.annotation.Table;
+import org.dbist.dml.Query;
+import org.dbist.exception.DbistRuntimeException;
+import org.junit.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * Parallel partitioned scans (Query.partitionField) select the same rows in the same order as the query without partitions.
+ */
+public class DmlJdbcPartitionTest extends AbstractDmlJdbcTest {
+    private final List<String> sqlList = new ArrayList<String>();
+
+    @Table(name = "item")
+    public static class Item {
+        @PrimaryKey
+        private Long id;
+        private String name;
+        private Integer grp;
+        private BigDecimal amount;
+        private Date createdAt;
+
+        public Long getId() {
+            return id;
+        }
+        public void setId(Long id) {
+            this.id = id;
+        }
+        public String getName() {
+            return name;
+        }
+        public void setName(String name) {
+            this.name = name;
+        }
+        public Integer getGrp() {
+            return grp;
+        }
+        public void setGrp(Integer grp) {
+            this.grp = grp;
+        }
+        public BigDecimal getAmount() {
+            return amount;
+        }
+        public void setAmount(BigDecimal amount) {
+            this.amount = amount;
+        }
+        public Date getCreatedAt() {
+            return createdAt;
+        }
+        public void setCreatedAt(Date createdAt) {
+            this.createdAt = createdAt;
+        }
+    }
+
+    @Override
+    protected void createTables() {
+        jdbcTemplate.execute("create table item(id bigint primary key, name varchar(50), grp int, amount decimal(10, 2), created_at timestamp)");
+        for (int i = 1; i <= 40; i++) {
+            jdbcTemplate.update("insert into item(id, name, grp, amount, created_at) values (?, ?, ?, ?, ?)", i, "item" + i,
+                i % 6 == 0 ? null : i % 7, i % 5 == 0 ? null : new BigDecimal(i).divide(new BigDecimal(8)),
+                i % 4 == 0 ? null : new Timestamp(1600000000000L + i * 3600000L));
+        }
+    }
+
+    private void recordSql() {
+        dml.setNamedParameterJdbcOperations(new NamedParameterJdbcTemplate(dataSource) {
+            @Override
+            public <T> List<T> query(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper) throws DataAccessException {
+                sqlList.add(sql);
+                return super.query(sql, paramMap, rowMapper);
+            }
+        });
+    }
+
+    private List<Long> selectIds(Query query) throws Exception {
+        List<Long> idList = new ArrayList<Long>();
+        for (Item item : dml.selectList(Item.class, query))
+            idList.add(item.getId());
+        return idList;
+    }
+
+    /**
+     * Select by the query, and by the partitions of the query
+     */
+    private void assertSameIds(Query query, String partitionField, int partitionCount) throws Exception {
+        List<Long> idList = selectIds(query);
+        query.setPartitionField(partitionField);
+        query.setPartitionCount(partitionCount);
+        sqlList.clear();
+        List<Long> partitionIdList = selectIds(query);
+        assertTrue(sqlList.toString(), sqlList.size() > 1);
+        if (query.getOrder() == null)
+            assertEquals(new java.util.TreeSet<Long>(idList), new java.util.TreeSet<Long>(partitionIdList));
+        assertEquals(idList.size(), partitionIdList.size());
+        if (query.getOrder() != null)
+            assertEquals(idList, partitionIdList);
+    }
+
+    private static Query toQuery(String... orders) {
+        Query query = new Query();
+        for (String order : orders)
+            query.addOrder(order.substring(1), order.charAt(0) == '+');
+        return query;
+    }
+
+    @Test
+    public void bounds() throws Exception {
+        recordSql();
+        // Integral, decimal and date fields, of which partitions don't overlap nor miss the bounds
+        for (int partitionCount = 2; partitionCount <= 9; partitionCount++) {
+            assertSameIds(toQuery("+id"), "id", partitionCount);
+            assertSameIds(toQuery("+amount", "+id"), "amount", partitionCount);
+            assertSameIds(toQuery("-createdAt", "+id"), "createdAt", partitionCount);
+        }
+        assertSameIds(toQuery(), "id", 3);
+
+        // Narrower range than the partition count
+        Query query = toQuery("+id");
+        query.addFilter("id", "<=", 2);
+        assertSameIds(query, "id", 5);
+        query = toQuery("+id");
+        query.addFilter("id", 5);
+        assertSameIds(query, "id", 5);
+
+        // No rows
+        query = toQuery("+id");
+        query.addFilter("id", ">", 100);
+        query.setPartitionField("id");
+        query.setPartitionCount(4);
+        assertEquals(0, dml.selectList(Item.class, query).size());
+    }
+
+    @Test
+    public void nullPartitionField() throws Exception {
+        recordSql();
+        // Nulls placed by the null ordering of the database
+        assertSameIds(toQuery("+grp", "+id"), "grp", 3);
+        assertSameIds(toQuery("-grp", "+id"), "grp", 3);
+        assertSameIds(toQuery("+createdAt", "-id"), "createdAt", 4);
+        assertSameIds(toQuery(), "grp", 3);
+
+        // Only nulls, by the null partition
+        Query query = toQuery("+grp", "+id");
+        query.addFilter("grp", "is null", null);
+        List<Long> idList = selectIds(query);
+        assertEquals(6, idList.size());
+        assertEquals(idList, selectIds(toQueryWithPartition(query, "grp", 3)));
+    }
+
+    @Test
+    public void mergedOrder() throws Exception {
+        recordSql();
+        // Merged by decimal, date and primary key fields, of which nulls are placed by the null ordering of the database
+        assertSameIds(toQuery("-amount", "+id"), "id", 4);
+        assertSameIds(toQuery("+amount", "-id"), "id", 4);
+        assertSameIds(toQuery("-amount", "+createdAt", "-id"), "grp", 3);
+        assertSameIds(toQuery("+createdAt", "+id"), "amount", 5);
+        assertSameIds(toQuery("-createdAt", "-id"), "amount", 5);
+
+        // Text is compared by the collation of the database, and null integers are read as 0
+        try {
+            dml.selectList(Item.class, toQueryWithPartition(toQuery("+name"), "id", 3));
+            fail();
+        } catch (DbistRuntimeException e) {
+        }
+        try {
+            dml.selectList(Item.class, toQueryWithPartition(toQuery("+grp", "-id"), "id", 3));
+            fail();
+        } catch (DbistRuntimeException e) {
+        }
+        // but the partitions ordered by the partition field first are just concatenated
+        assertSameIds(toQuery("+grp", "+name"), "grp", 3);
+    }
+
+    private static Query toQueryWithPartition(Query query, String partitionField, int partitionCount) {
+        query.setPartitionField(partitionField);
+        query.setPartitionCount(partitionCount);
+        return query;
+    }
+
+    @Test
+    public void destroy() throws Exception {
+        ExecutorService executor = dml.getPartitionExecutor();
+        dml.destroy();
+        assertTrue(executor.isShutdown());
+
+        // A given executor is not shut down
+        executor = Executors.newSingleThreadExecutor();
+        try {
+            dml.setPartitionExecutor(executor);
+            assertEquals(40, dml.selectList(Item.class, toQueryWithPartition(toQuery(), "id", 3)).size());
+            dml.destroy();
+            assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
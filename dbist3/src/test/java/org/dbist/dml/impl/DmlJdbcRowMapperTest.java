@@ -0,0 +1,266 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+import org.dbist.annotation.PrimaryKey;
+import org.dbist.annotation.Relation;
+import org.dbist.annotation.Table;
+import org.dbist.dml.jdbc.CompiledRowMapper;
+import org.junit.Test;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+/**
+ * Compiled row mappers map the rows the same as the reflective mapping of DmlJdbc.newInstance.
+ */
+public class DmlJdbcRowMapperTest extends AbstractDmlJdbcTest {
+
+    @Table(name = "owner")
+    public static class Owner {
+        @PrimaryKey
+        private String id;
+        private String name;
+        private int level;
+
+        public String getId() {
+            return id;
+        }
+        public void setId(String id) {
+            this.id = id;
+        }
+        public String getName() {
+            return name;
+        }
+        public void setName(String name) {
+            this.name = name;
+        }
+        public int getLevel() {
+            return level;
+        }
+        public void setLevel(int level) {
+            this.level = level;
+        }
+    }
+
+    @Table(name = "item")
+    public static class Item {
+        @PrimaryKey
+        private Long id;
+        private String name;
+        private int qty;
+        private long total;
+        private double rate;
+        private boolean active;
+        private Integer grade;
+        private BigDecimal price;
+        private Date createdAt;
+        private char code;
+        private String ownerId;
+        @Relation(field = "ownerId")
+        private Owner owner;
+
+        public Long getId() {
+            return id;
+        }
+        public void setId(Long id) {
+            this.id = id;
+        }
+        public String getName() {
+            return name;
+        }
+        public void setName(String name) {
+            this.name = name;
+        }
+        public int getQty() {
+            return qty;
+        }
+        public void setQty(int qty) {
+            this.qty = qty;
+        }
+        public long getTotal() {
+            return total;
+        }
+        public void setTotal(long total) {
+            this.total = total;
+        }
+        public double getRate() {
+            return rate;
+        }
+        public void setRate(double rate) {
+            this.rate = rate;
+        }
+        public boolean isActive() {
+            return active;
+        }
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+        public Integer getGrade() {
+            return grade;
+        }
+        public void setGrade(Integer grade) {
+            this.grade = grade;
+        }
+        public BigDecimal getPrice() {
+            return price;
+        }
+        public void setPrice(BigDecimal price) {
+            this.price = price;
+        }
+        public Date getCreatedAt() {
+            return createdAt;
+        }
+        public void setCreatedAt(Date createdAt) {
+            this.createdAt = createdAt;
+        }
+        public char getCode() {
+            return code;
+        }
+        public void setCode(char code) {
+            this.code = code;
+        }
+        public String getOwnerId() {
+            return ownerId;
+        }
+        public void setOwnerId(String ownerId) {
+            this.ownerId = ownerId;
+        }
+        public Owner getOwner() {
+            return owner;
+        }
+        public void setOwner(Owner owner) {
+            this.owner = owner;
+        }
+    }
+
+    @Override
+    protected void createTables() {
+        jdbcTemplate.execute("create table owner(id varchar(10) primary key, name varchar(50), level int)");
+        jdbcTemplate.execute("create table item(id bigint primary key, name varchar(50), qty int, total bigint, rate double, active boolean,"
+            + " grade int, price decimal(10, 2), created_at timestamp, code char(1), owner_id varchar(10))");
+        jdbcTemplate.update("insert into owner(id, name, level) values ('o1', 'owner1', 3)");
+        jdbcTemplate.update("insert into item values (1, 'item1', 10, 100, 1.5, true, 2, 9.99, ?, 'a', 'o1')", new Timestamp(1600000000000L));
+        // Nulls of the primitive fields
+        jdbcTemplate.update("insert into item(id) values (2)");
+    }
+
+    /**
+     * Map the rows of the SQL by the compiled row mapper and by the reflective mapping, and compare them field by field.
+     *
+     * @return The rows mapped by the compiled row mapper
+     */
+    private List<Item> assertSameMapping(String sql) {
+        final org.dbist.metadata.Table table = dml.getTable(Item.class);
+        final List<Item> list = new ArrayList<Item>();
+        jdbcTemplate.query(sql, new RowCallbackHandler() {
+            public void processRow(ResultSet rs) throws SQLException {
+                CompiledRowMapper compiledRowMapper = dml.getCompiledRowMapper(rs, Item.class, table);
+                assertNotNull(compiledRowMapper);
+                Item item = (Item) compiledRowMapper.mapRow(rs);
+                assertSameFields(dml.newInstance(rs, Item.class, table), item);
+                list.add(item);
+            }
+        });
+        return list;
+    }
+
+    private static void assertSameFields(Object expected, Object actual) {
+        if (expected == null || actual == null) {
+            assertEquals(expected, actual);
+            return;
+        }
+        try {
+            for (Field field : expected.getClass().getDeclaredFields()) {
+                field.setAccessible(true);
+                if (field.getType().equals(Owner.class))
+                    assertSameFields(field.get(expected), field.get(actual));
+                else
+                    assertTrue(field.getName() + ": " + field.get(expected) + " != " + field.get(actual),
+                        Objects.deepEquals(field.get(expected), field.get(actual)));
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    public void nullPrimitives() throws Exception {
+        List<Item> list = assertSameMapping("select * from item where id = 2");
+        Item item = list.get(0);
+        assertEquals(0, item.getQty());
+        assertEquals(0L, item.getTotal());
+        assertEquals(false, item.isActive());
+        assertEquals(null, item.getPrice());
+        assertEquals(null, item.getCreatedAt());
+    }
+
+    @Test
+    public void relationSubFields() throws Exception {
+        List<Item> list = assertSameMapping("select item.*, owner.id owner__id, owner.name owner__name, owner.level owner__level"
+            + " from item left outer join owner on item.owner_id = owner.id order by item.id");
+        assertEquals("owner1", list.get(0).getOwner().getName());
+        assertEquals(3, list.get(0).getOwner().getLevel());
+        // Created for the null columns of the outer join as well
+        assertNotNull(list.get(1).getOwner());
+        assertEquals(null, list.get(1).getOwner().getId());
+        assertNotSame(list.get(0).getOwner(), list.get(1).getOwner());
+
+        // by the select of the Dml
+        assertSameFields(list.get(0), dml.select(Item.class, 1L));
+    }
+
+    @Test
+    public void labelAliases() throws Exception {
+        // Column names, field names and camel case of the labels, and labels of no field
+        List<Item> list = assertSameMapping("select id, name as \"name\", created_at as \"createdAt\", total as TOTAL, qty as QTY, rate as \"RATE\","
+            + " price as unknown_price, 1 as extra from item order by id");
+        assertEquals(1600000000000L, list.get(0).getCreatedAt().getTime());
+        assertEquals(10, list.get(0).getQty());
+        assertEquals(1.5, list.get(0).getRate(), 0);
+        assertEquals(null, list.get(0).getPrice());
+    }
+
+    @Test
+    public void columnLayoutsPerQuery() throws Exception {
+        org.dbist.metadata.Table table = dml.getTable(Item.class);
+        int size = table.getCompiledRowMapperMap().size();
+        assertEquals("item1", assertSameMapping("select id, name from item where id = 1").get(0).getName());
+        List<Item> list = assertSameMapping("select qty, name, id from item where id = 1");
+        assertEquals(10, list.get(0).getQty());
+        assertEquals("item1", list.get(0).getName());
+        assertEquals(1L, list.get(0).getId().longValue());
+        assertEquals(0, assertSameMapping("select name, id from item where id = 1").get(0).getQty());
+        assertEquals(size + 3, table.getCompiledRowMapperMap().size());
+
+        // The same layout shares the row mapper
+        assertSameMapping("select qty, name, id from item where id = 2");
+        assertEquals(size + 3, table.getCompiledRowMapperMap().size());
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.dbist.annotation.PrimaryKey;
+import org.dbist.annotation.Table;
+import org.dbist.dml.Page;
+import org.dbist.dml.Query;
+import org.dbist.dml.jdbc.QueryMapperH2;
+import org.dbist.exception.DbistRuntimeException;
+import org.junit.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * Keyset (seek) pagination, by the row value comparison and by the expanded predicate.
+ */
+public class DmlJdbcSeekTest extends AbstractDmlJdbcTest {
+    private final List<String> sqlList = new ArrayList<String>();
+
+    @Table(name = "item")
+    public static class Item {
+        @PrimaryKey
+        private Long id;
+        private Integer grp;
+
+        public Long getId() {
+            return id;
+        }
+        public void setId(Long id) {
+            this.id = id;
+        }
+        public Integer getGrp() {
+            return grp;
+        }
+        public void setGrp(Integer grp) {
+            this.grp = grp;
+        }
+    }
+
+    @Override
+    protected void createTables() {
+        jdbcTemplate.execute("create table item(id bigint primary key, grp int)");
+        for (int i = 1; i <= 12; i++)
+            jdbcTemplate.update("insert into item(id, grp) values (?, ?)", i, i % 3);
+    }
+
+    private void recordSql() {
+        dml.setNamedParameterJdbcOperations(new NamedParameterJdbcTemplate(dataSource) {
+            @Override
+            public <T> List<T> query(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper) throws DataAccessException {
+                sqlList.add(sql);
+                return super.query(sql, paramMap, rowMapper);
+            }
+        });
+    }
+
+    private void disableRowValueComparison() {
+        dml.setQueryMapper(new QueryMapperH2() {
+            public boolean isSupportedRowValueComparison() {
+                return false;
+            }
+        });
+    }
+
+    private List<Long> selectIds(Query query) throws Exception {
+        List<Long> idList = new ArrayList<Long>();
+        for (Item item : dml.selectList(Item.class, query))
+            idList.add(item.getId());
+        return idList;
+    }
+
+    private static Query toQuery(boolean grpAscending, boolean idAscending) {
+        Query query = new Query(0, 4);
+        query.addOrder("grp", grpAscending);
+        query.addOrder("id", idAscending);
+        return query;
+    }
+
+    @Test
+    public void rowValueComparison() throws Exception {
+        recordSql();
+        Query query = toQuery(true, true);
+        query.addSeek(1, 4L);
+        assertEquals(Arrays.asList(7L, 10L, 2L, 5L), selectIds(query));
+        String sql = sqlList.get(sqlList.size() - 1);
+        assertTrue(sql, sql.contains("(grp, id) > (:__seek0, :__seek1)"));
+
+        query = toQuery(false, false);
+        query.addSeek(1, 4L);
+        assertEquals(Arrays.asList(1L, 12L, 9L, 6L), selectIds(query));
+        sql = sqlList.get(sqlList.size() - 1);
+        assertTrue(sql, sql.contains("(grp, id) < (:__seek0, :__seek1)"));
+    }
+
+    @Test
+    public void expandedPredicate() throws Exception {
+        disableRowValueComparison();
+        recordSql();
+        Query query = toQuery(true, true);
+        query.addSeek(1, 4L);
+        assertEquals(Arrays.asList(7L, 10L, 2L, 5L), selectIds(query));
+        String sql = sqlList.get(sqlList.size() - 1);
+        assertTrue(sql, sql.contains("grp >= :__seek0 and (grp > :__seek0 or (grp = :__seek0 and (id > :__seek1)))"));
+    }
+
+    @Test
+    public void mixedDirections() throws Exception {
+        recordSql();
+        // grp ascending, id descending: 12, 9, 6, 3, 10, 7, 4, 1, 11, 8, 5, 2
+        Query query = toQuery(true, false);
+        query.addSeek(1, 7L);
+        assertEquals(Arrays.asList(4L, 1L, 11L, 8L), selectIds(query));
+        String sql = sqlList.get(sqlList.size() - 1);
+        assertTrue(sql, sql.contains("grp >= :__seek0 and (grp > :__seek0 or (grp = :__seek0 and (id < :__seek1)))"));
+    }
+
+    @Test
+    public void orFilters() throws Exception {
+        // The filters are parenthesized before the seek predicate
+        Query query = toQuery(true, true);
+        query.setOperator("or");
+        query.addFilter("id", "<", 3);
+        query.addFilter("id", ">", 10);
+        query.addSeek(1, 1L);
+        assertEquals(Arrays.asList(2L, 11L), selectIds(query));
+    }
+
+    @Test
+    public void nullValue() throws Exception {
+        Query query = toQuery(true, true);
+        query.addSeek(1, null);
+        try {
+            selectIds(query);
+            fail();
+        } catch (DbistRuntimeException e) {
+        }
+    }
+
+    @Test
+    public void nextToken() throws Exception {
+        for (boolean rowValueComparison : new boolean[] { true, false }) {
+            if (!rowValueComparison)
+                disableRowValueComparison();
+            // The first page is sought after by its last row, and the next pages by the token
+            Query query = toQuery(true, false);
+            query.setCountMode(Query.COUNT_NONE);
+            Page<Item> page = dml.selectPage(Item.class, query);
+            Item last = page.getList().get(page.getList().size() - 1);
+            query.addSeek(last.getGrp(), last.getId());
+            List<Long> idList = new ArrayList<Long>();
+            while (true) {
+                for (Item item : page.getList())
+                    idList.add(item.getId());
+                page = dml.selectPage(Item.class, query);
+                if (page.getNextToken() == null)
+                    break;
+                query = toQuery(true, false);
+                query.setCountMode(Query.COUNT_NONE);
+                query.setSeekToken(page.getNextToken());
+            }
+            for (Item item : page.getList())
+                idList.add(item.getId());
+            assertEquals(Arrays.asList(12L, 9L, 6L, 3L, 10L, 7L, 4L, 1L, 11L, 8L, 5L, 2L), idList);
+        }
+    }
+}
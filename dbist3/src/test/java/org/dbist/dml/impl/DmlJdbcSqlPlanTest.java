@@ -0,0 +1,238 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.dbist.annotation.PrimaryKey;
+import org.dbist.annotation.Table;
+import org.dbist.dml.Query;
+import org.dbist.dml.jdbc.QueryMapperH2;
+import org.junit.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * SQL plans cached by the query shape bind the same SQL and parameters as the SQL built without the cache.
+ */
+public class DmlJdbcSqlPlanTest extends AbstractDmlJdbcTest {
+
+    @Table(name = "item")
+    public static class Item {
+        @PrimaryKey
+        private Long id;
+        private String name;
+        private Integer grp;
+
+        public Long getId() {
+            return id;
+        }
+        public void setId(Long id) {
+            this.id = id;
+        }
+        public String getName() {
+            return name;
+        }
+        public void setName(String name) {
+            this.name = name;
+        }
+        public Integer getGrp() {
+            return grp;
+        }
+        public void setGrp(Integer grp) {
+            this.grp = grp;
+        }
+    }
+
+    /**
+     * SQL and parameters of the last query
+     */
+    private static class Recorder extends NamedParameterJdbcTemplate {
+        private String sql;
+        private Map<String, ?> paramMap;
+
+        Recorder(javax.sql.DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public <T> List<T> query(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper) throws DataAccessException {
+            this.sql = sql;
+            this.paramMap = paramMap;
+            return super.query(sql, paramMap, rowMapper);
+        }
+    }
+
+    private Recorder recorder;
+    private DmlJdbc freshDml;
+    private Recorder freshRecorder;
+
+    @Override
+    protected void createTables() {
+        jdbcTemplate.execute("create table item(id bigint primary key, name varchar(50), grp int)");
+        for (int i = 1; i <= 30; i++)
+            jdbcTemplate.update("insert into item(id, name, grp) values (?, ?, ?)", i, i % 4 == 0 ? null : "item" + i, i % 3);
+    }
+
+    /**
+     * The DmlJdbc with the plan cache, and another one without it, both of which don't bind in-lists as arrays
+     */
+    private void setUpDmls(int maxInListSize) throws Exception {
+        recorder = new Recorder(dataSource);
+        dml.setNamedParameterJdbcOperations(recorder);
+        dml.setQueryMapper(newQueryMapper(maxInListSize));
+
+        freshDml = new DmlJdbc();
+        freshDml.setDomain("public");
+        freshDml.setDataSource(dataSource);
+        freshDml.setJdbcOperations(jdbcTemplate);
+        freshRecorder = new Recorder(dataSource);
+        freshDml.setNamedParameterJdbcOperations(freshRecorder);
+        freshDml.setMaxSqlPlanCacheSize(0);
+        freshDml.afterPropertiesSet();
+        freshDml.setQueryMapper(newQueryMapper(maxInListSize));
+    }
+
+    private static QueryMapperH2 newQueryMapper(final int maxInListSize) {
+        return new QueryMapperH2() {
+            public String toArrayTypeName(Class<?> elementType) {
+                return null;
+            }
+
+            public int getMaxInListSize() {
+                return maxInListSize;
+            }
+        };
+    }
+
+    private static List<Long> toIds(List<Item> list) {
+        List<Long> idList = new ArrayList<Long>();
+        for (Item item : list)
+            idList.add(item.getId());
+        return idList;
+    }
+
+    /**
+     * Select by the first query to cache the plan, and then by the second query of the same shape with and without the cache.
+     */
+    private void assertSameBinding(Query first, Query second) throws Exception {
+        dml.selectList(Item.class, first);
+        List<Long> idList = toIds(dml.selectList(Item.class, second));
+        List<Long> freshIdList = toIds(freshDml.selectList(Item.class, second));
+        assertEquals(freshRecorder.sql, recorder.sql);
+        assertEquals(freshRecorder.paramMap, recorder.paramMap);
+        assertEquals(freshIdList, idList);
+    }
+
+    @Test
+    public void nullFilters() throws Exception {
+        setUpDmls(8);
+        Query first = new Query();
+        first.addFilter("name", "is null", null);
+        first.addFilter("grp", 1);
+        Query second = new Query();
+        second.addFilter("name", "is null", null);
+        second.addFilter("grp", 2);
+        assertSameBinding(first, second);
+
+        first = new Query();
+        first.addFilter("name", "in", Arrays.asList("item1", null));
+        second = new Query();
+        second.addFilter("name", "in", Arrays.asList("item2", null));
+        assertSameBinding(first, second);
+
+        first = new Query();
+        first.addFilter("name", "is not null", null);
+        first.addFilter("grp", "in", Arrays.asList(0, 1));
+        second = new Query();
+        second.addFilter("name", "is not null", null);
+        second.addFilter("grp", "in", Arrays.asList(2, 1));
+        assertSameBinding(first, second);
+    }
+
+    @Test
+    public void inListUnderMaxInListSize() throws Exception {
+        setUpDmls(8);
+        Query first = new Query();
+        first.addFilter("id", "in", Arrays.asList(1L, 2L, 3L));
+        Query second = new Query();
+        second.addFilter("id", "in", Arrays.asList(4L, 5L, 6L));
+        assertSameBinding(first, second);
+
+        // Padded to the same size
+        second = new Query();
+        second.addFilter("id", "in", Arrays.asList(7L, 8L, 9L, 10L));
+        assertSameBinding(first, second);
+
+        first = new Query();
+        first.addFilter("id", "not in", Arrays.asList(1L, 2L, 3L, 4L, 5L));
+        second = new Query();
+        second.addFilter("id", "not in", Arrays.asList(11L, 12L, 13L, 14L, 15L, 16L));
+        assertSameBinding(first, second);
+    }
+
+    @Test
+    public void inListOverMaxInListSize() throws Exception {
+        setUpDmls(4);
+        Query first = new Query();
+        first.addFilter("id", "in", Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L));
+        Query second = new Query();
+        second.addFilter("id", "in", Arrays.asList(11L, 12L, 13L, 14L, 15L, 16L, 17L));
+        assertSameBinding(first, second);
+
+        // Over and under the size, of the same filter
+        second = new Query();
+        second.addFilter("id", "in", Arrays.asList(21L, 22L));
+        assertSameBinding(first, second);
+        assertSameBinding(second, first);
+
+        first = new Query();
+        first.addFilter("id", "not in", Arrays.asList(1L, 2L, 3L, 4L, 5L));
+        second = new Query();
+        second.addFilter("id", "not in", Arrays.asList(6L, 7L, 8L, 9L, 10L, 11L, 12L, 13L, 14L));
+        assertSameBinding(first, second);
+    }
+
+    @Test
+    public void seek() throws Exception {
+        setUpDmls(8);
+        Query first = new Query(0, 4);
+        first.addFilter("name", "is not null", null);
+        first.addOrder("grp", true);
+        first.addOrder("id", false);
+        first.addSeek(0, 30L);
+        Query second = new Query(0, 4);
+        second.addFilter("name", "is not null", null);
+        second.addOrder("grp", true);
+        second.addOrder("id", false);
+        second.addSeek(1, 13L);
+        assertSameBinding(first, second);
+
+        // The seek value of another type
+        second = new Query(0, 4);
+        second.addFilter("name", "is not null", null);
+        second.addOrder("grp", true);
+        second.addOrder("id", false);
+        second.addSeek("2", "20");
+        assertSameBinding(first, second);
+    }
+}
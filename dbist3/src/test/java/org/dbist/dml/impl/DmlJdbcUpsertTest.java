@@ -0,0 +1,125 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dbist.annotation.PrimaryKey;
+import org.dbist.annotation.Table;
+import org.junit.Test;
+
+/**
+ * Upsert by a single statement (merge of H2) on a table of a composite primary key.
+ */
+public class DmlJdbcUpsertTest extends AbstractDmlJdbcTest {
+
+    @Table(name = "stock")
+    public static class Stock {
+        @PrimaryKey
+        private String warehouse;
+        @PrimaryKey
+        private String item;
+        private Integer qty;
+        private String memo;
+
+        public Stock() {
+        }
+        public Stock(String warehouse, String item, Integer qty, String memo) {
+            this.warehouse = warehouse;
+            this.item = item;
+            this.qty = qty;
+            this.memo = memo;
+        }
+        public String getWarehouse() {
+            return warehouse;
+        }
+        public void setWarehouse(String warehouse) {
+            this.warehouse = warehouse;
+        }
+        public String getItem() {
+            return item;
+        }
+        public void setItem(String item) {
+            this.item = item;
+        }
+        public Integer getQty() {
+            return qty;
+        }
+        public void setQty(Integer qty) {
+            this.qty = qty;
+        }
+        public String getMemo() {
+            return memo;
+        }
+        public void setMemo(String memo) {
+            this.memo = memo;
+        }
+    }
+
+    @Override
+    protected void createTables() {
+        jdbcTemplate.execute("create table stock(warehouse varchar(10), item varchar(10), qty int, memo varchar(50), primary key(warehouse, item))");
+    }
+
+    private Stock select(String warehouse, String item) throws Exception {
+        return dml.select(Stock.class, new Object[] { warehouse, item });
+    }
+
+    @Test
+    public void upsert() throws Exception {
+        dml.upsert(new Stock("w1", "i1", 1, "a"));
+        dml.upsert(new Stock("w1", "i2", 2, "b"));
+        dml.upsert(new Stock("w1", "i1", 3, "c"));
+        assertEquals(2, jdbcTemplate.queryForObject("select count(*) from stock", Integer.class).intValue());
+        Stock stock = select("w1", "i1");
+        assertEquals(3, stock.getQty().intValue());
+        assertEquals("c", stock.getMemo());
+        assertEquals(2, select("w1", "i2").getQty().intValue());
+    }
+
+    @Test
+    public void upsertFields() throws Exception {
+        String sql = dml.getTable(Stock.class).getUpsertSql("qty");
+        assertTrue(sql, sql.startsWith("merge into ") && sql.contains("(warehouse, item, qty) key(warehouse, item)"));
+
+        dml.insert(new Stock("w1", "i1", 1, "a"));
+        dml.upsert(new Stock("w1", "i1", 5, "x"), "qty");
+        dml.upsert(new Stock("w2", "i1", 6, "y"), "qty");
+        Stock stock = select("w1", "i1");
+        assertEquals(5, stock.getQty().intValue());
+        assertEquals("a", stock.getMemo());
+        stock = select("w2", "i1");
+        assertEquals(6, stock.getQty().intValue());
+        assertEquals(null, stock.getMemo());
+    }
+
+    @Test
+    public void upsertBatch() throws Exception {
+        dml.insert(new Stock("w1", "i1", 1, "a"));
+        List<Stock> list = new ArrayList<Stock>();
+        list.add(new Stock("w1", "i1", 2, "b"));
+        list.add(new Stock("w1", "i2", 3, "c"));
+        list.add(new Stock("w2", "i1", 4, "d"));
+        dml.upsertBatch(list);
+        assertEquals(3, jdbcTemplate.queryForObject("select count(*) from stock", Integer.class).intValue());
+        assertEquals(2, select("w1", "i1").getQty().intValue());
+        assertEquals("d", select("w2", "i1").getMemo());
+    }
+}
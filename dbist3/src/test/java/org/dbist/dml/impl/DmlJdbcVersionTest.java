@@ -0,0 +1,153 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dbist.annotation.PrimaryKey;
+import org.dbist.annotation.Table;
+import org.dbist.exception.DbistRuntimeException;
+import org.dbist.exception.OptimisticLockException;
+import org.junit.Test;
+
+/**
+ * Optimistic locking of the tables managing version (@Table manageVersion).
+ */
+public class DmlJdbcVersionTest extends AbstractDmlJdbcTest {
+
+    @Table(name = "account", manageVersion = true)
+    public static class Account {
+        @PrimaryKey
+        private Long id;
+        private String name;
+        private Integer version;
+
+        public Long getId() {
+            return id;
+        }
+        public void setId(Long id) {
+            this.id = id;
+        }
+        public String getName() {
+            return name;
+        }
+        public void setName(String name) {
+            this.name = name;
+        }
+        public Integer getVersion() {
+            return version;
+        }
+        public void setVersion(Integer version) {
+            this.version = version;
+        }
+    }
+
+    @Override
+    protected void createTables() {
+        jdbcTemplate.execute("create table account(id bigint primary key, name varchar(50), version int)");
+    }
+
+    private int selectVersion(long id) {
+        return jdbcTemplate.queryForObject("select version from account where id = ?", Integer.class, id);
+    }
+
+    @Test
+    public void updateChecksVersion() throws Exception {
+        Account account = new Account();
+        account.setId(1L);
+        account.setName("a");
+        dml.insert(account);
+        assertEquals(1, account.getVersion().intValue());
+
+        Account stale = dml.select(Account.class, 1L);
+        account.setName("b");
+        dml.update(account);
+        assertEquals(2, account.getVersion().intValue());
+        assertEquals(2, selectVersion(1L));
+
+        stale.setName("c");
+        try {
+            dml.update(stale);
+            fail();
+        } catch (OptimisticLockException e) {
+        }
+        try {
+            dml.delete(stale);
+            fail();
+        } catch (OptimisticLockException e) {
+        }
+        dml.delete(account);
+    }
+
+    @Test
+    public void updateNullVersion() throws Exception {
+        // Rows written before the table managed version
+        jdbcTemplate.update("insert into account(id, name) values (1, 'a')");
+        jdbcTemplate.update("insert into account(id, name) values (2, 'b')");
+
+        Account account = dml.select(Account.class, 1L);
+        assertEquals(0, account.getVersion().intValue());
+        Account stale = dml.select(Account.class, 1L);
+        account.setName("a2");
+        dml.update(account);
+        assertEquals(1, account.getVersion().intValue());
+        assertEquals(1, selectVersion(1L));
+
+        stale.setName("a3");
+        try {
+            dml.update(stale);
+            fail();
+        } catch (OptimisticLockException e) {
+        }
+
+        List<Account> list = new ArrayList<Account>();
+        list.add(account);
+        list.add(dml.select(Account.class, 2L));
+        dml.updateBatch(list);
+        assertEquals(2, list.get(0).getVersion().intValue());
+        assertEquals(1, list.get(1).getVersion().intValue());
+        assertEquals(2, selectVersion(1L));
+        assertEquals(1, selectVersion(2L));
+
+        jdbcTemplate.update("insert into account(id, name) values (3, 'c')");
+        dml.delete(dml.select(Account.class, 3L));
+        assertEquals(2, jdbcTemplate.queryForObject("select count(*) from account", Integer.class).intValue());
+    }
+
+    @Test
+    public void versionFieldRequired() throws Exception {
+        jdbcTemplate.update("insert into account(id, name, version) values (1, 'a', 1)");
+
+        Account account = new Account();
+        account.setId(1L);
+        account.setName("b");
+        try {
+            dml.update(account);
+            fail();
+        } catch (DbistRuntimeException e) {
+        }
+        try {
+            dml.delete(account);
+            fail();
+        } catch (DbistRuntimeException e) {
+        }
+        assertEquals("a", jdbcTemplate.queryForObject("select name from account where id = 1", String.class));
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Rows encoded into the input stream of the bulk load protocols.
+ */
+public class BulkLoaderTest {
+
+    /**
+     * Reads the input stream as the driver does instead of sending it
+     */
+    private static class RecordingPostgresql extends BulkLoaderPostgresql {
+        private String text;
+
+        protected long execute(Connection con, String sql, InputStream in) throws SQLException {
+            text = read(in);
+            return text.split("\n", -1).length - 1;
+        }
+    }
+
+    private static class RecordingMysql extends BulkLoaderMysql {
+        private String text;
+
+        protected long execute(Connection con, String sql, InputStream in) throws SQLException {
+            text = read(in);
+            return text.split("\n", -1).length - 1;
+        }
+    }
+
+    private static String read(InputStream in) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] bytes = new byte[1000];
+            int size;
+            while ((size = in.read(bytes, 0, bytes.length)) != -1)
+                out.write(bytes, 0, size);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String load(RecordingPostgresql loader, Object[]... rows) throws SQLException {
+        loader.load(null, "copy", Arrays.asList(rows).iterator());
+        return loader.text;
+    }
+
+    private static String load(RecordingMysql loader, Object[]... rows) throws SQLException {
+        loader.load(null, "load data", Arrays.asList(rows).iterator());
+        return loader.text;
+    }
+
+    @Test
+    public void toSql() {
+        assertEquals("copy public.item (id, name) from stdin with (format csv)",
+            new BulkLoaderPostgresql().toSql("public.item", Arrays.asList("id", "name")));
+        assertEquals("load data local infile 'stream' into table item character set utf8mb4 fields terminated by ',' optionally enclosed by '\"'"
+            + " escaped by '\\\\' lines terminated by '\\n' (id, name)", new BulkLoaderMysql().toSql("item", Arrays.asList("id", "name")));
+    }
+
+    @Test
+    public void postgresqlSpecialCharacters() throws Exception {
+        RecordingPostgresql loader = new RecordingPostgresql();
+        assertEquals("1,\"say \"\"hi\"\"\"\n", load(loader, new Object[]{1L, "say \"hi\""}));
+        // Backslashes are not special in csv
+        assertEquals("2,\"c:\\temp\\\"\n", load(loader, new Object[]{2L, "c:\\temp\\"}));
+        // Line breaks and delimiters in quoted values
+        assertEquals("3,\"line1\nline2\r\nline3\"\n", load(loader, new Object[]{3L, "line1\nline2\r\nline3"}));
+        assertEquals("4,\"a,b\"\n", load(loader, new Object[]{4L, "a,b"}));
+        // Not the end-of-data marker, since it is quoted
+        assertEquals("5,\"\\.\"\n", load(loader, new Object[]{5L, "\\."}));
+        assertEquals("6,\"한글\"\n", load(loader, new Object[]{6L, "한글"}));
+    }
+
+    @Test
+    public void postgresqlNullAndEmpty() throws Exception {
+        RecordingPostgresql loader = new RecordingPostgresql();
+        // An unquoted empty value is null, and a quoted one is an empty string
+        assertEquals("1,,\"\"\n", load(loader, new Object[]{1L, null, ""}));
+        assertEquals(",\n", load(loader, new Object[]{null, null}));
+    }
+
+    @Test
+    public void postgresqlTypes() throws Exception {
+        RecordingPostgresql loader = new RecordingPostgresql();
+        Timestamp timestamp = Timestamp.valueOf("2014-01-02 03:04:05.678");
+        assertEquals("true,1500,1.5,\"2014-01-02 03:04:05.678\",\"2014-01-02 03:04:05.678\"\n",
+            load(loader, new Object[]{true, new BigDecimal("1.5E+3"), 1.5d, timestamp, new java.util.Date(timestamp.getTime())}));
+    }
+
+    @Test
+    public void mysqlSpecialCharacters() throws Exception {
+        RecordingMysql loader = new RecordingMysql();
+        assertEquals("1,\"say \\\"hi\\\"\"\n", load(loader, new Object[]{1L, "say \"hi\""}));
+        assertEquals("2,\"c:\\\\temp\\\\\"\n", load(loader, new Object[]{2L, "c:\\temp\\"}));
+        // Line breaks are escaped, so every row is a single line
+        assertEquals("3,\"line1\\nline2\\r\\nline3\"\n", load(loader, new Object[]{3L, "line1\nline2\r\nline3"}));
+        assertEquals("4,\"a,b\"\n", load(loader, new Object[]{4L, "a,b"}));
+        assertEquals("5,\"a\\0b\"\n", load(loader, new Object[]{5L, "a\0b"}));
+        // The literal characters of the null marker are escaped
+        assertEquals("6,\"\\\\N\"\n", load(loader, new Object[]{6L, "\\N"}));
+        assertEquals("7,\"한글\"\n", load(loader, new Object[]{7L, "한글"}));
+    }
+
+    @Test
+    public void mysqlNullAndEmpty() throws Exception {
+        RecordingMysql loader = new RecordingMysql();
+        assertEquals("1,\\N,\"\"\n", load(loader, new Object[]{1L, null, ""}));
+        assertEquals("\\N,\\N\n", load(loader, new Object[]{null, null}));
+    }
+
+    @Test
+    public void mysqlTypes() throws Exception {
+        RecordingMysql loader = new RecordingMysql();
+        Timestamp timestamp = Timestamp.valueOf("2014-01-02 03:04:05.678");
+        assertEquals("1,0,1500,\"2014-01-02 03:04:05.678\"\n", load(loader, new Object[]{true, false, new BigDecimal("1.5E+3"), timestamp}));
+    }
+
+    @Test
+    public void rowsOverBuffer() throws Exception {
+        List<Object[]> rowList = new ArrayList<>();
+        StringBuffer expected = new StringBuffer();
+        for (int i = 0; i < 20000; i++) {
+            rowList.add(new Object[]{i, "가나다 " + i});
+            expected.append(i).append(",\"가나다 ").append(i).append("\"\n");
+        }
+        RecordingPostgresql loader = new RecordingPostgresql();
+        assertEquals(20000, loader.load(null, "copy", rowList.iterator()));
+        assertEquals(expected.toString(), loader.text);
+    }
+
+    @Test
+    public void noRows() throws Exception {
+        assertEquals("", load(new RecordingPostgresql()));
+        assertEquals("", load(new RecordingMysql()));
+    }
+
+    @Test
+    public void supportedType() {
+        BulkLoader loader = new BulkLoaderPostgresql();
+        assertTrue(loader.isSupportedType(String.class));
+        assertTrue(loader.isSupportedType(Long.class));
+        assertTrue(loader.isSupportedType(java.util.Date.class));
+        assertFalse(loader.isSupportedType(byte[].class));
+        assertFalse(loader.isSupportedType(Blob.class));
+    }
+}
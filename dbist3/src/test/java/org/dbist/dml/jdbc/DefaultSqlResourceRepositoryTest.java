@@ -0,0 +1,155 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * SQL resources preloaded from the rootList, and the paths out of it cached by an LRU map.
+ */
+public class DefaultSqlResourceRepositoryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String root;
+    private String other;
+    private DefaultSqlResourceRepository repository;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder("root").getAbsolutePath();
+        other = folder.newFolder("other").getAbsolutePath();
+        write(root + "/a/ansi.sql", "select 'ansi a'");
+        write(root + "/a/h2.sql", "select 'h2 a'");
+        write(root + "/b/ansi.sql", "select 'ansi b'");
+        write(root + "/b/c/mysql.sql", "select 'mysql c'");
+        for (int i = 1; i <= 3; i++)
+            write(other + "/" + i + ".sql", "select " + i);
+        repository = new DefaultSqlResourceRepository();
+        repository.setRootList(Arrays.asList(root));
+    }
+
+    @After
+    public void tearDown() {
+        repository.close();
+    }
+
+    private static void write(String path, String text) throws IOException {
+        File file = new File(path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void preload() throws Exception {
+        repository.init("h2");
+        // Read from the map after the files are deleted
+        new File(root + "/a/h2.sql").delete();
+        new File(root + "/a/ansi.sql").delete();
+        new File(root + "/b/ansi.sql").delete();
+        assertEquals("select 'h2 a'", repository.getSql(root + "/a"));
+        assertEquals("select 'h2 a'", repository.getSql(root + "/a/"));
+        assertEquals("select 'ansi a'", repository.getSql(root + "/a/ansi.sql"));
+        assertEquals("select 'ansi b'", repository.getSql(root + "/b"));
+        assertEquals(2, repository.getLookupCountMap().get(root + "/a").longValue());
+    }
+
+    @Test
+    public void dbTypeSqlPrecedence() throws Exception {
+        repository.init("h2");
+        assertEquals("select 'h2 a'", repository.getSql(root + "/a"));
+        assertEquals("select 'ansi b'", repository.getSql(root + "/b"));
+
+        // Neither h2.sql nor ansi.sql
+        DefaultSqlResourceRepository mysqlRepository = new DefaultSqlResourceRepository();
+        mysqlRepository.setRootList(Arrays.asList(root));
+        mysqlRepository.init("mysql");
+        assertEquals("select 'ansi a'", mysqlRepository.getSql(root + "/a"));
+        assertEquals("select 'mysql c'", mysqlRepository.getSql(root + "/b/c"));
+    }
+
+    @Test
+    public void overflowByLru() throws Exception {
+        repository.setMaxSize(2);
+        repository.init("h2");
+        assertEquals("select 1", repository.getSql(other + "/1.sql"));
+        assertEquals("select 2", repository.getSql(other + "/2.sql"));
+        assertEquals("select 1", repository.getSql(other + "/1.sql"));
+        // Evicts 2, the least recently used
+        assertEquals("select 3", repository.getSql(other + "/3.sql"));
+
+        write(other + "/1.sql", "select 10");
+        write(other + "/2.sql", "select 20");
+        assertEquals("select 1", repository.getSql(other + "/1.sql"));
+        assertEquals("select 20", repository.getSql(other + "/2.sql"));
+        // and the preloaded ones are kept
+        assertEquals("select 'h2 a'", repository.getSql(root + "/a"));
+
+        // Lookup counts of preloadedSize + maxSize paths at most
+        for (int i = 4; i <= 20; i++) {
+            write(other + "/" + i + ".sql", "select " + i);
+            repository.getSql(other + "/" + i + ".sql");
+        }
+        assertTrue(repository.getLookupCountMap().toString(), repository.getLookupCountMap().size() <= 7);
+    }
+
+    @Test
+    public void reloadByClear() throws Exception {
+        repository.init("h2");
+        write(root + "/a/h2.sql", "select 'h2 a2'");
+        assertEquals("select 'h2 a'", repository.getSql(root + "/a"));
+        repository.clear();
+        assertEquals("select 'h2 a2'", repository.getSql(root + "/a"));
+
+        new File(root + "/a/h2.sql").delete();
+        repository.clear();
+        assertEquals("select 'ansi a'", repository.getSql(root + "/a"));
+    }
+
+    @Test
+    public void reloadByWatch() throws Exception {
+        repository.setWatch(true);
+        repository.init("h2");
+        write(root + "/a/h2.sql", "select 'h2 a2'");
+        assertEquals("select 'h2 a2'", waitForSql(root + "/a", "select 'h2 a2'"));
+
+        // Falls back to ansi.sql
+        new File(root + "/a/h2.sql").delete();
+        assertEquals("select 'ansi a'", waitForSql(root + "/a", "select 'ansi a'"));
+    }
+
+    private String waitForSql(String path, String expected) throws Exception {
+        String sql = null;
+        for (int i = 0; i < 100 && !expected.equals(sql); i++) {
+            Thread.sleep(100);
+            sql = repository.getSql(path);
+        }
+        return sql;
+    }
+}
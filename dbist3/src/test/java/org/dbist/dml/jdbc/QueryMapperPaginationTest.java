@@ -0,0 +1,145 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.jdbc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Pagination statements of the dialects.<br>
+ * The page index is 1-based and 0 also means the first page. firstResultIndex is skipped within the page, and maxResultSize limits the
+ * rows of the page.
+ */
+public class QueryMapperPaginationTest {
+    private static final String SQL = "select * from t order by id";
+
+    private static String paginate(QueryMapper queryMapper, Map<String, Object> paramMap, int pageIndex, int pageSize, int firstResultIndex,
+                                   int maxResultSize) {
+        paramMap.clear();
+        return queryMapper.applyPagination(SQL, paramMap, pageIndex, pageSize, firstResultIndex, maxResultSize);
+    }
+
+    /**
+     * Assert the numeric parameters regardless of int or long.
+     */
+    private static void assertParams(Map<String, Object> paramMap, Object... keyValues) {
+        assertEquals(paramMap.toString(), keyValues.length / 2, paramMap.size());
+        for (int i = 0; i < keyValues.length; i += 2)
+            assertEquals((String) keyValues[i], ((Number) keyValues[i + 1]).longValue(), ((Number) paramMap.get(keyValues[i])).longValue());
+    }
+
+    @Test
+    public void h2() {
+        QueryMapper queryMapper = new QueryMapperH2();
+        Map<String, Object> paramMap = new HashMap<String, Object>();
+        assertEquals(SQL + " limit :__limit", paginate(queryMapper, paramMap, 0, 10, 0, 0));
+        assertParams(paramMap, "__limit", 10);
+        assertEquals(SQL + " limit :__limit", paginate(queryMapper, paramMap, 1, 10, 0, 0));
+        assertParams(paramMap, "__limit", 10);
+        assertEquals(SQL + " limit :__limit offset :__offset", paginate(queryMapper, paramMap, 2, 10, 5, 0));
+        assertParams(paramMap, "__offset", 15, "__limit", 5);
+        paginate(queryMapper, paramMap, 2, 10, 0, 25);
+        assertParams(paramMap, "__offset", 10, "__limit", 10);
+        paginate(queryMapper, paramMap, 2, 10, 0, 4);
+        assertParams(paramMap, "__offset", 10, "__limit", 4);
+        paginate(queryMapper, paramMap, 0, 0, 5, 3);
+        assertParams(paramMap, "__offset", 5, "__limit", 3);
+        // Limit of H2 is an int
+        paginate(queryMapper, paramMap, 0, 0, 5, 0);
+        assertParams(paramMap, "__offset", 5, "__limit", Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void postgresql() {
+        QueryMapper queryMapper = new QueryMapperPostgresql();
+        Map<String, Object> paramMap = new HashMap<String, Object>();
+        assertEquals(SQL + " limit :__limit", paginate(queryMapper, paramMap, 0, 10, 0, 0));
+        assertParams(paramMap, "__limit", 10);
+        assertEquals(SQL + " limit :__limit offset :__offset", paginate(queryMapper, paramMap, 2, 10, 5, 0));
+        assertParams(paramMap, "__offset", 15, "__limit", 5);
+        paginate(queryMapper, paramMap, 2, 10, 0, 25);
+        assertParams(paramMap, "__offset", 10, "__limit", 10);
+    }
+
+    @Test
+    public void mysql() {
+        QueryMapper queryMapper = new QueryMapperMysql();
+        Map<String, Object> paramMap = new HashMap<String, Object>();
+        assertEquals(SQL + " limit :__limit", paginate(queryMapper, paramMap, 1, 10, 0, 0));
+        assertParams(paramMap, "__limit", 10);
+        assertEquals(SQL + " limit :__offset, :__limit", paginate(queryMapper, paramMap, 2, 10, 5, 0));
+        assertParams(paramMap, "__offset", 15, "__limit", 5);
+        paginate(queryMapper, paramMap, 2, 10, 0, 25);
+        assertParams(paramMap, "__offset", 10, "__limit", 10);
+    }
+
+    @Test
+    public void oracle() {
+        QueryMapper queryMapper = new QueryMapperOracle();
+        Map<String, Object> paramMap = new HashMap<String, Object>();
+        assertEquals("select * from (" + SQL + ") where rownum <= :__toIndex order by rownum", paginate(queryMapper, paramMap, 0, 10, 0, 0));
+        assertParams(paramMap, "__toIndex", 10);
+        assertEquals("select * from (select pagetbl_.*, rownum rownum_ from (" + SQL
+            + ") pagetbl_ where rownum <= :__toIndex order by rownum) where rownum_ > :__fromIndex", paginate(queryMapper, paramMap, 2, 10, 5, 0));
+        assertParams(paramMap, "__fromIndex", 15, "__toIndex", 20);
+        paginate(queryMapper, paramMap, 2, 10, 0, 25);
+        assertParams(paramMap, "__fromIndex", 10, "__toIndex", 20);
+    }
+
+    @Test
+    public void sqlserver() {
+        QueryMapper queryMapper = new QueryMapperSqlserver();
+        Map<String, Object> paramMap = new HashMap<String, Object>();
+        assertEquals(SQL + " OFFSET :__offset ROWS FETCH NEXT :__limit ROWS ONLY", paginate(queryMapper, paramMap, 0, 10, 0, 0));
+        assertParams(paramMap, "__offset", 0, "__limit", 10);
+        paginate(queryMapper, paramMap, 2, 10, 5, 0);
+        assertParams(paramMap, "__offset", 15, "__limit", 5);
+        paginate(queryMapper, paramMap, 2, 10, 0, 25);
+        assertParams(paramMap, "__offset", 10, "__limit", 10);
+
+        // OFFSET ... FETCH requires order by clause
+        paramMap.clear();
+        assertEquals("select * from (select id from t order by id) x order by (select null) OFFSET :__offset ROWS FETCH NEXT :__limit ROWS ONLY",
+            queryMapper.applyPagination("select * from (select id from t order by id) x", paramMap, 1, 10, 0, 0));
+    }
+
+    @Test
+    public void db2() {
+        QueryMapper queryMapper = new QueryMapperDb2();
+        Map<String, Object> paramMap = new HashMap<String, Object>();
+        assertEquals(SQL + " fetch first 10 rows only", paginate(queryMapper, paramMap, 0, 10, 0, 0));
+        assertEquals(SQL + " fetch first 10 rows only", paginate(queryMapper, paramMap, 1, 10, 0, 0));
+        assertEquals("select * from (select pagetbl_.*, rownumber() over(order by order of pagetbl_) rownumber_ from (" + SQL
+            + " fetch first 20 rows only) pagetbl_) pagetbl__ where rownumber_ > 15 order by rownumber_", paginate(queryMapper, paramMap, 2, 10, 5, 0));
+        assertEquals("select * from (select pagetbl_.*, rownumber() over(order by order of pagetbl_) rownumber_ from (" + SQL
+            + " fetch first 20 rows only) pagetbl_) pagetbl__ where rownumber_ > 10 order by rownumber_", paginate(queryMapper, paramMap, 2, 10, 0, 25));
+    }
+
+    @Test
+    public void cassandra() {
+        // No offset in CQL, so the rows before the offset are skipped by the client
+        QueryMapper queryMapper = new QueryMapperCassandra();
+        Map<String, Object> paramMap = new HashMap<String, Object>();
+        assertEquals(SQL + " limit :__limit", paginate(queryMapper, paramMap, 2, 10, 5, 0));
+        assertParams(paramMap, "__limit", 20);
+        paginate(queryMapper, paramMap, 2, 10, 0, 4);
+        assertParams(paramMap, "__limit", 14);
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.dml.jdbc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Single upsert statements of the dialects, of a composite primary key (a, b).
+ */
+public class QueryMapperUpsertTest {
+    private static final List<String> COLUMNS = Arrays.asList("a", "b", "c", "d");
+    private static final List<String> KEY_COLUMNS = Arrays.asList("a", "b");
+
+    private static String toUpsert(QueryMapper queryMapper, List<String> columnNames) {
+        return queryMapper.toUpsert("s.t", columnNames, columnNames, KEY_COLUMNS);
+    }
+
+    @Test
+    public void h2() {
+        QueryMapper queryMapper = new QueryMapperH2();
+        assertEquals("merge into s.t(a, b, c, d) key(a, b) values(:a, :b, :c, :d)", toUpsert(queryMapper, COLUMNS));
+        assertEquals("merge into s.t(a, b, c) key(a, b) values(:a, :b, :c)", toUpsert(queryMapper, Arrays.asList("a", "b", "c")));
+    }
+
+    @Test
+    public void oracle() {
+        QueryMapper queryMapper = new QueryMapperOracle();
+        assertEquals("merge into s.t mrgtbl_ using (select :a a, :b b, :c c, :d d from dual) mrgsrc_"
+            + " on (mrgtbl_.a = mrgsrc_.a and mrgtbl_.b = mrgsrc_.b) when matched then update set c = mrgsrc_.c, d = mrgsrc_.d"
+            + " when not matched then insert (a, b, c, d) values (mrgsrc_.a, mrgsrc_.b, mrgsrc_.c, mrgsrc_.d)", toUpsert(queryMapper, COLUMNS));
+        // Nothing to update but the key
+        assertEquals("merge into s.t mrgtbl_ using (select :a a, :b b from dual) mrgsrc_ on (mrgtbl_.a = mrgsrc_.a and mrgtbl_.b = mrgsrc_.b)"
+            + " when not matched then insert (a, b) values (mrgsrc_.a, mrgsrc_.b)", toUpsert(queryMapper, KEY_COLUMNS));
+    }
+
+    @Test
+    public void sqlserver() {
+        QueryMapper queryMapper = new QueryMapperSqlserver();
+        assertEquals("merge into s.t with (holdlock) as mrgtbl_ using (select :a as a, :b as b, :c as c, :d as d) as mrgsrc_"
+            + " on (mrgtbl_.a = mrgsrc_.a and mrgtbl_.b = mrgsrc_.b) when matched then update set c = mrgsrc_.c, d = mrgsrc_.d"
+            + " when not matched then insert (a, b, c, d) values (mrgsrc_.a, mrgsrc_.b, mrgsrc_.c, mrgsrc_.d);", toUpsert(queryMapper, COLUMNS));
+        assertEquals("merge into s.t with (holdlock) as mrgtbl_ using (select :a as a, :b as b) as mrgsrc_"
+            + " on (mrgtbl_.a = mrgsrc_.a and mrgtbl_.b = mrgsrc_.b) when not matched then insert (a, b) values (mrgsrc_.a, mrgsrc_.b);",
+            toUpsert(queryMapper, KEY_COLUMNS));
+    }
+
+    @Test
+    public void db2() {
+        QueryMapper queryMapper = new QueryMapperDb2();
+        assertEquals("merge into s.t mrgtbl_ using (values(:a, :b, :c, :d)) mrgsrc_(a, b, c, d)"
+            + " on (mrgtbl_.a = mrgsrc_.a and mrgtbl_.b = mrgsrc_.b) when matched then update set c = mrgsrc_.c, d = mrgsrc_.d"
+            + " when not matched then insert (a, b, c, d) values (mrgsrc_.a, mrgsrc_.b, mrgsrc_.c, mrgsrc_.d)", toUpsert(queryMapper, COLUMNS));
+        assertEquals("merge into s.t mrgtbl_ using (values(:a, :b, :d)) mrgsrc_(a, b, d) on (mrgtbl_.a = mrgsrc_.a and mrgtbl_.b = mrgsrc_.b)"
+            + " when matched then update set d = mrgsrc_.d when not matched then insert (a, b, d) values (mrgsrc_.a, mrgsrc_.b, mrgsrc_.d)",
+            toUpsert(queryMapper, Arrays.asList("a", "b", "d")));
+    }
+
+    @Test
+    public void postgresql() {
+        QueryMapper queryMapper = new QueryMapperPostgresql();
+        assertEquals("insert into s.t(a, b, c, d) values(:a, :b, :c, :d) on conflict (a, b) do update set c = excluded.c, d = excluded.d",
+            toUpsert(queryMapper, COLUMNS));
+        assertEquals("insert into s.t(a, b) values(:a, :b) on conflict (a, b) do nothing", toUpsert(queryMapper, KEY_COLUMNS));
+    }
+
+    @Test
+    public void mysql() {
+        QueryMapper queryMapper = new QueryMapperMysql();
+        assertEquals("insert into s.t(a, b, c, d) values(:a, :b, :c, :d) on duplicate key update c = values(c), d = values(d)",
+            toUpsert(queryMapper, COLUMNS));
+        assertEquals("insert into s.t(a, b) values(:a, :b) on duplicate key update a = a", toUpsert(queryMapper, KEY_COLUMNS));
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright 2011-2014 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbist.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.dbist.annotation.Column;
+import org.dbist.annotation.PrimaryKey;
+import org.dbist.annotation.Table;
+import org.dbist.metadata.TableSnapshot.ColumnEntry;
+import org.dbist.metadata.TableSnapshot.SequenceEntry;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Metadata snapshot saved to and loaded from a file.
+ */
+public class MetadataSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Table(name = "item")
+    public static class Item {
+        @PrimaryKey
+        private Long id;
+        private String name;
+    }
+
+    // Item of which a field is changed
+    @Table(name = "item")
+    public static class ChangedItem {
+        @PrimaryKey
+        private Long id;
+        @Column(name = "item_name")
+        private String name;
+    }
+
+    // Item of which a field type is changed
+    @Table(name = "item")
+    public static class RetypedItem {
+        @PrimaryKey
+        private String id;
+        private String name;
+    }
+
+    private static final String KEY = MetadataSnapshot.toKey("h2", "jdbc:h2:mem:test", Arrays.asList("public"));
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "snapshot/dbist-metadata-" + KEY + ".ser");
+    }
+
+    private static TableSnapshot newTableSnapshot(Class<?> clazz) {
+        TableSnapshot tableSnapshot = new TableSnapshot();
+        tableSnapshot.setFingerprint(MetadataSnapshot.toFingerprint(clazz));
+        tableSnapshot.setDomain("public");
+        tableSnapshot.setName("item");
+        tableSnapshot.setType("TABLE");
+        tableSnapshot.setPkColumnNameList(new ArrayList<>(Arrays.asList("id")));
+        tableSnapshot.getColumnList().add(new ColumnEntry("id", "bigint", 19, "NO"));
+        tableSnapshot.getColumnList().add(new ColumnEntry("name", "varchar", 50, "YES"));
+        tableSnapshot.getIdentityColumnNameSet().add("id");
+        SequenceEntry sequenceEntry = new SequenceEntry();
+        tableSnapshot.getSequenceByFieldNameMap().put("id", sequenceEntry);
+        return tableSnapshot;
+    }
+
+    @Test
+    public void roundTrip() {
+        MetadataSnapshot snapshot = new MetadataSnapshot(KEY);
+        snapshot.put(Item.class.getName(), newTableSnapshot(Item.class));
+        snapshot.save(file);
+        assertTrue(file.exists());
+        // The temporary file is moved to the file
+        assertEquals(1, file.getParentFile().list().length);
+
+        MetadataSnapshot loaded = MetadataSnapshot.load(file, KEY);
+        assertEquals(KEY, loaded.getKey());
+        assertEquals(1, loaded.size());
+        TableSnapshot tableSnapshot = loaded.get(Item.class);
+        assertEquals(newTableSnapshot(Item.class), tableSnapshot);
+        assertEquals(Arrays.asList("id"), tableSnapshot.getPkColumnNameList());
+        assertEquals(2, tableSnapshot.getColumnList().size());
+        assertEquals("varchar", tableSnapshot.getColumnList().get(1).getDataType());
+        assertEquals(Integer.valueOf(50), tableSnapshot.getColumnList().get(1).getLength());
+        assertEquals(Collections.singleton("id"), tableSnapshot.getIdentityColumnNameSet());
+
+        // Saved again over the existing file
+        loaded.remove(Item.class.getName());
+        loaded.save(file);
+        assertEquals(0, MetadataSnapshot.load(file, KEY).size());
+    }
+
+    @Test
+    public void anotherKey() {
+        MetadataSnapshot snapshot = new MetadataSnapshot(KEY);
+        snapshot.put(Item.class.getName(), newTableSnapshot(Item.class));
+        snapshot.save(file);
+
+        String otherKey = MetadataSnapshot.toKey("h2", "jdbc:h2:mem:other", Arrays.asList("public"));
+        assertNotEquals(KEY, otherKey);
+        MetadataSnapshot loaded = MetadataSnapshot.load(file, otherKey);
+        assertEquals(otherKey, loaded.getKey());
+        assertEquals(0, loaded.size());
+    }
+
+    @Test
+    public void fingerprint() {
+        assertEquals(MetadataSnapshot.toFingerprint(Item.class), MetadataSnapshot.toFingerprint(Item.class));
+        assertNotEquals(MetadataSnapshot.toFingerprint(Item.class), MetadataSnapshot.toFingerprint(ChangedItem.class));
+
+        // The snapshots saved before the classes are changed
+        MetadataSnapshot snapshot = new MetadataSnapshot(KEY);
+        TableSnapshot changed = newTableSnapshot(Item.class);
+        TableSnapshot retyped = newTableSnapshot(Item.class);
+        snapshot.put(Item.class.getName(), newTableSnapshot(Item.class));
+        snapshot.put(ChangedItem.class.getName(), changed);
+        snapshot.put(RetypedItem.class.getName(), retyped);
+        snapshot.save(file);
+
+        MetadataSnapshot loaded = MetadataSnapshot.load(file, KEY);
+        assertEquals(3, loaded.size());
+        assertEquals(newTableSnapshot(Item.class), loaded.get(Item.class));
+        assertNull(loaded.get(ChangedItem.class));
+        assertNull(loaded.get(RetypedItem.class));
+        // Still kept for revalidation
+        assertEquals(changed, loaded.get(ChangedItem.class.getName()));
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void unexpectedClass() {
+        MetadataSnapshot snapshot = new MetadataSnapshot(KEY);
+        TableSnapshot tableSnapshot = newTableSnapshot(Item.class);
+        List columnList = new ArrayList();
+        columnList.add(new File("item"));
+        tableSnapshot.setColumnList(columnList);
+        snapshot.put(Item.class.getName(), tableSnapshot);
+        snapshot.save(file);
+        assertTrue(file.exists());
+
+        MetadataSnapshot loaded = MetadataSnapshot.load(file, KEY);
+        assertEquals(KEY, loaded.getKey());
+        assertEquals(0, loaded.size());
+    }
+
+    @Test
+    public void brokenFile() throws Exception {
+        assertEquals(0, MetadataSnapshot.load(file, KEY).size());
+
+        MetadataSnapshot snapshot = new MetadataSnapshot(KEY);
+        snapshot.put(Item.class.getName(), newTableSnapshot(Item.class));
+        snapshot.save(file);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+        assertEquals(0, MetadataSnapshot.load(file, KEY).size());
+
+        Files.write(file.toPath(), "not a snapshot".getBytes(StandardCharsets.UTF_8));
+        assertEquals(0, MetadataSnapshot.load(file, KEY).size());
+    }
+}
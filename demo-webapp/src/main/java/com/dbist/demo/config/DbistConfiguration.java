@@ -6,6 +6,7 @@ import javax.sql.DataSource;
 import org.dbist.aspect.SqlAspect;
 import org.dbist.ddl.impl.DdlJdbc;
 import org.dbist.dml.impl.DmlJdbc;
+import org.dbist.metrics.SqlMetrics;
 import org.dbist.processor.impl.VelocityPreprocessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -43,18 +44,30 @@ public class DbistConfiguration {
         return new DdlJdbc();
     }
 
-    @Bean
+    @Bean(destroyMethod = "close")
     public SqlAspect sqlAspect() {
         return new SqlAspect() {{
             String enabled = env.getProperty("sqlAspect.enabled", "false");
             String prettyPrint = env.getProperty("sqlAspect.prettyPrint", "false");
             String combinedPrint = env.getProperty("sqlAspect.combinedPrint", "false");
             String includeElapsedTime = env.getProperty("sqlAspect.includeElapsedTime", "false");
+            String slowQueryThreshold = env.getProperty("sqlAspect.slowQueryThreshold", "0");
+            String asyncLog = env.getProperty("sqlAspect.asyncLog", "false");
 
             this.setEnabled(enabled);
             this.setPrettyPrint(prettyPrint);
             this.setCombinedPrint(combinedPrint);
             this.setIncludeElapsedTime(includeElapsedTime);
+            this.setSlowQueryThreshold(slowQueryThreshold);
+            this.setAsyncLog(asyncLog);
+            this.setMetricsSink(sqlMetrics());
         }};
     }
+
+    @Bean
+    public SqlMetrics sqlMetrics() {
+        SqlMetrics sqlMetrics = new SqlMetrics();
+        sqlMetrics.registerMBean("org.dbist:type=SqlMetrics");
+        return sqlMetrics;
+    }
 }
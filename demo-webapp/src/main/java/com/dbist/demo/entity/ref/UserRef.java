@@ -2,11 +2,12 @@ package com.dbist.demo.entity.ref;
 
 import org.dbist.annotation.PrimaryKey;
 import org.dbist.annotation.Table;
+import org.dbist.cache.EntityCache;
 
 import lombok.Data;
 
 @Data
-@Table(name = "tb_user", isRef = true)
+@Table(name = "tb_user", isRef = true, cache = EntityCache.EVICTION_TTL, cacheTimeToLive = 300)
 public class UserRef {
     @PrimaryKey
     private String id;